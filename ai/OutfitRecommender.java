@@ -6,7 +6,6 @@ import com.fashionstore.models.StylePreference;
 import com.fashionstore.models.User;
 
 import java.util.*;
-import java.util.stream.Collectors;
 
 /**
  * Rule-based outfit recommendation engine that suggests outfits based on
@@ -20,6 +19,18 @@ public class OutfitRecommender {
     // Style coordination maps
     private static final Map<String, List<String>> STYLE_MATCHES = new HashMap<>();
 
+    // Pair scores used to rank outfits: complementary colours, the same
+    // colour, and colours that do not go together; unknown colours score 0
+    private static final double COMPLEMENTARY_SCORE = 1.0;
+    private static final double SAME_COLOR_SCORE = 0.5;
+    private static final double CLASH_SCORE = -0.5;
+
+    // Outfit slots in search order
+    private static final String[] SLOTS = { "tops", "bottoms", "shoes", "outerwear", "accessories" };
+
+    // Whether the last search gave up before it had proven its outfits the best
+    private boolean lastSearchTruncated = false;
+
     // Static initializer to set up color and style matching rules
     static {
         // Initialize complementary color pairings
@@ -45,47 +56,94 @@ public class OutfitRecommender {
     }
 
     /**
-     * Generates outfit recommendations based on user's wardrobe and preferences
+     * Generates outfit recommendations based on user's wardrobe and preferences.
+     * The recommendations are the best-scoring outfits of a top, a bottom,
+     * shoes if the wardrobe has any, and optionally outerwear and an
+     * accessory. Scores add up how well each pair of items goes together by
+     * colour and how well each item matches the user's style preferences.
+     * The same wardrobe always gives the same recommendations.
+     * The search is capped so that huge wardrobes still get an answer quickly;
+     * if it hits the cap, the recommendations are the best it found by then
+     * and {@link #isLastSearchTruncated()} returns true.
      * 
      * @param user               The user to generate recommendations for
      * @param wardrobeItems      List of products in the user's wardrobe
      * @param maxRecommendations Maximum number of recommendations to generate
-     * @return List of recommended outfits
+     * @return List of recommended outfits, best first
      */
     public List<Outfit> generateRecommendations(
             User user,
             List<Product> wardrobeItems,
             int maxRecommendations) {
 
+        lastSearchTruncated = false;
+
         // Make sure we have enough items to work with
-        if (wardrobeItems.size() < 2) {
+        if (wardrobeItems.size() < 2 || maxRecommendations <= 0) {
             return Collections.emptyList();
         }
 
-        // Categorize wardrobe items
-        Map<String, List<Product>> categorizedItems = categorizeWardrobeItems(wardrobeItems);
+        // Categorize wardrobe items, counting any product listed twice once
+        Map<String, Product> uniqueItems = new LinkedHashMap<>();
+        for (Product product : wardrobeItems) {
+            uniqueItems.putIfAbsent(product.getProductId(), product);
+        }
+        Map<String, List<Product>> categorizedItems = categorizeWardrobeItems(new ArrayList<>(uniqueItems.values()));
+
+        // Score every item once: its colour class and its own score
+        Map<String, Integer> colorIds = new HashMap<>();
+        colorIds.put("", 0);
+        List<List<Product>> slots = new ArrayList<>();
+        int[][] itemColors = new int[SLOTS.length][];
+        double[][] itemScores = new double[SLOTS.length][];
+        for (int slot = 0; slot < SLOTS.length; slot++) {
+            List<Product> items = categorizedItems.get(SLOTS[slot]);
+            slots.add(items);
+            itemColors[slot] = new int[items.size()];
+            itemScores[slot] = new double[items.size()];
+            for (int i = 0; i < items.size(); i++) {
+                itemColors[slot][i] = colorIds.computeIfAbsent(normalizeColor(items.get(i).getColor()),
+                        color -> colorIds.size());
+                itemScores[slot][i] = preferenceScore(items.get(i), user);
+            }
+        }
 
-        List<Outfit> recommendations = new ArrayList<>();
+        // Tops and bottoms are required, and shoes whenever there are any
+        boolean[] optional = { false, false, slots.get(2).isEmpty(), true, true };
 
-        // Try to create enough outfit combinations
-        for (int attempt = 0; attempt < maxRecommendations * 3
-                && recommendations.size() < maxRecommendations; attempt++) {
-            Outfit outfit = createOutfitCombination(user, categorizedItems);
-            if (outfit != null && !outfitExists(recommendations, outfit)) {
-                // Calculate and set style rating
-                double rating = calculateOutfitRating(outfit, wardrobeItems, user);
-                outfit.setStyleRating(rating);
+        OutfitSearch search = new OutfitSearch(itemColors, itemScores, optional,
+                buildCompatibilityMatrix(colorIds));
 
-                recommendations.add(outfit);
-            }
+        OutfitSearch.Results results = search.topK(maxRecommendations);
+        lastSearchTruncated = results.isTruncated();
+        if (lastSearchTruncated) {
+            System.err.println("Outfit search stopped early; recommendations may not be the best possible");
         }
 
-        // Sort recommendations by rating (highest first)
-        recommendations.sort((o1, o2) -> Double.compare(o2.getStyleRating(), o1.getStyleRating()));
+        List<Outfit> recommendations = new ArrayList<>();
+        for (OutfitSearch.Result result : results.getOutfits()) {
+            List<Product> outfitProducts = new ArrayList<>();
+            int[] chosen = result.getItems();
+            for (int slot = 0; slot < chosen.length; slot++) {
+                if (chosen[slot] != OutfitSearch.NONE) {
+                    outfitProducts.add(slots.get(slot).get(chosen[slot]));
+                }
+            }
+            recommendations.add(createOutfit(user, outfitProducts));
+        }
 
         return recommendations;
     }
 
+    /**
+     * @return true if the last call to generateRecommendations stopped
+     *         searching early, so better outfits than the ones returned may
+     *         exist
+     */
+    public boolean isLastSearchTruncated() {
+        return lastSearchTruncated;
+    }
+
     /**
      * Categorizes wardrobe items by their product category
      */
@@ -141,45 +199,14 @@ public class OutfitRecommender {
     }
 
     /**
-     * Creates a single outfit combination from the user's wardrobe items
+     * Creates a recommended outfit from the chosen products
      */
-    private Outfit createOutfitCombination(User user, Map<String, List<Product>> categorizedItems) {
-        Random random = new Random();
-
-        // Make sure we have essential items
-        if (categorizedItems.get("tops").isEmpty() || categorizedItems.get("bottoms").isEmpty()) {
-            return null;
-        }
-
-        // Start building the outfit
+    private Outfit createOutfit(User user, List<Product> products) {
         Outfit outfit = new Outfit(user.getUserId(), "AI Recommendation");
         outfit.setAiGenerated(true);
         outfit.setDescription("AI-generated outfit based on your style preferences and wardrobe items.");
-
-        // Select a top
-        Product top = getRandomItem(categorizedItems.get("tops"));
-        outfit.addProduct(top.getProductId());
-
-        // Select a bottom that coordinates with the top
-        Product bottom = selectCoordinatingItem(top, categorizedItems.get("bottoms"));
-        outfit.addProduct(bottom.getProductId());
-
-        // Add shoes if available
-        if (!categorizedItems.get("shoes").isEmpty()) {
-            Product shoes = selectCoordinatingItem(bottom, categorizedItems.get("shoes"));
-            outfit.addProduct(shoes.getProductId());
-        }
-
-        // Maybe add outerwear (30% chance)
-        if (!categorizedItems.get("outerwear").isEmpty() && random.nextDouble() < 0.3) {
-            Product outerwear = selectCoordinatingItem(top, categorizedItems.get("outerwear"));
-            outfit.addProduct(outerwear.getProductId());
-        }
-
-        // Maybe add an accessory (50% chance)
-        if (!categorizedItems.get("accessories").isEmpty() && random.nextDouble() < 0.5) {
-            Product accessory = getRandomItem(categorizedItems.get("accessories"));
-            outfit.addProduct(accessory.getProductId());
+        for (Product product : products) {
+            outfit.addProduct(product.getProductId());
         }
 
         // Determine appropriate season
@@ -188,51 +215,61 @@ public class OutfitRecommender {
         // Determine appropriate occasion
         determineOutfitOccasion(outfit);
 
+        outfit.setStyleRating(rateProducts(products, user));
         return outfit;
     }
 
     /**
-     * Gets a random item from a list
+     * Builds the pair score of every two colour classes, indexed by the ids
+     * in the map; id 0 stands for an unknown colour
      */
-    private Product getRandomItem(List<Product> items) {
-        if (items.isEmpty())
-            return null;
-        return items.get(new Random().nextInt(items.size()));
+    private double[][] buildCompatibilityMatrix(Map<String, Integer> colorIds) {
+        double[][] matrix = new double[colorIds.size()][colorIds.size()];
+        for (Map.Entry<String, Integer> first : colorIds.entrySet()) {
+            for (Map.Entry<String, Integer> second : colorIds.entrySet()) {
+                matrix[first.getValue()][second.getValue()] = colorCompatibility(first.getKey(), second.getKey());
+            }
+        }
+        return matrix;
     }
 
     /**
-     * Selects an item that coordinates well with the reference item
+     * Scores how well two colours go together; the same either way round
      */
-    private Product selectCoordinatingItem(Product referenceItem, List<Product> candidates) {
-        if (candidates.isEmpty())
-            return null;
-
-        // Get color of the reference item
-        String referenceColor = referenceItem.getColor() != null ? referenceItem.getColor().toLowerCase() : null;
-
-        // If we don't have a color, just return a random item
-        if (referenceColor == null) {
-            return getRandomItem(candidates);
+    private double colorCompatibility(String color1, String color2) {
+        if (color1.isEmpty() || color2.isEmpty()) {
+            return 0;
         }
+        if (color1.equals(color2)) {
+            return SAME_COLOR_SCORE;
+        }
+        if (COMPLEMENTARY_COLORS.getOrDefault(color1, Collections.emptyList()).contains(color2) ||
+                COMPLEMENTARY_COLORS.getOrDefault(color2, Collections.emptyList()).contains(color1)) {
+            return COMPLEMENTARY_SCORE;
+        }
+        return CLASH_SCORE;
+    }
 
-        // Try to find complementary colors
-        List<String> complementaryColors = COMPLEMENTARY_COLORS.getOrDefault(
-                referenceColor, Collections.emptyList());
-
-        // Filter items by complementary colors
-        List<Product> matchingItems = candidates.stream()
-                .filter(item -> item.getColor() != null &&
-                        (complementaryColors.contains(item.getColor().toLowerCase()) ||
-                                item.getColor().equalsIgnoreCase(referenceColor)))
-                .collect(Collectors.toList());
-
-        // If no matches, return random item
-        if (matchingItems.isEmpty()) {
-            return getRandomItem(candidates);
+    /**
+     * Scores how well an item matches the user's style preferences, using
+     * the same rule as the style rating
+     */
+    private double preferenceScore(Product product, User user) {
+        if (user.getStylePreferences() == null || product.getCategory() == null) {
+            return 0;
+        }
+        String category = product.getCategory().toLowerCase();
+        double score = 0;
+        for (StylePreference preference : user.getStylePreferences()) {
+            if (category.contains(preference.getValue().toLowerCase())) {
+                score += 0.25 * preference.getWeight();
+            }
         }
+        return score;
+    }
 
-        // Return a random matching item
-        return getRandomItem(matchingItems);
+    private String normalizeColor(String color) {
+        return color != null ? color.trim().toLowerCase() : "";
     }
 
     /**
@@ -266,15 +303,29 @@ public class OutfitRecommender {
      * Calculates a style rating for the outfit (0-5)
      */
     public double calculateOutfitRating(Outfit outfit, List<Product> allItems, User user) {
+        // Convert outfit to products
+        Map<String, Product> productsById = new HashMap<>();
+        for (Product product : allItems) {
+            productsById.put(product.getProductId(), product);
+        }
+        List<Product> outfitProducts = new ArrayList<>();
+        for (String productId : outfit.getProductIds()) {
+            Product product = productsById.get(productId);
+            if (product != null) {
+                outfitProducts.add(product);
+            }
+        }
+
+        return rateProducts(outfitProducts, user);
+    }
+
+    /**
+     * Calculates a style rating for the products of an outfit (0-5)
+     */
+    private double rateProducts(List<Product> outfitProducts, User user) {
         // Base rating
         double rating = 3.0;
 
-        // Convert outfit to products
-        List<Product> outfitProducts = outfit.getProductIds().stream()
-                .map(id -> findProductById(id, allItems))
-                .filter(Objects::nonNull)
-                .collect(Collectors.toList());
-
         // Check color coordination
         if (hasGoodColorCoordination(outfitProducts)) {
             rating += 0.5;
@@ -330,34 +381,4 @@ public class OutfitRecommender {
         // Consider coordinated if at least 1 complementary pair
         return complementaryPairs > 0;
     }
-
-    /**
-     * Finds a product by ID in a list
-     */
-    private Product findProductById(String productId, List<Product> products) {
-        return products.stream()
-                .filter(p -> p.getProductId().equals(productId))
-                .findFirst()
-                .orElse(null);
-    }
-
-    /**
-     * Checks if an outfit already exists in the recommendations
-     */
-    private boolean outfitExists(List<Outfit> outfits, Outfit newOutfit) {
-        // Compare by product IDs
-        Set<String> newOutfitProducts = newOutfit.getProductIds();
-
-        for (Outfit existing : outfits) {
-            Set<String> existingProducts = existing.getProductIds();
-
-            // If they have the same products (regardless of order), consider them duplicate
-            if (existingProducts.containsAll(newOutfitProducts) &&
-                    newOutfitProducts.containsAll(existingProducts)) {
-                return true;
-            }
-        }
-
-        return false;
-    }
 }
\ No newline at end of file
@@ -0,0 +1,405 @@
+package com.fashionstore.ai;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Top-k branch-and-bound search for the best-scoring outfits, picking one
+ * item per slot (top, bottom, shoes, ...). Optional slots may also be left
+ * empty.
+ *
+ * An outfit's score is the sum of each item's own score plus the
+ * compatibility of every pair of items in it. Pair compatibility only depends
+ * on the items' colour classes, so it is precomputed once as a small matrix
+ * and every pair score is a lookup. Each slot's items are grouped by colour
+ * class and sorted by their own score, so whole groups can be cut off as
+ * soon as their upper bound cannot beat the k-th best outfit found so far.
+ *
+ * The bound of a partial outfit is the best score its remaining slots can
+ * add. Since only colour classes matter for pairs, that is the best
+ * completion over the colour classes, using each class's best item. These
+ * bounds are memoized by slot and the colour classes chosen before it, so the
+ * search only expands partial outfits that can lead to a top-k outfit. To
+ * keep the memo small, a slot with more than MAX_BOUND_CLASSES colour classes
+ * has its smallest ones merged for the bound, scoring them at the best of
+ * their members; the bound is then looser but still never too low.
+ *
+ * The search is deterministic: the same input always gives the same outfits
+ * in the same order, and outfits with equal scores keep the order in which
+ * they were found. It gives up after MAX_NODES steps, returning the best
+ * outfits found until then marked as truncated, so its running time is
+ * bounded even for pathological inputs.
+ */
+class OutfitSearch {
+
+    static final int NONE = -1;
+
+    // Scores closer than this are treated as equal
+    private static final double EPSILON = 1e-9;
+    private static final long MAX_NODES = 500_000;
+    private static final int MAX_BOUND_CLASSES = 24;
+
+    /**
+     * An outfit found by the search.
+     */
+    static final class Result {
+        private final int[] items;
+        private final double score;
+        private final long sequence;
+
+        Result(int[] items, double score, long sequence) {
+            this.items = items;
+            this.score = score;
+            this.sequence = sequence;
+        }
+
+        /**
+         * @return the index of the chosen item in each slot, or NONE
+         */
+        int[] getItems() {
+            return items.clone();
+        }
+
+        double getScore() {
+            return score;
+        }
+    }
+
+    /**
+     * The outfits found by one search, best first.
+     */
+    static final class Results {
+        private final List<Result> outfits;
+        private final boolean truncated;
+
+        Results(List<Result> outfits, boolean truncated) {
+            this.outfits = outfits;
+            this.truncated = truncated;
+        }
+
+        List<Result> getOutfits() {
+            return outfits;
+        }
+
+        /**
+         * @return true if the search stopped after MAX_NODES steps, in which
+         *         case better outfits than these may exist
+         */
+        boolean isTruncated() {
+            return truncated;
+        }
+    }
+
+    private final int slotCount;
+    private final boolean[] optional;
+    private final double[][] compatibility;
+    private final double[][] itemScores;
+    private final int[][] itemColors;
+
+    // Per slot: the colour classes present, and their items, best first
+    private final int[][] slotColors;
+    private final int[][][] slotItems;
+    // Per slot and colour class: the best item score
+    private final double[][] bestItemScore;
+
+    // Per slot: the bound class of each colour group, and per bound class
+    // its best item score
+    private final int[][] boundClass;
+    private final double[][] boundClassScore;
+    // Per pair of slots, earlier first: the best compatibility of two bound classes
+    private final double[][][][] boundCompatibility;
+    // Per slot: the memo index step of its bound class; the class count means none
+    private final int[] boundStride;
+    // Completion bounds by slot and the bound classes chosen before it (NaN until computed)
+    private final double[][] completionBounds;
+
+    // Search state; colour and bound classes are NONE for empty slots
+    private final int[] chosenItems;
+    private final int[] chosenColors;
+    private final int[] chosenBoundClasses;
+    private PriorityQueue<Result> best;
+    private int limit;
+    private long nodes;
+    private long found;
+
+    /**
+     * @param itemColors    per slot, the colour class of each item
+     * @param itemScores    per slot, each item's own score
+     * @param optional      per slot, whether it may be left empty
+     * @param compatibility score of a pair of colour classes; must be symmetric
+     */
+    OutfitSearch(int[][] itemColors, double[][] itemScores, boolean[] optional, double[][] compatibility) {
+        this.slotCount = itemColors.length;
+        this.itemColors = itemColors;
+        this.itemScores = itemScores;
+        this.optional = optional;
+        this.compatibility = compatibility;
+
+        slotColors = new int[slotCount][];
+        slotItems = new int[slotCount][][];
+        bestItemScore = new double[slotCount][compatibility.length];
+        boundClass = new int[slotCount][];
+        boundClassScore = new double[slotCount][];
+        for (int slot = 0; slot < slotCount; slot++) {
+            groupByColor(slot);
+            assignBoundClasses(slot);
+        }
+
+        boundCompatibility = new double[slotCount][slotCount][][];
+        for (int earlier = 0; earlier < slotCount; earlier++) {
+            for (int later = earlier + 1; later < slotCount; later++) {
+                boundCompatibility[earlier][later] = boundClassCompatibility(earlier, later);
+            }
+        }
+
+        boundStride = new int[slotCount];
+        completionBounds = new double[slotCount][];
+        int stride = 1;
+        for (int slot = 0; slot < slotCount; slot++) {
+            boundStride[slot] = stride;
+            completionBounds[slot] = new double[stride];
+            Arrays.fill(completionBounds[slot], Double.NaN);
+            stride *= boundClassScore[slot].length + 1;
+        }
+
+        chosenItems = new int[slotCount];
+        chosenColors = new int[slotCount];
+        chosenBoundClasses = new int[slotCount];
+    }
+
+    /**
+     * Finds the k best outfits. Required slots without items make the search
+     * come back empty.
+     *
+     * @return the outfits, best first, and whether the search was cut short
+     */
+    Results topK(int k) {
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (k <= 0 || (!optional[slot] && slotColors[slot].length == 0)) {
+                return new Results(Collections.emptyList(), false);
+            }
+        }
+
+        // Worst at the head: lowest score, and the later found of equal scores
+        best = new PriorityQueue<>(Comparator.comparingDouble((Result r) -> r.score)
+                .thenComparing(Comparator.comparingLong((Result r) -> r.sequence).reversed()));
+        limit = k;
+        nodes = 0;
+        found = 0;
+        search(0, 0, 0);
+
+        List<Result> results = new ArrayList<>(best);
+        results.sort(Comparator.comparingDouble((Result r) -> -r.score)
+                .thenComparingLong(r -> r.sequence));
+        best = null;
+        return new Results(results, nodes > MAX_NODES);
+    }
+
+    /**
+     * @param prefix the memo index of the bound classes chosen before the slot
+     */
+    private void search(int slot, double score, int prefix) {
+        if (slot == slotCount) {
+            offer(score);
+            return;
+        }
+        if (++nodes > MAX_NODES) {
+            return;
+        }
+
+        // For each colour class here: its compatibility with the items chosen
+        // so far, and the best outfit score it can lead to
+        int[] colors = slotColors[slot];
+        double[] pairs = new double[colors.length];
+        double[] upper = new double[colors.length];
+        Integer[] order = new Integer[colors.length];
+        for (int i = 0; i < colors.length; i++) {
+            int bound = boundClass[slot][i];
+            chosenBoundClasses[slot] = bound;
+            pairs[i] = chosenCompatibility(colors[i], slot);
+            upper[i] = score + bestItemScore[slot][colors[i]] + pairs[i]
+                    + completionBound(slot + 1, prefix + bound * boundStride[slot]);
+            order[i] = i;
+        }
+        // Most promising colour first; ties keep the wardrobe order
+        Arrays.sort(order, (a, b) -> Double.compare(upper[b], upper[a]));
+
+        for (int i : order) {
+            if (!beats(upper[i])) {
+                // Sorted, so no later colour class can do better
+                break;
+            }
+            int color = colors[i];
+            double rest = upper[i] - score - bestItemScore[slot][color] - pairs[i];
+            chosenColors[slot] = color;
+            chosenBoundClasses[slot] = boundClass[slot][i];
+            for (int item : slotItems[slot][i]) {
+                double gain = itemScores[slot][item] + pairs[i];
+                if (!beats(score + gain + rest)) {
+                    // Sorted by item score, so the rest of this class is worse
+                    break;
+                }
+                chosenItems[slot] = item;
+                search(slot + 1, score + gain, prefix + boundClass[slot][i] * boundStride[slot]);
+            }
+        }
+
+        if (optional[slot]) {
+            chosenItems[slot] = NONE;
+            chosenColors[slot] = NONE;
+            chosenBoundClasses[slot] = NONE;
+            int next = prefix + boundClassScore[slot].length * boundStride[slot];
+            if (beats(score + completionBound(slot + 1, next))) {
+                search(slot + 1, score, next);
+            }
+        }
+    }
+
+    /**
+     * @param prefix the memo index of the bound classes chosen before the slot
+     * @return an upper bound of what the slots from this one on can add to
+     *         the bound classes chosen before it
+     */
+    private double completionBound(int slot, int prefix) {
+        if (slot == slotCount) {
+            return 0;
+        }
+        double[] memo = completionBounds[slot];
+        if (!Double.isNaN(memo[prefix])) {
+            return memo[prefix];
+        }
+
+        // The best completion over bound classes, each with its best item
+        int classes = boundClassScore[slot].length;
+        double bound = Double.NEGATIVE_INFINITY;
+        if (optional[slot]) {
+            chosenBoundClasses[slot] = NONE;
+            bound = completionBound(slot + 1, prefix + classes * boundStride[slot]);
+        }
+        for (int c = 0; c < classes; c++) {
+            double value = boundClassScore[slot][c];
+            for (int earlier = 0; earlier < slot; earlier++) {
+                if (chosenBoundClasses[earlier] != NONE) {
+                    value += boundCompatibility[earlier][slot][chosenBoundClasses[earlier]][c];
+                }
+            }
+            chosenBoundClasses[slot] = c;
+            bound = Math.max(bound, value + completionBound(slot + 1, prefix + c * boundStride[slot]));
+        }
+        memo[prefix] = bound;
+        return bound;
+    }
+
+    /**
+     * @return the compatibility of a colour class with the colour classes
+     *         chosen in the slots before the given one
+     */
+    private double chosenCompatibility(int color, int slot) {
+        double sum = 0;
+        for (int earlier = 0; earlier < slot; earlier++) {
+            if (chosenColors[earlier] != NONE) {
+                sum += compatibility[color][chosenColors[earlier]];
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * @return true if an outfit with this score would make the top k
+     */
+    private boolean beats(double score) {
+        return best.size() < limit || score > best.peek().score + EPSILON;
+    }
+
+    private void offer(double score) {
+        if (!beats(score)) {
+            return;
+        }
+        best.add(new Result(chosenItems.clone(), score, found++));
+        if (best.size() > limit) {
+            best.poll();
+        }
+    }
+
+    private void groupByColor(int slot) {
+        int[] colors = itemColors[slot];
+        double[] scores = itemScores[slot];
+
+        // Colour classes in order of first appearance
+        List<List<Integer>> groups = new ArrayList<>();
+        int[] groupOf = new int[compatibility.length];
+        Arrays.fill(groupOf, -1);
+        List<Integer> groupColors = new ArrayList<>();
+        for (int item = 0; item < colors.length; item++) {
+            int color = colors[item];
+            if (groupOf[color] < 0) {
+                groupOf[color] = groups.size();
+                groups.add(new ArrayList<>());
+                groupColors.add(color);
+            }
+            groups.get(groupOf[color]).add(item);
+        }
+
+        slotColors[slot] = new int[groups.size()];
+        slotItems[slot] = new int[groups.size()][];
+        for (int g = 0; g < groups.size(); g++) {
+            List<Integer> group = groups.get(g);
+            // Best item first; ties keep the wardrobe order
+            group.sort((a, b) -> Double.compare(scores[b], scores[a]));
+
+            int color = groupColors.get(g);
+            slotColors[slot][g] = color;
+            slotItems[slot][g] = group.stream().mapToInt(Integer::intValue).toArray();
+            bestItemScore[slot][color] = scores[group.get(0)];
+        }
+    }
+
+    /**
+     * Gives each colour group of a slot its own bound class, except that
+     * beyond MAX_BOUND_CLASSES the smallest groups share the last class.
+     */
+    private void assignBoundClasses(int slot) {
+        int groups = slotColors[slot].length;
+        Integer[] bySize = new Integer[groups];
+        for (int g = 0; g < groups; g++) {
+            bySize[g] = g;
+        }
+        // Largest groups first; ties keep the wardrobe order
+        Arrays.sort(bySize, (a, b) -> Integer.compare(slotItems[slot][b].length, slotItems[slot][a].length));
+
+        int classes = Math.min(groups, MAX_BOUND_CLASSES);
+        boundClass[slot] = new int[groups];
+        boundClassScore[slot] = new double[classes];
+        Arrays.fill(boundClassScore[slot], Double.NEGATIVE_INFINITY);
+        for (int rank = 0; rank < groups; rank++) {
+            int g = bySize[rank];
+            int c = Math.min(rank, classes - 1);
+            boundClass[slot][g] = c;
+            boundClassScore[slot][c] = Math.max(boundClassScore[slot][c], bestItemScore[slot][slotColors[slot][g]]);
+        }
+    }
+
+    /**
+     * @return the best compatibility of any two colour groups in each pair of
+     *         bound classes of two slots
+     */
+    private double[][] boundClassCompatibility(int earlier, int later) {
+        double[][] matrix = new double[boundClassScore[earlier].length][boundClassScore[later].length];
+        for (double[] row : matrix) {
+            Arrays.fill(row, Double.NEGATIVE_INFINITY);
+        }
+        for (int g = 0; g < slotColors[earlier].length; g++) {
+            for (int h = 0; h < slotColors[later].length; h++) {
+                int a = boundClass[earlier][g];
+                int b = boundClass[later][h];
+                matrix[a][b] = Math.max(matrix[a][b],
+                        compatibility[slotColors[earlier][g]][slotColors[later][h]]);
+            }
+        }
+        return matrix;
+    }
+}
@@ -2,6 +2,8 @@ package com.fashionstore.application;
 
 import com.fashionstore.models.User;
 import com.fashionstore.storage.DataManager;
+import com.fashionstore.ui.components.BodyCanvas;
+import com.fashionstore.utils.ImageManager;
 import com.fashionstore.utils.SceneManager;
 import javafx.application.Application;
 import javafx.stage.Stage;
@@ -22,6 +24,8 @@ public class FashionStoreApp extends Application {
         // Initialize the data manager and load data
         dataManager = new DataManager();
         dataManager.loadAllData();
+        // Stored images are kept only while some product references them
+        ImageManager.trackReferences(dataManager.getAllProducts());
 
         // Print all registered users for debugging
         System.out.println("========= REGISTERED USERS =========");
@@ -34,6 +38,9 @@ public class FashionStoreApp extends Application {
         // Setup auto-save timer
         setupAutoSave();
 
+        // Draw the outfit builder's silhouette before anyone opens it
+        BodyCanvas.prewarmSilhouette();
+
         // Configure the primary stage
         primaryStage.setTitle("Fashion Store");
 
@@ -66,7 +73,9 @@ public class FashionStoreApp extends Application {
         // Add a shutdown hook to save data on exit
         Runtime.getRuntime().addShutdownHook(new Thread(() -> {
             System.out.println("Saving data before shutdown...");
-            dataManager.saveAllData();
+            if (!dataManager.shutdown()) {
+                System.err.println("Some changes could not be saved before shutdown");
+            }
         }));
     }
 
@@ -0,0 +1,50 @@
+package com.fashionstore.application;
+
+import com.fashionstore.models.Product;
+import com.fashionstore.storage.DataManager;
+import com.fashionstore.utils.ImageManager;
+
+import java.io.IOException;
+
+/**
+ * Command that makes the missing thumbnails of all existing products, for
+ * images uploaded before thumbnails were made on upload. Run it with the
+ * application's classpath and database configuration:
+ *
+ * java com.fashionstore.application.ThumbnailBackfill
+ *
+ * Products that already have thumbnails are skipped, so it is safe to run
+ * again after an interruption. Products whose image cannot be read are
+ * reported and skipped.
+ */
+class ThumbnailBackfill {
+
+    public static void main(String[] args) {
+        DataManager dataManager = new DataManager();
+        dataManager.loadAllData();
+        try {
+            int created = 0;
+            for (Product product : dataManager.getAllProducts()) {
+                if (product.hasThumbnails() || product.getImagePath() == null) {
+                    continue;
+                }
+                try {
+                    ImageManager.Thumbnails thumbnails = ImageManager.createThumbnails(product.getImagePath());
+                    dataManager.setProductThumbnails(product.getProductId(), thumbnails.getSourcePath(),
+                            thumbnails.getCardPath(), thumbnails.getChipPath(), thumbnails.getPreviewPath());
+                    created++;
+                } catch (IOException e) {
+                    System.err.println("Skipping thumbnails for product " + product.getProductId() + ": "
+                            + e.getMessage());
+                }
+            }
+            System.out.println("Created thumbnails for " + created + " of "
+                    + dataManager.getAllProducts().size() + " products");
+        } finally {
+            // Writes the updated products before exiting
+            if (!dataManager.shutdown()) {
+                System.err.println("Some thumbnail paths could not be saved; run the backfill again");
+            }
+        }
+    }
+}
@@ -5,6 +5,7 @@ import com.fashionstore.models.Product;
 import com.fashionstore.models.User;
 import com.fashionstore.models.Outfit;
 import com.fashionstore.storage.DataManager;
+import com.fashionstore.utils.ImageManager;
 import com.fashionstore.utils.SceneManager;
 import com.fashionstore.utils.WindowManager;
 import com.fashionstore.utils.PasswordUtil;
@@ -68,9 +69,6 @@ public class AdminController {
         // Get data manager from main application
         dataManager = FashionStoreApp.getDataManager();
 
-        // Just to be safe, reload all data
-        dataManager.loadAllData();
-
         // Initialize table columns
         nameColumn.setCellValueFactory(new PropertyValueFactory<>("name"));
         categoryColumn.setCellValueFactory(new PropertyValueFactory<>("category"));
@@ -206,9 +204,8 @@ public class AdminController {
                 // Show dialog and wait for it to close
                 stage.showAndWait();
 
-                // After dialog closes, force refresh
+                // After dialog closes, show the edits (already applied to the cache)
                 System.out.println("Dialog closed, refreshing data...");
-                dataManager.loadAllData(); // Reload all data from database
                 refreshProductTable();
 
                 // Also refresh other views
@@ -236,11 +233,10 @@ public class AdminController {
                         System.out.println("Deleting product: " + selected.getProductId() + " - " + selected.getName());
 
                         try {
-                            // Delete the product
+                            // Delete the product, and its images unless other products share them
                             dataManager.deleteProduct(selected.getProductId());
-
-                            // Reload all data from database to ensure consistency
-                            dataManager.loadAllData();
+                            ImageManager.releaseReferences(selected.getProductId(),
+                                    dataManager::getReferencedImagePaths);
 
                             // Refresh views
                             refreshProductTable();
@@ -284,7 +280,9 @@ public class AdminController {
 
     @FXML
     public void refreshView() {
+        // Explicit admin request, so do a full reload from the database
         dataManager.loadAllData();
+        ImageManager.trackReferences(dataManager.getAllProducts());
         refreshProductTable();
         setStatus("Data refreshed from database");
     }
@@ -1276,22 +1274,31 @@ public class AdminController {
         VBox content = new VBox(20);
         content.setPadding(new Insets(20));
 
-        // Get projection data
-        Map<String, Double> projectionData = com.fashionstore.utils.AnalyticsService.getRevenueProjection();
+        // Project from the last year of recorded sales
+        Map<String, Double> projectionData = com.fashionstore.utils.AnalyticsService
+                .getRevenueProjection(dataManager.getMonthlyRevenue(12));
 
         // Create chart title
         Label projectionTitle = new Label("Revenue Forecast (Next 6 Months)");
         projectionTitle.setStyle("-fx-font-size: 18px; -fx-font-weight: bold;");
 
-        // Create line chart for projections
-        LineChart<String, Number> projectionChart = createLineChart(
-                projectionData,
-                "Month",
-                "Projected Revenue ($)");
-        projectionChart.setMinHeight(400);
-        projectionChart.setTitle("Monthly Revenue Projection");
-
-        content.getChildren().addAll(projectionTitle, projectionChart);
+        if (projectionData.isEmpty()) {
+            // Too little sales history to fit a trend
+            Label noProjection = new Label("Not enough sales history yet: a forecast needs two complete months "
+                    + "since the first sale.");
+            noProjection.setWrapText(true);
+            content.getChildren().addAll(projectionTitle, noProjection);
+        } else {
+            // Create line chart for projections
+            LineChart<String, Number> projectionChart = createLineChart(
+                    projectionData,
+                    "Month",
+                    "Projected Revenue ($)");
+            projectionChart.setMinHeight(400);
+            projectionChart.setTitle("Monthly Revenue Projection");
+
+            content.getChildren().addAll(projectionTitle, projectionChart);
+        }
 
         // Add recommendations section
         Label recTitle = new Label("Inventory Recommendations");
@@ -1608,6 +1615,7 @@ public class AdminController {
             dataManager.addProduct(product);
             setStatus("New product \"" + product.getName() + "\" added successfully");
         }
+        ImageManager.trackReferences(product);
         dataManager.saveAllData(); // Explicit save after addition/modification
         refreshProductTable();
 
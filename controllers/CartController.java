@@ -117,6 +117,8 @@ public class CartController implements Initializable {
     private Callback<TableColumn<ShoppingCart.CartItem, Integer>, TableCell<ShoppingCart.CartItem, Integer>> createQuantityCellFactory() {
         return column -> new TableCell<ShoppingCart.CartItem, Integer>() {
             private final Spinner<Integer> spinner = new Spinner<>(1, 100, 1);
+            // Set while the quantity is set from code rather than by the user
+            private boolean settingValue = false;
 
             {
                 spinner.setEditable(true);
@@ -128,7 +130,7 @@ public class CartController implements Initializable {
                 
                 // Add proper change listener
                 spinner.valueProperty().addListener((obs, oldValue, newValue) -> {
-                    if (newValue == null || oldValue == null || oldValue.equals(newValue)) {
+                    if (newValue == null || oldValue == null || oldValue.equals(newValue) || settingValue) {
                         return; // No actual change
                     }
                     
@@ -144,20 +146,39 @@ public class CartController implements Initializable {
                                           (item.getProduct() != null ? item.getProduct().getName() : "null") + 
                                           " from " + oldValue + " to " + newValue);
                         
-                        // Update the item quantity
-                        item.setQuantity(newValue);
-                        
-                        // Save the cart state
-                        dataManager.saveCart(cart);
-                        
-                        // Update the UI
-                        javafx.application.Platform.runLater(() -> {
-                            // Update subtotals and other UI elements
-                            updateCart();
-                            
-                            // Force refresh of the table to update subtotals
-                            getTableView().refresh();
-                        });
+                        // Hold stock for the new quantity in the background, or go
+                        // back if there is not enough. The spinner stays disabled
+                        // until the hold is settled.
+                        String productId = item.getProduct().getProductId();
+                        spinner.setDisable(true);
+                        dataManager.reserveForCartAsync(cart, productId, newValue)
+                                .whenComplete((reserved, error) -> javafx.application.Platform.runLater(() -> {
+                                    spinner.setDisable(false);
+                                    if (error != null || !reserved) {
+                                        if (error != null) {
+                                            System.err.println("Error reserving " + productId + ": " + error.getMessage());
+                                        }
+                                        SceneManager.showAlert("Not Enough Stock",
+                                                "Only " + (oldValue + dataManager.getAvailableStock(productId))
+                                                        + " of this item are available.");
+                                        settingValue = true;
+                                        spinner.getValueFactory().setValue(oldValue);
+                                        settingValue = false;
+                                        return;
+                                    }
+
+                                    // Update the item quantity
+                                    item.setQuantity(newValue);
+
+                                    // Save the cart state
+                                    dataManager.saveCart(cart);
+
+                                    // Update subtotals and other UI elements
+                                    updateCart();
+
+                                    // Force refresh of the table to update subtotals
+                                    getTableView().refresh();
+                                }));
                     }
                 });
             }
@@ -174,7 +195,9 @@ public class CartController implements Initializable {
                 }
                 
                 // Set the current quantity value
+                settingValue = true;
                 spinner.getValueFactory().setValue(quantity);
+                settingValue = false;
                 
                 // Set the spinner as the cell's graphic
                 setGraphic(spinner);
@@ -325,6 +348,7 @@ public class CartController implements Initializable {
             
             if (removed) {
                 System.out.println("CartController.removeFromCart: Item successfully removed");
+                dataManager.reserveForCartAsync(cart, productId, 0);
                 
                 // Save the updated cart
                 dataManager.saveCart(cart);
@@ -345,6 +369,7 @@ public class CartController implements Initializable {
                 // Try removal again
                 if (cart.removeItem(productId)) {
                     System.out.println("CartController.removeFromCart: Second attempt successful");
+                    dataManager.reserveForCartAsync(cart, productId, 0);
                     dataManager.saveCart(cart);
                     
                     // Update UI
@@ -381,10 +406,16 @@ public class CartController implements Initializable {
         SceneManager.showConfirmationAlert("Clear Cart",
                 "Are you sure you want to remove all items?",
                 () -> {
-                    // On confirm
+                    // On confirm; the holds are released in the background
                     cart.clear();
-                    cartItemsTable.getItems().clear();
-                    updateCart();
+                    dataManager.releaseCartStockAsync(cart)
+                            .whenComplete((done, error) -> javafx.application.Platform.runLater(() -> {
+                                if (error != null) {
+                                    System.err.println("Error releasing cart stock: " + error.getMessage());
+                                }
+                                cartItemsTable.getItems().clear();
+                                updateCart();
+                            }));
                 },
                 null); // No action on cancel
     }
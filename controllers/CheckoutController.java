@@ -1,9 +1,11 @@
 package com.fashionstore.controllers;
 
 import com.fashionstore.application.FashionStoreApp;
+import com.fashionstore.models.Order;
 import com.fashionstore.models.ShoppingCart;
 import com.fashionstore.models.Product;
 import com.fashionstore.storage.DataManager;
+import com.fashionstore.storage.OrderResult;
 import com.fashionstore.utils.SceneManager;
 import com.fashionstore.utils.WindowManager;
 import javafx.fxml.FXML;
@@ -397,6 +399,9 @@ public class CheckoutController implements Initializable {
 
         // Process the order based on payment method
         String confirmationMessage = processOrder(paymentMethod);
+        if (confirmationMessage == null) {
+            return;
+        }
 
         // Show success message and close the checkout window
         SceneManager.showAlert("Order Placed", confirmationMessage);
@@ -404,8 +409,33 @@ public class CheckoutController implements Initializable {
         stage.close();
     }
 
+    /**
+     * Places the order and builds the confirmation message.
+     *
+     * @return the confirmation message, or null if the order could not be placed
+     */
     private String processOrder(String paymentMethod) {
-        StringBuilder confirmation = new StringBuilder("Your order has been successfully placed!\n\n");
+        if (dataManager.getCurrentUser() == null) {
+            SceneManager.showErrorAlert("Order Failed", "Please log in to place an order.");
+            return null;
+        }
+
+        // Record the order, decrement stock, add the items to the wardrobe and
+        // clear the cart in one transaction
+        OrderResult result = dataManager.placeOrder(dataManager.getCurrentUser().getUserId(), paymentMethod);
+        if (!result.isPlaced()) {
+            StringBuilder error = new StringBuilder(result.getMessage());
+            for (Product product : result.getUnavailableProducts()) {
+                error.append("\n- ").append(product.getName())
+                        .append(" (").append(product.getStockQuantity()).append(" left)");
+            }
+            SceneManager.showErrorAlert("Order Failed", error.toString());
+            return null;
+        }
+
+        Order order = result.getOrder();
+        StringBuilder confirmation = new StringBuilder("Your order has been successfully placed!\n\n")
+                .append("Order Number: ").append(order.getOrderId()).append("\n");
 
         if ("Credit Card".equals(paymentMethod)) {
             confirmation.append("Payment Method: Credit Card (ending with ")
@@ -421,41 +451,17 @@ public class CheckoutController implements Initializable {
                     .append("Please bring your order confirmation and ID when picking up.\n");
         }
 
-        confirmation.append("\nOrder Total: ").append(currencyFormat.format(cart.getTotalPrice()));
+        confirmation.append("\nOrder Total: ").append(currencyFormat.format(order.getTotalAmount()));
 
-        // Add purchased items to wardrobe and decrease stock
-        if (dataManager.getCurrentUser() != null) {
-            for (ShoppingCart.CartItem item : cart.getItems()) {
-                Product product = item.getProduct();
-                int quantity = item.getQuantity();
-
-                // Decrease product stock for each item in the cart based on quantity
-                int currentStock = product.getStockQuantity();
-                int newStock = Math.max(0, currentStock - quantity);
-                product.setStockQuantity(newStock);
-
-                // Update the product in database to reflect stock change
-                dataManager.updateProduct(product);
-
-                // Add each product to the user's wardrobe
-                dataManager.getCurrentUser().addToWardrobe(product.getProductId());
-            }
-
-            // Append purchased items to confirmation
-            confirmation.append("\n\nItems added to your wardrobe:");
-            for (ShoppingCart.CartItem item : cart.getItems()) {
-                confirmation.append("\n- ").append(item.getProduct().getName());
-                if (item.getQuantity() > 1) {
-                    confirmation.append(" (").append(item.getQuantity()).append(")");
-                }
+        // Append purchased items to confirmation
+        confirmation.append("\n\nItems added to your wardrobe:");
+        for (Order.Item item : order.getItems()) {
+            confirmation.append("\n- ").append(item.getProductName());
+            if (item.getQuantity() > 1) {
+                confirmation.append(" (").append(item.getQuantity()).append(")");
             }
         }
 
-        // Clear the cart
-        cart.clear();
-        dataManager.saveCart(cart);
-        dataManager.saveAllData();
-
         // Update cart counter in HomeController
         updateHomeControllerCart();
 
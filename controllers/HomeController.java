@@ -4,31 +4,33 @@ import com.fashionstore.application.FashionStoreApp;
 import com.fashionstore.models.Product;
 import com.fashionstore.models.ShoppingCart;
 import com.fashionstore.models.User;
+import com.fashionstore.storage.ChangeSet;
 import com.fashionstore.storage.DataManager;
-import com.fashionstore.ui.components.StoreItemView;
+import com.fashionstore.storage.PriceRange;
+import com.fashionstore.ui.components.ProductGrid;
 import com.fashionstore.utils.SceneManager;
 import com.fashionstore.utils.WindowManager;
 
-import javafx.animation.KeyFrame;
-import javafx.animation.KeyValue;
-import javafx.animation.Timeline;
+import javafx.animation.PauseTransition;
 import javafx.fxml.FXML;
 import javafx.fxml.Initializable;
 import javafx.scene.control.Button;
 import javafx.scene.control.ComboBox;
 import javafx.scene.control.Label;
 import javafx.scene.control.TextField;
-import javafx.scene.layout.FlowPane;
 import javafx.stage.Stage;
 import javafx.application.Platform;
 import javafx.util.Duration;
 
-import java.math.BigDecimal;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.ResourceBundle;
-import java.util.stream.Collectors;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public class HomeController implements Initializable {
     @FXML
@@ -52,12 +54,29 @@ public class HomeController implements Initializable {
     @FXML
     private Button searchButton;
     @FXML
-    private FlowPane storeItemsPane;
+    private ProductGrid storeItemsPane;
     @FXML
     private Label itemCountLabel;
 
     private DataManager dataManager;
     private User currentUser;
+    private long dataVersion; // DataManager version the displayed items reflect
+
+    // Live search. Typing is debounced, queries run on a background thread and
+    // only the newest query's results are shown.
+    private static final Duration SEARCH_DEBOUNCE = Duration.millis(200);
+    // Ranked results past this are too far down to be worth showing
+    private static final int MAX_RANKED_RESULTS = 500;
+    private static final ExecutorService searchExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "fashionstore-search");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final PauseTransition searchDebounce = new PauseTransition(SEARCH_DEBOUNCE);
+    private Future<?> pendingSearch;
+    private long searchGeneration = 0; // Only touched on the FX thread
+    // Products whose stock hold is still being taken; further clicks on them are ignored
+    private final Set<String> purchasesInProgress = new HashSet<>();
 
     @Override
     public void initialize(URL url, ResourceBundle rb) {
@@ -79,16 +98,20 @@ public class HomeController implements Initializable {
         userLabel.setText("Welcome, " + currentUser.getUsername());
 
         // Get only visible products directly
+        dataVersion = dataManager.getDataVersion();
         List<Product> storeItems = dataManager.getVisibleProducts();
         if (storeItems.isEmpty()) {
             storeItems = new ArrayList<>();
         }
 
+        storeItemsPane.setOnPurchase(this::handlePurchase);
         setupFilters(storeItems);
         displayStoreItems(storeItems);
 
         categoryFilter.setOnAction(e -> handleSearch());
         priceFilter.setOnAction(e -> handleSearch());
+        searchDebounce.setOnFinished(e -> handleSearch());
+        searchField.textProperty().addListener((obs, oldText, newText) -> searchDebounce.playFromStart());
 
         Platform.runLater(this::maximizeWindow);
         Platform.runLater(this::setupResponsiveLayout);
@@ -96,14 +119,10 @@ public class HomeController implements Initializable {
     }
 
     private void setupResponsiveLayout() {
-        storeItemsPane.prefWrapLengthProperty().bind(
-                storeItemsPane.widthProperty());
-
         storeItemsPane.getScene().widthProperty().addListener((obs, oldVal, newVal) -> {
             double width = newVal.doubleValue();
             if (width > 1600) {
                 storeItemsPane.setHgap(25);
-                storeItemsPane.setPrefWidth(width - 40);
             } else {
                 storeItemsPane.setHgap(20);
             }
@@ -144,56 +163,17 @@ public class HomeController implements Initializable {
         }
     }
 
+    /**
+     * Shows the given products. The grid only creates cards for the rows in
+     * view, so even a large result is cheap to show.
+     */
     private void displayStoreItems(List<Product> items) {
-        storeItemsPane.getChildren().clear();
+        storeItemsPane.setItems(items);
         itemCountLabel.setText("Showing " + items.size() + " items");
-
-        // Prepare all item views
-        List<StoreItemView> itemViews = new ArrayList<>();
-        for (Product item : items) {
-            StoreItemView itemView = new StoreItemView(item);
-            itemView.setOnPurchase(e -> handlePurchase(item));
-            itemView.setOpacity(0);
-            itemViews.add(itemView);
-        }
-
-        // Add all items to the flow pane first (invisible)
-        storeItemsPane.getChildren().addAll(itemViews);
-
-        // Create timeline for staggered animation
-        Timeline timeline = new Timeline();
-
-        // Add keyframes for each item with staggered delays
-        for (int i = 0; i < itemViews.size(); i++) {
-            StoreItemView itemView = itemViews.get(i);
-
-            // Calculate delay based on position (capped at reasonable max)
-            double delayMs = Math.min(i, 20) * 40;
-
-            // Add keyframe for fade-in and slight upward movement
-            KeyFrame kf = new KeyFrame(
-                    Duration.millis(delayMs),
-                    e -> {
-                        // Add animation class that includes transform and other effects
-                        itemView.getStyleClass().add("item-fade-in");
-                        // Animate opacity directly
-                        Timeline itemTimeline = new Timeline(
-                                new KeyFrame(Duration.ZERO, new KeyValue(itemView.opacityProperty(), 0)),
-                                new KeyFrame(Duration.millis(400), new KeyValue(itemView.opacityProperty(), 1)));
-                        itemTimeline.play();
-                    });
-
-            timeline.getKeyFrames().add(kf);
-        }
-
-        // Play the timeline
-        timeline.play();
     }
 
     private void optimizeLayoutForMaximizedWindow() {
         storeItemsPane.getStyleClass().add("flow-pane-maximized");
-        storeItemsPane.prefWrapLengthProperty().bind(
-                storeItemsPane.widthProperty());
 
         storeItemsPane.widthProperty().addListener((obs, oldVal, newVal) -> {
             double width = newVal.doubleValue();
@@ -210,65 +190,67 @@ public class HomeController implements Initializable {
         });
     }
 
+    /**
+     * Runs the current search in the background. A search started while an
+     * earlier one is still queued or running supersedes it.
+     */
     @FXML
     private void handleSearch() {
-        String searchText = searchField.getText().toLowerCase();
-        String category = categoryFilter.getValue();
-        String priceRange = priceFilter.getValue();
-
-        // Start with only visible products
-        List<Product> allItems = dataManager.getVisibleProducts();
-        List<Product> filteredItems = new ArrayList<>(allItems);
-
-        if (searchText != null && !searchText.isEmpty()) {
-            filteredItems = filteredItems.stream()
-                    .filter(item -> (item.getName() != null && item.getName().toLowerCase().contains(searchText)) ||
-                            (item.getBrand() != null && item.getBrand().toLowerCase().contains(searchText)) ||
-                            (item.getDescription() != null && item.getDescription().toLowerCase().contains(searchText)))
-                    .collect(Collectors.toList());
-        }
+        searchDebounce.stop();
 
-        if (category != null && !category.equals("All Categories")) {
-            filteredItems = filteredItems.stream()
-                    .filter(item -> category.equals(item.getCategory()))
-                    .collect(Collectors.toList());
-        }
+        String text = searchField.getText();
+        String category = "All Categories".equals(categoryFilter.getValue()) ? null : categoryFilter.getValue();
+        PriceRange priceRange = PriceRange.fromLabel(priceFilter.getValue());
 
-        if (priceRange != null && !priceRange.equals("All Prices")) {
-            filteredItems = filteredItems.stream()
-                    .filter(item -> {
-                        BigDecimal price = item.getPrice();
-                        BigDecimal fifty = new BigDecimal("50.0");
-                        BigDecimal hundred = new BigDecimal("100.0");
-                        BigDecimal twoHundred = new BigDecimal("200.0");
-
-                        switch (priceRange) {
-                            case "Under $50":
-                                return price.compareTo(fifty) < 0;
-                            case "$50 - $100":
-                                return price.compareTo(fifty) >= 0 && price.compareTo(hundred) <= 0;
-                            case "$100 - $200":
-                                return price.compareTo(hundred) > 0 && price.compareTo(twoHundred) <= 0;
-                            case "Over $200":
-                                return price.compareTo(twoHundred) > 0;
-                            default:
-                                return true;
-                        }
-                    })
-                    .collect(Collectors.toList());
+        long generation = ++searchGeneration;
+        if (pendingSearch != null) {
+            pendingSearch.cancel(true);
         }
 
-        displayStoreItems(filteredItems);
+        // Only visible products are indexed as searchable. Typed text is
+        // matched typo-tolerantly and ranked; without text the catalogue is
+        // listed in its usual order.
+        boolean hasText = text != null && !text.trim().isEmpty();
+        pendingSearch = searchExecutor.submit(() -> {
+            List<Product> filteredItems = hasText
+                    ? dataManager.searchProductsFuzzy(text, category, priceRange, MAX_RANKED_RESULTS)
+                    : dataManager.searchProducts(text, category, priceRange);
+            Platform.runLater(() -> {
+                if (generation == searchGeneration) {
+                    displayStoreItems(filteredItems);
+                }
+            });
+        });
     }
 
     private void handlePurchase(Product product) {
-        // Check if item is in stock
-        if (product.getStockQuantity() <= 0) {
-            SceneManager.showAlert("Out of Stock",
-                    "Sorry, this item is currently out of stock.");
+        if (!purchasesInProgress.add(product.getProductId())) {
             return;
         }
 
+        ShoppingCart cart = dataManager.getCart(currentUser.getUserId());
+        int inCart = cart.getItems().stream()
+                .filter(item -> item.getProduct().getProductId().equals(product.getProductId()))
+                .mapToInt(ShoppingCart.CartItem::getQuantity)
+                .sum();
+
+        // Hold one more unit for this cart in the background; fails if nothing is left
+        dataManager.reserveForCartAsync(cart, product.getProductId(), inCart + 1)
+                .whenComplete((reserved, error) -> Platform.runLater(() -> {
+                    purchasesInProgress.remove(product.getProductId());
+                    if (error != null) {
+                        System.err.println("Error reserving " + product.getProductId() + ": " + error.getMessage());
+                        SceneManager.showErrorAlert("Error", "Could not add the item to your cart. Please try again.");
+                    } else if (!reserved) {
+                        SceneManager.showAlert("Out of Stock",
+                                "Sorry, this item is currently out of stock.");
+                    } else {
+                        addToCart(cart, product);
+                    }
+                }));
+    }
+
+    private void addToCart(ShoppingCart cart, Product product) {
         // Make sure the product has an image path before adding to cart
         if (product.getImagePath() == null || product.getImagePath().isEmpty()) {
             product.setImagePath("/images/default-product.jpg");
@@ -276,7 +258,6 @@ public class HomeController implements Initializable {
             dataManager.updateProduct(product);
         }
 
-        ShoppingCart cart = dataManager.getCart(currentUser.getUserId());
         cart.addItem(product);
         dataManager.saveCart(cart);
         dataManager.saveAllData();
@@ -334,10 +315,16 @@ public class HomeController implements Initializable {
 
     @FXML
     public void refreshView() {
-        // Reload products
-        List<Product> storeItems = dataManager.getVisibleProducts();
-        setupFilters(storeItems);
-        displayStoreItems(storeItems);
+        // Only rebuild if products changed since the items were last displayed
+        ChangeSet changes = dataManager.getChangesSince(dataVersion);
+        dataVersion = changes.getVersion();
+        if (!changes.hasProductChanges()) {
+            return;
+        }
+
+        // Reload products, keeping the current search
+        setupFilters(dataManager.getVisibleProducts());
+        handleSearch();
     }
 
     /**
@@ -12,6 +12,7 @@ import javafx.stage.Stage;
 
 import java.io.File;
 import java.math.BigDecimal;
+import java.util.concurrent.CompletableFuture;
 
 public class ItemAdderController {
 
@@ -40,8 +41,11 @@ public class ItemAdderController {
 
     private DataManager dataManager;
     private String selectedImagePath = null;
+    private CompletableFuture<ImageManager.Thumbnails> thumbnailTask = null; // Made while the form is filled in
     private String editingProductId;
     private String originalImagePath = null; // Store the original image path when editing
+    private int originalStock; // Stock and its version when editing started
+    private int originalStockVersion;
     private boolean isEditMode = false;
 
     @FXML
@@ -59,11 +63,11 @@ public class ItemAdderController {
 
     @FXML
     private void chooseImage(ActionEvent event) {
-        String tempId = "temp_" + System.currentTimeMillis();
-        String newImagePath = ImageManager.saveProductImageToCustomDir(tempId, "src/main/resources/images/");
+        String newImagePath = ImageManager.saveProductImage();
 
         if (newImagePath != null) {
             selectedImagePath = newImagePath;
+            thumbnailTask = ImageManager.createThumbnailsAsync(newImagePath);
             imageLabel.setText("Image selected");
             SceneManager.showAlert("Image Selected", "Image has been selected successfully.");
         } else {
@@ -101,12 +105,31 @@ public class ItemAdderController {
                 Product originalProduct = dataManager.getProduct(editingProductId);
                 if (originalProduct != null) {
                     product.setVisible(originalProduct.isVisible());
+                    if (product.getImagePath().equals(originalProduct.getImagePath())) {
+                        product.setThumbnailPaths(originalProduct.getCardThumbnailPath(),
+                                originalProduct.getChipThumbnailPath(), originalProduct.getPreviewThumbnailPath());
+                    }
+
+                    // Stock is saved separately, only if nobody changed it while editing
+                    if (product.getStockQuantity() != originalStock
+                            && !dataManager.updateStock(editingProductId, originalStockVersion,
+                                    product.getStockQuantity())) {
+                        originalStock = originalProduct.getStockQuantity();
+                        originalStockVersion = originalProduct.getVersion();
+                        stockField.setText(String.valueOf(originalStock));
+                        errorLabel.setText("Stock was changed by someone else and is now " + originalStock
+                                + ". Check it and save again.");
+                        errorLabel.setVisible(true);
+                        return;
+                    }
+                    product.syncStock(originalProduct.getStockQuantity(), originalProduct.getVersion());
                 }
 
                 System.out.println("Updating product: " + editingProductId);
                 System.out.println("Image path: " + product.getImagePath());
 
                 dataManager.updateProduct(product);
+                ImageManager.trackReferences(product);
                 SceneManager.showAlert("Success", "Product updated successfully!");
             } else {
                 // Make new product visible by default
@@ -114,9 +137,28 @@ public class ItemAdderController {
 
                 // Add as a new product
                 dataManager.addProduct(product);
+                ImageManager.trackReferences(product);
                 SceneManager.showAlert("Success", "Product added successfully!");
             }
 
+            // Record the thumbnails once they are made; until then views
+            // fall back to the uploaded image
+            if (thumbnailTask != null && selectedImagePath != null) {
+                String productId = product.getProductId();
+                thumbnailTask.whenComplete((thumbnails, error) -> {
+                    if (error != null) {
+                        System.err.println("Failed to create thumbnails for " + selectedImagePath + ": "
+                                + error.getMessage());
+                    } else {
+                        Product updated = dataManager.setProductThumbnails(productId, thumbnails.getSourcePath(),
+                                thumbnails.getCardPath(), thumbnails.getChipPath(), thumbnails.getPreviewPath());
+                        if (updated != null) {
+                            ImageManager.trackReferences(updated);
+                        }
+                    }
+                });
+            }
+
             // Save all data to ensure changes are persisted
             dataManager.saveAllData();
 
@@ -269,6 +311,8 @@ public class ItemAdderController {
 
         // Store the product ID for updating
         this.editingProductId = product.getProductId();
+        this.originalStock = product.getStockQuantity();
+        this.originalStockVersion = product.getVersion();
 
         // Store the original image path
         this.originalImagePath = product.getImagePath();
@@ -2,8 +2,10 @@ package com.fashionstore.controllers;
 
 import com.fashionstore.application.FashionStoreApp;
 import com.fashionstore.models.Product;
+import com.fashionstore.storage.ChangeSet;
 import com.fashionstore.storage.DataManager;
-import com.fashionstore.ui.components.StoreItemView;
+import com.fashionstore.storage.OrderResult;
+import com.fashionstore.ui.components.ProductGrid;
 import com.fashionstore.utils.SceneManager;
 import com.fashionstore.utils.WindowManager;
 
@@ -11,7 +13,6 @@ import javafx.fxml.FXML;
 import javafx.fxml.Initializable;
 import javafx.scene.control.ComboBox;
 import javafx.scene.control.Label;
-import javafx.scene.layout.FlowPane;
 
 import java.net.URL;
 import java.util.List;
@@ -21,7 +22,7 @@ import java.util.stream.Collectors;
 public class StoreViewController implements Initializable {
 
     @FXML
-    private FlowPane storeItemsPane;
+    private ProductGrid storeItemsPane;
     @FXML
     private ComboBox<String> categoryFilter;
     @FXML
@@ -29,6 +30,7 @@ public class StoreViewController implements Initializable {
 
     private DataManager dataManager;
     private List<Product> storeItems;
+    private long dataVersion; // DataManager version the displayed items reflect
 
     @Override
     public void initialize(URL url, ResourceBundle rb) {
@@ -39,9 +41,6 @@ public class StoreViewController implements Initializable {
             return;
         }
 
-        // Force reload all data to ensure we have the latest
-        dataManager.loadAllData();
-
         // Set ID and userData for window refresh support
         javafx.application.Platform.runLater(() -> {
             if (storeItemsPane.getScene() != null) {
@@ -51,9 +50,13 @@ public class StoreViewController implements Initializable {
         });
 
         // Load store items (only visible products)
+        dataVersion = dataManager.getDataVersion();
         storeItems = dataManager.getVisibleProducts();
         System.out.println("StoreViewController initialized with " + storeItems.size() + " products");
 
+        storeItemsPane.setMarkOutOfStock(true);
+        storeItemsPane.setOnPurchase(this::handlePurchase);
+
         // Set up filters
         setupFilters();
 
@@ -78,8 +81,6 @@ public class StoreViewController implements Initializable {
     }
 
     private void displayStoreItems() {
-        storeItemsPane.getChildren().clear();
-
         String category = categoryFilter.getValue();
 
         // Start with already-filtered visible products
@@ -92,17 +93,8 @@ public class StoreViewController implements Initializable {
                     .collect(Collectors.toList());
         }
 
-        for (Product item : filteredItems) {
-            StoreItemView itemView = new StoreItemView(item);
-
-            // Handle out-of-stock products
-            if (item.getStockQuantity() <= 0) {
-                itemView.markAsOutOfStock();
-            }
-
-            itemView.setOnPurchase(e -> handlePurchase(item));
-            storeItemsPane.getChildren().add(itemView);
-        }
+        // Out-of-stock products are marked by the grid
+        storeItemsPane.setItems(filteredItems);
 
         // Update item count if label exists
         if (itemCountLabel != null) {
@@ -122,29 +114,26 @@ public class StoreViewController implements Initializable {
             return;
         }
 
-        // Check if item is in stock
-        if (product.getStockQuantity() <= 0) {
-            SceneManager.showAlert("Out of Stock",
-                    "Sorry, this item is currently out of stock.");
-            return;
-        }
-
         // Make sure the product has an image path before adding to wardrobe
         if (product.getImagePath() == null || product.getImagePath().isEmpty()) {
             product.setImagePath("/images/default-product.jpg");
+            dataManager.updateProduct(product);
         }
 
-        // Decrease stock quantity by 1
-        product.setStockQuantity(product.getStockQuantity() - 1);
-
-        // Update product in database to reflect stock change
-        dataManager.updateProduct(product);
-
-        // Add to user's wardrobe
-        dataManager.getCurrentUser().addToWardrobe(product.getProductId());
-
-        // Important: Save data after modifications
-        dataManager.saveAllData();
+        // Record the purchase as an order, taking one from stock and adding
+        // the item to the wardrobe in one transaction; this fails if another
+        // client bought the last one
+        OrderResult result = dataManager.placeOrder(dataManager.getCurrentUser().getUserId(),
+                product.getProductId(), 1, "Store Purchase");
+        if (result.getStatus() == OrderResult.Status.INSUFFICIENT_STOCK) {
+            SceneManager.showAlert("Out of Stock",
+                    "Sorry, this item is currently out of stock.");
+            return;
+        }
+        if (!result.isPlaced()) {
+            SceneManager.showErrorAlert("Purchase Failed", result.getMessage());
+            return;
+        }
 
         SceneManager.showAlert("Purchase Successful",
                 "Item added to your wardrobe: " + product.getName());
@@ -159,8 +148,13 @@ public class StoreViewController implements Initializable {
     // Refresh the view (can be called from outside)
     public void refreshView() {
         System.out.println("StoreViewController: Refreshing view");
-        // Force reload all data from the database
-        dataManager.loadAllData();
+        // Only rebuild if products changed since the items were last displayed
+        ChangeSet changes = dataManager.getChangesSince(dataVersion);
+        dataVersion = changes.getVersion();
+        if (!changes.hasProductChanges()) {
+            System.out.println("StoreViewController: No product changes since last refresh");
+            return;
+        }
         // Get fresh product list (only visible)
         storeItems = dataManager.getVisibleProducts();
         System.out.println("StoreViewController: Refreshed with " + storeItems.size() + " products");
@@ -0,0 +1,134 @@
+package com.fashionstore.models;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * A placed order. Orders are immutable once placed; each line keeps the
+ * product name and unit price at the time of purchase, so the history stays
+ * correct when products are later edited or deleted.
+ */
+public class Order implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * One product line of an order.
+     */
+    public static class Item implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final String productId;
+        private final String productName;
+        private final BigDecimal unitPrice;
+        private final int quantity;
+
+        public Item(String productId, String productName, BigDecimal unitPrice, int quantity) {
+            this.productId = Objects.requireNonNull(productId, "Product ID cannot be null");
+            this.productName = productName;
+            this.unitPrice = Objects.requireNonNull(unitPrice, "Unit price cannot be null")
+                    .setScale(2, RoundingMode.HALF_UP);
+            this.quantity = quantity;
+        }
+
+        public String getProductId() {
+            return productId;
+        }
+
+        public String getProductName() {
+            return productName;
+        }
+
+        public BigDecimal getUnitPrice() {
+            return unitPrice;
+        }
+
+        public int getQuantity() {
+            return quantity;
+        }
+
+        public BigDecimal getTotalPrice() {
+            return unitPrice.multiply(BigDecimal.valueOf(quantity));
+        }
+
+        @Override
+        public String toString() {
+            return productName + " x" + quantity + " @ " + unitPrice;
+        }
+    }
+
+    private final String orderId;
+    private final String userId;
+    private final Date orderDate;
+    private final String paymentMethod;
+    private final List<Item> items;
+    private final BigDecimal totalAmount;
+
+    /**
+     * Creates a new order placed now.
+     */
+    public Order(String userId, String paymentMethod, List<Item> items) {
+        this("ORD-" + UUID.randomUUID().toString(), userId, new Date(), paymentMethod, items);
+    }
+
+    /**
+     * Recreates an order loaded from the database.
+     */
+    public Order(String orderId, String userId, Date orderDate, String paymentMethod, List<Item> items) {
+        this.orderId = Objects.requireNonNull(orderId, "Order ID cannot be null");
+        this.userId = Objects.requireNonNull(userId, "User ID cannot be null");
+        this.orderDate = orderDate != null ? new Date(orderDate.getTime()) : new Date();
+        this.paymentMethod = paymentMethod;
+        this.items = Collections.unmodifiableList(new ArrayList<>(items));
+        this.totalAmount = this.items.stream()
+                .map(Item::getTotalPrice)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+
+    public String getOrderId() {
+        return orderId;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public Date getOrderDate() {
+        return new Date(orderDate.getTime());
+    }
+
+    public String getPaymentMethod() {
+        return paymentMethod;
+    }
+
+    public List<Item> getItems() {
+        return items;
+    }
+
+    public BigDecimal getTotalAmount() {
+        return totalAmount;
+    }
+
+    public int getItemCount() {
+        return items.stream()
+                .mapToInt(Item::getQuantity)
+                .sum();
+    }
+
+    @Override
+    public String toString() {
+        return "Order{" +
+                "orderId='" + orderId + '\'' +
+                ", userId='" + userId + '\'' +
+                ", orderDate=" + orderDate +
+                ", items=" + items.size() +
+                ", totalAmount=" + totalAmount +
+                '}';
+    }
+}
@@ -2,6 +2,8 @@ package com.fashionstore.models;
 
 import java.io.Serializable;
 import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CopyOnWriteArraySet;
 
 public class Outfit implements Serializable, Comparable<Outfit> {
     private static final long serialVersionUID = 2L; // Updated for new version
@@ -20,6 +22,13 @@ public class Outfit implements Serializable, Comparable<Outfit> {
     private OutfitOccasion occasion;
     private List<String> tags;
 
+    // Change tracking so DataManager only persists what was modified.
+    // New outfits start dirty; DataManager marks them clean once written or loaded.
+    // Flags are volatile because the background writer reads and clears them.
+    private volatile boolean dirty = true;
+    private volatile boolean productsDirty = true;
+    private volatile boolean tagsDirty = true;
+
     public enum OutfitSeason {
         SPRING, SUMMER, FALL, WINTER, ALL_SEASON
     }
@@ -34,8 +43,9 @@ public class Outfit implements Serializable, Comparable<Outfit> {
         this.name = Objects.requireNonNull(name, "Outfit name cannot be null");
         this.createdAt = new Date();
         this.lastModified = new Date();
-        this.productIds = new LinkedHashSet<>(); // Preserves insertion order
-        this.tags = new ArrayList<>();
+        // Copy-on-write so the background writer can copy them while the UI edits
+        this.productIds = new CopyOnWriteArraySet<>(); // Preserves insertion order
+        this.tags = new CopyOnWriteArrayList<>();
         this.styleRating = 0.0;
         this.likesCount = 0;
         this.season = OutfitSeason.ALL_SEASON;
@@ -49,6 +59,7 @@ public class Outfit implements Serializable, Comparable<Outfit> {
     public void setOutfitId(String outfitId) {
         if (outfitId != null) {
             this.outfitId = outfitId;
+            markDirty();
         }
     }
     
@@ -102,13 +113,19 @@ public class Outfit implements Serializable, Comparable<Outfit> {
     public boolean addProduct(String productId) {
         Objects.requireNonNull(productId, "Product ID cannot be null");
         boolean added = productIds.add(productId);
-        if (added) updateModified();
+        if (added) {
+            productsDirty = true;
+            updateModified();
+        }
         return added;
     }
 
     public boolean removeProduct(String productId) {
         boolean removed = productIds.remove(productId);
-        if (removed) updateModified();
+        if (removed) {
+            productsDirty = true;
+            updateModified();
+        }
         return removed;
     }
 
@@ -119,6 +136,7 @@ public class Outfit implements Serializable, Comparable<Outfit> {
     public void clearProducts() {
         if (!productIds.isEmpty()) {
             productIds.clear();
+            productsDirty = true;
             updateModified();
         }
     }
@@ -128,13 +146,17 @@ public class Outfit implements Serializable, Comparable<Outfit> {
         Objects.requireNonNull(tag, "Tag cannot be null");
         if (!tags.contains(tag)) {
             tags.add(tag);
+            tagsDirty = true;
             updateModified();
         }
     }
 
     public boolean removeTag(String tag) {
         boolean removed = tags.remove(tag);
-        if (removed) updateModified();
+        if (removed) {
+            tagsDirty = true;
+            updateModified();
+        }
         return removed;
     }
 
@@ -159,6 +181,25 @@ public class Outfit implements Serializable, Comparable<Outfit> {
     // Utility Methods
     private void updateModified() {
         this.lastModified = new Date();
+        this.dirty = true;
+    }
+
+    // Change tracking
+    public boolean isDirty() { return dirty; }
+    public boolean isProductsDirty() { return productsDirty; }
+    public boolean isTagsDirty() { return tagsDirty; }
+    public boolean hasPendingChanges() { return dirty || productsDirty || tagsDirty; }
+
+    public void markDirty() {
+        this.dirty = true;
+        this.productsDirty = true;
+        this.tagsDirty = true;
+    }
+
+    public void markClean() {
+        this.dirty = false;
+        this.productsDirty = false;
+        this.tagsDirty = false;
     }
 
     public String toShortString() {
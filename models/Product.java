@@ -9,6 +9,7 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class Product implements Serializable, Comparable<Product> {
     private static final long serialVersionUID = 1L;
@@ -31,7 +32,15 @@ public class Product implements Serializable, Comparable<Product> {
     private String material;
     private String season;
     private String imagePath;
-    private int stockQuantity;
+    // Fixed-size copies of the image, null until they have been made
+    private String cardThumbnailPath;
+    private String chipThumbnailPath;
+    private String previewThumbnailPath;
+    // Stock is changed from checkout threads and read by the views without locking
+    private volatile int stockQuantity;
+    // Row version of the stock in the database; DataManager uses it to
+    // compare-and-set stock so concurrent changes are never overwritten
+    private volatile int version;
     private final Date dateAdded;
     private Date lastUpdated;
     private Map<String, String> attributes;
@@ -42,6 +51,12 @@ public class Product implements Serializable, Comparable<Product> {
     private double averageRating;
     private int reviewCount;
 
+    // Change tracking so DataManager only persists what was modified.
+    // New products start dirty; DataManager marks them clean once written or loaded.
+    // Flags are volatile because the background writer reads and clears them.
+    private volatile boolean dirty = true;
+    private volatile boolean attributesDirty = true;
+
     public Product(String name, String category, BigDecimal price) {
         this.productId = "PROD-" + UUID.randomUUID().toString();
         this.name = Objects.requireNonNull(name, "Product name cannot be null");
@@ -50,7 +65,7 @@ public class Product implements Serializable, Comparable<Product> {
         this.originalPrice = this.price;
         this.dateAdded = new Date();
         this.lastUpdated = new Date();
-        this.attributes = new HashMap<>();
+        this.attributes = new ConcurrentHashMap<>(); // Read by the background writer
         this.stockQuantity = 0;
         this.reviewCount = 0;
         this.averageRating = 0.0;
@@ -67,6 +82,7 @@ public class Product implements Serializable, Comparable<Product> {
     public void setProductId(String productId) {
         if (productId != null) {
             this.productId = productId;
+            markDirty();
         }
     }
 
@@ -126,10 +142,51 @@ public class Product implements Serializable, Comparable<Product> {
         return imagePath;
     }
 
+    /**
+     * @return the store card thumbnail, or the image itself if there is none
+     */
+    public String getCardImagePath() {
+        return cardThumbnailPath != null ? cardThumbnailPath : imagePath;
+    }
+
+    /**
+     * @return the wardrobe chip thumbnail, or the image itself if there is none
+     */
+    public String getChipImagePath() {
+        return chipThumbnailPath != null ? chipThumbnailPath : imagePath;
+    }
+
+    /**
+     * @return the outfit preview thumbnail, or the image itself if there is none
+     */
+    public String getPreviewImagePath() {
+        return previewThumbnailPath != null ? previewThumbnailPath : imagePath;
+    }
+
+    public String getCardThumbnailPath() {
+        return cardThumbnailPath;
+    }
+
+    public String getChipThumbnailPath() {
+        return chipThumbnailPath;
+    }
+
+    public String getPreviewThumbnailPath() {
+        return previewThumbnailPath;
+    }
+
+    public boolean hasThumbnails() {
+        return cardThumbnailPath != null && chipThumbnailPath != null && previewThumbnailPath != null;
+    }
+
     public int getStockQuantity() {
         return stockQuantity;
     }
 
+    public int getVersion() {
+        return version;
+    }
+
     public Date getDateAdded() {
         return new Date(dateAdded.getTime());
     }
@@ -244,7 +301,9 @@ public class Product implements Serializable, Comparable<Product> {
 
     public void setImagePath(String imagePath) {
         if (imagePath == null || imagePath.isEmpty()) {
+            clearThumbnailsUnless("/images/default-product.jpg");
             this.imagePath = "/images/default-product.jpg";
+            this.dirty = true;
             return;
         }
 
@@ -265,15 +324,45 @@ public class Product implements Serializable, Comparable<Product> {
         // Log the normalized path
         System.out.println("Setting image path: " + normalizedPath);
 
+        clearThumbnailsUnless(normalizedPath);
         this.imagePath = normalizedPath;
         updateTimestamp();
     }
 
+    // Thumbnails belong to one image and go stale when it is replaced
+    private void clearThumbnailsUnless(String newImagePath) {
+        if (!newImagePath.equals(imagePath)) {
+            cardThumbnailPath = null;
+            chipThumbnailPath = null;
+            previewThumbnailPath = null;
+        }
+    }
+
+    /**
+     * Records the thumbnails made from the current image; all null clears them.
+     */
+    public void setThumbnailPaths(String cardThumbnailPath, String chipThumbnailPath, String previewThumbnailPath) {
+        this.cardThumbnailPath = cardThumbnailPath;
+        this.chipThumbnailPath = chipThumbnailPath;
+        this.previewThumbnailPath = previewThumbnailPath;
+        updateTimestamp();
+    }
+
     public void setStockQuantity(int stockQuantity) {
         this.stockQuantity = stockQuantity;
         updateTimestamp();
     }
 
+    /**
+     * Mirrors stock that is already stored in the database at the given
+     * version. Unlike {@link #setStockQuantity(int)} this does not mark the
+     * product as changed.
+     */
+    public void syncStock(int stockQuantity, int version) {
+        this.stockQuantity = stockQuantity;
+        this.version = version;
+    }
+
     public void setFeatured(boolean featured) {
         isFeatured = featured;
         updateTimestamp();
@@ -287,6 +376,7 @@ public class Product implements Serializable, Comparable<Product> {
     // Attribute management
     public void addAttribute(String key, String value) {
         attributes.put(Objects.requireNonNull(key), Objects.requireNonNull(value));
+        attributesDirty = true;
         updateTimestamp();
     }
 
@@ -296,7 +386,9 @@ public class Product implements Serializable, Comparable<Product> {
     }
 
     public void removeAttribute(String key) {
-        attributes.remove(key);
+        if (attributes.remove(key) != null) {
+            attributesDirty = true;
+        }
         updateTimestamp();
     }
 
@@ -352,6 +444,30 @@ public class Product implements Serializable, Comparable<Product> {
 
     private void updateTimestamp() {
         this.lastUpdated = new Date();
+        this.dirty = true;
+    }
+
+    // Change tracking
+    public boolean isDirty() {
+        return dirty;
+    }
+
+    public boolean isAttributesDirty() {
+        return attributesDirty;
+    }
+
+    public boolean hasPendingChanges() {
+        return dirty || attributesDirty;
+    }
+
+    public void markDirty() {
+        this.dirty = true;
+        this.attributesDirty = true;
+    }
+
+    public void markClean() {
+        this.dirty = false;
+        this.attributesDirty = false;
     }
 
     @Override
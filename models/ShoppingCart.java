@@ -4,6 +4,7 @@ import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.stream.Collectors;
 
 public class ShoppingCart {
@@ -12,6 +13,11 @@ public class ShoppingCart {
     private List<CartItem> items;
     private BigDecimal totalPrice;
 
+    // Change tracking so DataManager only persists carts that were modified.
+    // New carts start dirty; DataManager marks them clean once written or loaded.
+    // Flags are volatile because the background writer reads and clears them.
+    private volatile boolean dirty = true;
+
     public class CartItem {
         private Product product;
         private int quantity;
@@ -44,6 +50,7 @@ public class ShoppingCart {
             
             // Recalculate parent cart total if quantity changed
             if (changed) {
+                ShoppingCart.this.dirty = true;
                 System.out.println("CartItem.setQuantity: Quantity changed to: " + quantity + 
                                   " for product: " + (product != null ? product.getName() : "null"));
                 ShoppingCart.this.recalculateTotal();
@@ -69,7 +76,7 @@ public class ShoppingCart {
     public ShoppingCart(String userId) {
         this.cartId = UUID.randomUUID().toString();
         this.userId = userId;
-        this.items = new ArrayList<>();
+        this.items = new CopyOnWriteArrayList<>(); // Read by the background writer
         this.totalPrice = BigDecimal.ZERO;
     }
 
@@ -93,6 +100,7 @@ public class ShoppingCart {
 
         // Add new item if product doesn't exist in cart
         items.add(new CartItem(product, quantity));
+        dirty = true;
         recalculateTotal();
     }
 
@@ -126,6 +134,7 @@ public class ShoppingCart {
             );
             
             if (removed) {
+                dirty = true;
                 System.out.println("ShoppingCart.removeItem: Item successfully removed");
             } else {
                 System.out.println("ShoppingCart.removeItem: No matching item found with ID: " + productId);
@@ -150,6 +159,9 @@ public class ShoppingCart {
     }
 
     public void clear() {
+        if (!items.isEmpty()) {
+            dirty = true;
+        }
         items.clear();
         totalPrice = BigDecimal.ZERO;
     }
@@ -188,10 +200,24 @@ public class ShoppingCart {
     public void setCartId(String cartId) {
         if (cartId != null) {
             this.cartId = cartId;
+            this.dirty = true;
         }
     }
 
     public String getUserId() {
         return userId;
     }
+
+    // Change tracking
+    public boolean isDirty() {
+        return dirty;
+    }
+
+    public void markDirty() {
+        this.dirty = true;
+    }
+
+    public void markClean() {
+        this.dirty = false;
+    }
 }
\ No newline at end of file
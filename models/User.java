@@ -6,6 +6,7 @@ import java.util.Calendar;
 import java.util.Date;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
 import com.fashionstore.utils.PasswordUtil;
 
 public class User implements Serializable {
@@ -29,6 +30,13 @@ public class User implements Serializable {
     private String banReason = null;
     private Date banExpiration = null;
 
+    // Change tracking so DataManager only persists what was modified.
+    // New users start dirty; DataManager marks them clean once written or loaded.
+    // Flags are volatile because the background writer reads and clears them.
+    private volatile boolean dirty = true;
+    private volatile boolean wardrobeDirty = true;
+    private volatile boolean stylePreferencesDirty = true;
+
     public User(String username, String email, String passwordHash) {
         this.userId = UUID.randomUUID().toString();
         this.username = username;
@@ -56,9 +64,10 @@ public class User implements Serializable {
         }
 
         this.dateRegistered = new Date();
-        this.wardrobeItemIds = new ArrayList<>();
-        this.outfitIds = new ArrayList<>();
-        this.stylePreferences = new ArrayList<>();
+        // Copy-on-write so the background writer can copy them while the UI edits
+        this.wardrobeItemIds = new CopyOnWriteArrayList<>();
+        this.outfitIds = new CopyOnWriteArrayList<>();
+        this.stylePreferences = new CopyOnWriteArrayList<>();
     }
 
     /**
@@ -100,6 +109,7 @@ public class User implements Serializable {
 
     public void setUserId(String userId) {
         this.userId = userId;
+        this.dirty = true;
     }
 
     public String getUsername() {
@@ -108,6 +118,7 @@ public class User implements Serializable {
 
     public void setUsername(String username) {
         this.username = username;
+        this.dirty = true;
     }
 
     public String getEmail() {
@@ -116,6 +127,7 @@ public class User implements Serializable {
 
     public void setEmail(String email) {
         this.email = email;
+        this.dirty = true;
     }
 
     public String getPasswordHash() {
@@ -124,6 +136,7 @@ public class User implements Serializable {
 
     public void setPasswordHash(String passwordHash) {
         this.passwordHash = passwordHash;
+        this.dirty = true;
     }
 
     public String getFirstName() {
@@ -132,6 +145,7 @@ public class User implements Serializable {
 
     public void setFirstName(String firstName) {
         this.firstName = firstName;
+        this.dirty = true;
     }
 
     public String getLastName() {
@@ -140,6 +154,7 @@ public class User implements Serializable {
 
     public void setLastName(String lastName) {
         this.lastName = lastName;
+        this.dirty = true;
     }
 
     public Date getDateRegistered() {
@@ -148,6 +163,7 @@ public class User implements Serializable {
 
     public void setDateRegistered(Date dateRegistered) {
         this.dateRegistered = dateRegistered;
+        this.dirty = true;
     }
 
     public Date getLastLogin() {
@@ -156,10 +172,12 @@ public class User implements Serializable {
 
     public void setLastLogin(Date lastLogin) {
         this.lastLogin = lastLogin;
+        this.dirty = true;
     }
 
     public void updateLastLogin() {
         this.lastLogin = new Date();
+        this.dirty = true;
     }
 
     public List<String> getWardrobeItemIds() {
@@ -169,11 +187,16 @@ public class User implements Serializable {
     public void addToWardrobe(String productId) {
         if (!wardrobeItemIds.contains(productId)) {
             this.wardrobeItemIds.add(productId);
+            this.wardrobeDirty = true;
         }
     }
 
     public boolean removeFromWardrobe(String productId) {
-        return this.wardrobeItemIds.remove(productId);
+        boolean removed = this.wardrobeItemIds.remove(productId);
+        if (removed) {
+            this.wardrobeDirty = true;
+        }
+        return removed;
     }
 
     public List<String> getOutfitIds() {
@@ -213,11 +236,16 @@ public class User implements Serializable {
     public void addStylePreference(StylePreference preference) {
         if (!stylePreferences.contains(preference)) {
             this.stylePreferences.add(preference);
+            this.stylePreferencesDirty = true;
         }
     }
 
     public boolean removeStylePreference(StylePreference preference) {
-        return this.stylePreferences.remove(preference);
+        boolean removed = this.stylePreferences.remove(preference);
+        if (removed) {
+            this.stylePreferencesDirty = true;
+        }
+        return removed;
     }
 
     /**
@@ -256,6 +284,7 @@ public class User implements Serializable {
     public void deactivateAccount() {
         this.isDeactivated = true;
         this.deactivationDate = new Date();
+        this.dirty = true;
     }
 
     /**
@@ -264,6 +293,7 @@ public class User implements Serializable {
     public void reactivateAccount() {
         this.isDeactivated = false;
         this.deactivationDate = null;
+        this.dirty = true;
     }
 
     /**
@@ -332,6 +362,7 @@ public class User implements Serializable {
      */
     public void setDarkModeEnabled(boolean enabled) {
         this.isDarkModeEnabled = enabled;
+        this.dirty = true;
     }
 
     /**
@@ -352,6 +383,7 @@ public class User implements Serializable {
         this.isBanned = true;
         this.banReason = reason;
         this.banExpiration = null; // Permanent ban by default
+        this.dirty = true;
     }
 
     /**
@@ -368,6 +400,7 @@ public class User implements Serializable {
         Calendar calendar = Calendar.getInstance();
         calendar.add(Calendar.DAY_OF_MONTH, days);
         this.banExpiration = calendar.getTime();
+        this.dirty = true;
     }
 
     /**
@@ -428,6 +461,7 @@ public class User implements Serializable {
         this.isBanned = false;
         this.banReason = null;
         this.banExpiration = null;
+        this.dirty = true;
     }
 
     /**
@@ -448,6 +482,60 @@ public class User implements Serializable {
         return banReason;
     }
 
+    /**
+     * Checks whether the users row needs to be written.
+     *
+     * @return true if any column stored in the users table has changed
+     */
+    public boolean isDirty() {
+        return dirty;
+    }
+
+    /**
+     * Checks whether the wardrobe_items rows for this user need to be rewritten.
+     *
+     * @return true if wardrobe items were added or removed
+     */
+    public boolean isWardrobeDirty() {
+        return wardrobeDirty;
+    }
+
+    /**
+     * Checks whether the style_preferences rows for this user need to be rewritten.
+     *
+     * @return true if style preferences were added or removed
+     */
+    public boolean isStylePreferencesDirty() {
+        return stylePreferencesDirty;
+    }
+
+    /**
+     * Checks whether anything about this user needs to be persisted.
+     *
+     * @return true if the row or any of its child rows changed
+     */
+    public boolean hasPendingChanges() {
+        return dirty || wardrobeDirty || stylePreferencesDirty;
+    }
+
+    /**
+     * Flags the user and all of its child rows for persistence.
+     */
+    public void markDirty() {
+        this.dirty = true;
+        this.wardrobeDirty = true;
+        this.stylePreferencesDirty = true;
+    }
+
+    /**
+     * Clears all change flags after the user has been persisted or loaded.
+     */
+    public void markClean() {
+        this.dirty = false;
+        this.wardrobeDirty = false;
+        this.stylePreferencesDirty = false;
+    }
+
     @Override
     public String toString() {
         return "User{" +
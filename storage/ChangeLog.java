@@ -0,0 +1,88 @@
+package com.fashionstore.storage;
+
+import com.fashionstore.storage.WriteBehindQueue.EntityType;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+
+/**
+ * Bounded log of cache changes in DataManager. Every recorded change gets the
+ * next data version, so callers can ask which entities changed after a
+ * version they have already seen.
+ */
+class ChangeLog {
+
+    private static final class Entry {
+        final long version;
+        final EntityType type;
+        final String key;
+        final boolean removed;
+
+        Entry(long version, EntityType type, String key, boolean removed) {
+            this.version = version;
+            this.type = type;
+            this.key = key;
+            this.removed = removed;
+        }
+    }
+
+    private final int capacity;
+    private final ArrayDeque<Entry> entries = new ArrayDeque<>();
+    private long version = 0;
+    // Changes made after this version are all still in the log
+    private long horizon = 0;
+
+    ChangeLog(int capacity) {
+        this.capacity = Math.max(1, capacity);
+    }
+
+    synchronized long getVersion() {
+        return version;
+    }
+
+    synchronized void record(EntityType type, String key, boolean removed) {
+        if (key == null) {
+            return;
+        }
+        version++;
+        entries.addLast(new Entry(version, type, key, removed));
+        if (entries.size() > capacity) {
+            horizon = entries.removeFirst().version;
+        }
+    }
+
+    /**
+     * Forgets all logged changes, e.g. after the caches were reloaded from the
+     * database, so every caller does a full refresh.
+     */
+    synchronized void reset() {
+        version++;
+        entries.clear();
+        horizon = version;
+    }
+
+    synchronized ChangeSet since(long sinceVersion) {
+        if (sinceVersion < horizon || sinceVersion > version) {
+            return new ChangeSet(version, true);
+        }
+
+        ChangeSet changes = new ChangeSet(version, false);
+        // Find the first entry after sinceVersion from the newest end, then
+        // apply forwards so later changes win
+        Iterator<Entry> newestFirst = entries.descendingIterator();
+        int newer = 0;
+        while (newestFirst.hasNext() && newestFirst.next().version > sinceVersion) {
+            newer++;
+        }
+
+        Iterator<Entry> oldestFirst = entries.iterator();
+        for (int skip = entries.size() - newer; skip > 0; skip--) {
+            oldestFirst.next();
+        }
+        while (oldestFirst.hasNext()) {
+            Entry entry = oldestFirst.next();
+            changes.add(entry.type, entry.key, entry.removed);
+        }
+        return changes;
+    }
+}
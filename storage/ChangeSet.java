@@ -0,0 +1,130 @@
+package com.fashionstore.storage;
+
+import com.fashionstore.storage.WriteBehindQueue.EntityType;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The entities that changed in DataManager between two data versions, as
+ * returned by {@link DataManager#getChangesSince(long)}.
+ *
+ * Views remember {@link #getVersion()} and ask for the changes since that
+ * version on their next refresh, so they only re-render what was affected.
+ * When the requested version is too old to answer, or the caches were
+ * reloaded in between, {@link #isFullRefresh()} is true and the caller should
+ * rebuild everything.
+ */
+public class ChangeSet {
+    private final long version;
+    private final boolean fullRefresh;
+    private final Map<EntityType, Set<String>> changed = new EnumMap<>(EntityType.class);
+    private final Map<EntityType, Set<String>> removed = new EnumMap<>(EntityType.class);
+
+    ChangeSet(long version, boolean fullRefresh) {
+        this.version = version;
+        this.fullRefresh = fullRefresh;
+        for (EntityType type : EntityType.values()) {
+            changed.put(type, new LinkedHashSet<>());
+            removed.put(type, new LinkedHashSet<>());
+        }
+    }
+
+    /**
+     * Applies one logged change; later changes to the same entity win.
+     */
+    void add(EntityType type, String key, boolean wasRemoved) {
+        if (wasRemoved) {
+            changed.get(type).remove(key);
+            removed.get(type).add(key);
+        } else {
+            removed.get(type).remove(key);
+            changed.get(type).add(key);
+        }
+    }
+
+    /**
+     * @return the data version this change set brings the caller up to
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    public boolean isFullRefresh() {
+        return fullRefresh;
+    }
+
+    public boolean isEmpty() {
+        if (fullRefresh) {
+            return false;
+        }
+        for (EntityType type : EntityType.values()) {
+            if (!changed.get(type).isEmpty() || !removed.get(type).isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public boolean hasUserChanges() {
+        return hasChanges(EntityType.USER);
+    }
+
+    public boolean hasProductChanges() {
+        return hasChanges(EntityType.PRODUCT);
+    }
+
+    public boolean hasOutfitChanges() {
+        return hasChanges(EntityType.OUTFIT);
+    }
+
+    public boolean hasCartChanges() {
+        return hasChanges(EntityType.CART);
+    }
+
+    public Set<String> getChangedUserIds() {
+        return Collections.unmodifiableSet(changed.get(EntityType.USER));
+    }
+
+    public Set<String> getRemovedUserIds() {
+        return Collections.unmodifiableSet(removed.get(EntityType.USER));
+    }
+
+    public Set<String> getChangedProductIds() {
+        return Collections.unmodifiableSet(changed.get(EntityType.PRODUCT));
+    }
+
+    public Set<String> getRemovedProductIds() {
+        return Collections.unmodifiableSet(removed.get(EntityType.PRODUCT));
+    }
+
+    public Set<String> getChangedOutfitIds() {
+        return Collections.unmodifiableSet(changed.get(EntityType.OUTFIT));
+    }
+
+    public Set<String> getRemovedOutfitIds() {
+        return Collections.unmodifiableSet(removed.get(EntityType.OUTFIT));
+    }
+
+    /**
+     * @return user IDs whose shopping cart changed
+     */
+    public Set<String> getChangedCartUserIds() {
+        return Collections.unmodifiableSet(changed.get(EntityType.CART));
+    }
+
+    private boolean hasChanges(EntityType type) {
+        return fullRefresh || !changed.get(type).isEmpty() || !removed.get(type).isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "ChangeSet{" +
+                "version=" + version +
+                (fullRefresh ? ", fullRefresh" : ", changed=" + changed + ", removed=" + removed) +
+                '}';
+    }
+}
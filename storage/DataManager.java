@@ -1,10 +1,12 @@
 package com.fashionstore.storage;
 
+import com.fashionstore.models.Order;
 import com.fashionstore.models.Outfit;
 import com.fashionstore.models.Product;
 import com.fashionstore.models.ShoppingCart;
 import com.fashionstore.models.User;
 import com.fashionstore.models.StylePreference;
+import com.fashionstore.storage.WriteBehindQueue.EntityType;
 import com.fashionstore.utils.DatabaseUtils;
 
 import java.math.BigDecimal;
@@ -12,8 +14,16 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.sql.Timestamp;
+import java.time.YearMonth;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntUnaryOperator;
 import java.util.stream.Collectors;
 import java.lang.reflect.Field;
 
@@ -21,18 +31,49 @@ public class DataManager {
     // Flag to track if data has been initialized
     private static boolean dataInitialized = false;
 
-    // Data storage (maintained as cache for performance)
+    // Data storage (maintained as cache for performance). Concurrent maps, since
+    // the UI thread, the auto-save timer and the background writer all use them.
     private Map<String, User> users;
     private Map<String, Product> products;
     private Map<String, Outfit> outfits;
     private Map<String, ShoppingCart> carts;
     private User currentUser;
 
+    // Secondary indexes, kept in step with the caches by the cache/uncache helpers
+    private final Map<String, User> usersByUsername = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> outfitIdsByUser = new ConcurrentHashMap<>();
+    // Rebuilt on demand after any product change
+    private volatile List<Product> visibleProducts;
+    private final Object visibleProductsLock = new Object();
+    private long productGeneration = 0; // guarded by visibleProductsLock
+    private final ProductSearchIndex searchIndex = new ProductSearchIndex();
+
+    // Versioned log of cache changes, so views can refresh only what changed
+    private static final int CHANGE_LOG_CAPACITY = 1000;
+    private final ChangeLog changeLog = new ChangeLog(CHANGE_LOG_CAPACITY);
+
+    // Background writer that persists queued mutations off the UI thread
+    private final WriteBehindQueue writeQueue;
+    // Rows sent per executeBatch call when persisting
+    private final int jdbcBatchSize;
+    // Attempts at a compare-and-set stock change before giving up
+    private final int stockRetries;
+    // Stock held for shopping carts, released by a sweeper once it expires
+    private final StockReservations reservations;
+    private final long reservationTtlMillis;
+    // Runs holds requested from the UI one at a time, in the order they were
+    // requested, so the FX thread never waits on the rows reserveForCart locks
+    private final ExecutorService reservationExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "fashionstore-reservations");
+        thread.setDaemon(true);
+        return thread;
+    });
+
     public DataManager() {
-        this.users = new HashMap<>();
-        this.products = new HashMap<>();
-        this.outfits = new HashMap<>();
-        this.carts = new HashMap<>();
+        this.users = new ConcurrentHashMap<>();
+        this.products = new ConcurrentHashMap<>();
+        this.outfits = new ConcurrentHashMap<>();
+        this.carts = new ConcurrentHashMap<>();
 
         // Initialize database schema if needed
         try {
@@ -65,12 +106,132 @@ public class DataManager {
             e.printStackTrace();
             // Don't stop app initialization if database fails, it will use in-memory
         }
+
+        this.jdbcBatchSize = Math.max(1, DatabaseUtils.getIntProperty("db.batch.chunkSize", 100));
+        this.stockRetries = Math.max(1, DatabaseUtils.getIntProperty("db.stock.casRetries", 5));
+        this.reservationTtlMillis = TimeUnit.MINUTES.toMillis(
+                Math.max(1, DatabaseUtils.getIntProperty("cart.reservationTtlMinutes", 15)));
+        this.reservations = new StockReservations(this::expireReservation);
+        this.writeQueue = new WriteBehindQueue(this::writeBatch,
+                DatabaseUtils.getIntProperty("db.writeBehind.flushIntervalMs", 2000),
+                DatabaseUtils.getIntProperty("db.writeBehind.batchSize", 500));
+    }
+
+    // Cache maintenance. Every change to the users, products and outfits
+    // caches goes through these so the secondary indexes stay consistent.
+
+    /**
+     * Null-safe cache lookup; the concurrent caches reject null keys.
+     */
+    private static <T> T lookup(Map<String, T> cache, String key) {
+        return key != null ? cache.get(key) : null;
+    }
+
+    private static String usernameKey(String username) {
+        return username == null ? null : username.toLowerCase(Locale.ROOT);
+    }
+
+    private void cacheUser(User user) {
+        User previous = users.put(user.getUserId(), user);
+        if (previous != null) {
+            usersByUsername.remove(usernameKey(previous.getUsername()), previous);
+        }
+        if (user.getUsername() != null) {
+            usersByUsername.put(usernameKey(user.getUsername()), user);
+        }
+    }
+
+    private User uncacheUser(String userId) {
+        User removed = userId != null ? users.remove(userId) : null;
+        if (removed != null) {
+            usersByUsername.remove(usernameKey(removed.getUsername()), removed);
+            outfitIdsByUser.remove(userId);
+            changeLog.record(EntityType.USER, userId, true);
+        }
+        return removed;
+    }
+
+    private void cacheProduct(Product product) {
+        products.put(product.getProductId(), product);
+        searchIndex.put(product);
+        invalidateVisibleProducts();
+    }
+
+    private Product uncacheProduct(String productId) {
+        Product removed = productId != null ? products.remove(productId) : null;
+        invalidateVisibleProducts();
+        if (removed != null) {
+            searchIndex.remove(productId);
+            changeLog.record(EntityType.PRODUCT, productId, true);
+        }
+        return removed;
+    }
+
+    private void invalidateVisibleProducts() {
+        synchronized (visibleProductsLock) {
+            productGeneration++;
+            visibleProducts = null;
+        }
+    }
+
+    private void cacheOutfit(Outfit outfit) {
+        outfits.put(outfit.getOutfitId(), outfit);
+        // compute() keeps the add atomic with uncacheOutfit dropping an emptied set
+        outfitIdsByUser.compute(outfit.getUserId(), (userId, owned) -> {
+            Set<String> ids = owned != null ? owned : ConcurrentHashMap.newKeySet();
+            ids.add(outfit.getOutfitId());
+            return ids;
+        });
+    }
+
+    private Outfit uncacheOutfit(String outfitId) {
+        Outfit removed = outfitId != null ? outfits.remove(outfitId) : null;
+        if (removed != null) {
+            outfitIdsByUser.computeIfPresent(removed.getUserId(), (userId, owned) -> {
+                owned.remove(outfitId);
+                return owned.isEmpty() ? null : owned;
+            });
+            changeLog.record(EntityType.OUTFIT, outfitId, true);
+        }
+        return removed;
+    }
+
+    /**
+     * Records a change to a cached entity and queues it for the background writer.
+     */
+    private void persist(EntityType type, String key) {
+        changeLog.record(type, key, false);
+        writeQueue.enqueue(type, key);
+    }
+
+    /**
+     * @return the current data version; it increases with every cache change
+     */
+    public long getDataVersion() {
+        return changeLog.getVersion();
+    }
+
+    /**
+     * Returns the entities that changed after the given data version. Views
+     * keep the returned version and pass it in on their next refresh.
+     */
+    public ChangeSet getChangesSince(long version) {
+        return changeLog.since(version);
     }
 
     // Data loading methods
+
+    /**
+     * Reloads every table into the caches. This is a full round trip over all
+     * tables; views should use {@link #getChangesSince(long)} to pick up
+     * changes and only call this on an explicit refresh request.
+     */
     public void loadAllData() {
         boolean hasExistingData = false;
 
+        // Make sure queued writes reach the database before reading it back
+        flush();
+
         // Load users
         try {
             loadUsersFromDb();
@@ -119,6 +280,15 @@ public class DataManager {
             e.printStackTrace();
         }
 
+        // Load stock held for carts; reservations that lapsed while the
+        // application was closed are released by the sweeper right away
+        try {
+            loadReservationsFromDb();
+        } catch (SQLException e) {
+            System.err.println("Error loading stock reservations: " + e.getMessage());
+            e.printStackTrace();
+        }
+
         // Only initialize sample data if no existing data was found and it hasn't been
         // initialized before
         if (!hasExistingData && !dataInitialized) {
@@ -128,6 +298,9 @@ public class DataManager {
             // Save sample data immediately
             saveAllData();
         }
+
+        // Every view has to rebuild after a full reload
+        changeLog.reset();
     }
 
     private void loadUsersFromDb() throws SQLException {
@@ -142,6 +315,8 @@ public class DataManager {
             ps = conn.prepareStatement("SELECT * FROM users");
             rs = ps.executeQuery();
 
+            List<User> loadedUsers = new ArrayList<>();
+
             while (rs.next()) {
                 String userId = rs.getString("user_id");
                 String username = rs.getString("username");
@@ -168,113 +343,94 @@ public class DataManager {
                 }
 
                 // Load deactivation status and date
-                try {
-                    boolean isDeactivated = rs.getBoolean("is_deactivated");
-                    if (!rs.wasNull() && isDeactivated) {
-                        // Call deactivateAccount which handles setting isDeactivated
-                        user.deactivateAccount();
-
-                        // Override the deactivation date with the one from the database
-                        Timestamp deactivationDate = rs.getTimestamp("deactivation_date");
-                        if (deactivationDate != null) {
-                            // We don't need to explicitly set this as deactivateAccount() already sets it
-                            // But we want to use the date from the database, not the current date
-                            Field deactivationDateField = User.class.getDeclaredField("deactivationDate");
-                            deactivationDateField.setAccessible(true);
-                            deactivationDateField.set(user, new Date(deactivationDate.getTime()));
-                        }
+                if (rs.getBoolean("is_deactivated")) {
+                    // Call deactivateAccount which handles setting isDeactivated
+                    user.deactivateAccount();
+
+                    // Use the date from the database, not the current date
+                    Timestamp deactivationDate = rs.getTimestamp("deactivation_date");
+                    if (deactivationDate != null) {
+                        setDateField(user, "deactivationDate", deactivationDate);
                     }
-                } catch (SQLException e) {
-                    // Column might not exist in older databases
-                    System.out.println("Warning: Deactivation columns not found for user " + userId);
-                } catch (Exception e) {
-                    // This is for the reflection part - if it fails, just stick with the default
-                    // deactivation date
-                    System.out.println("Warning: Could not set deactivation date via reflection for " + userId);
                 }
 
                 // Load dark mode preference
-                try {
-                    boolean isDarkMode = rs.getBoolean("is_dark_mode");
-                    if (!rs.wasNull()) {
-                        user.setDarkModeEnabled(isDarkMode);
-                    }
-                } catch (SQLException e) {
-                    // Column might not exist in older databases
-                    System.out.println("Warning: Dark mode column not found for user " + userId);
-                }
+                user.setDarkModeEnabled(rs.getBoolean("is_dark_mode"));
 
                 // Load ban information
-                try {
-                    boolean isBanned = rs.getBoolean("is_banned");
-                    if (!rs.wasNull() && isBanned) {
-                        String banReason = rs.getString("ban_reason");
-                        user.banUser(banReason);
-
-                        // Set ban expiration if it exists
-                        Timestamp banExpiration = rs.getTimestamp("ban_expiration");
-                        if (banExpiration != null) {
-                            try {
-                                // We need to use reflection to set the ban expiration date directly
-                                // because banUser() method sets it to null by default (permanent ban)
-                                Field banExpirationField = User.class.getDeclaredField("banExpiration");
-                                banExpirationField.setAccessible(true);
-                                banExpirationField.set(user, new Date(banExpiration.getTime()));
-                            } catch (Exception e) {
-                                System.out
-                                        .println("Warning: Could not set ban expiration via reflection for " + userId);
-                            }
-                        }
+                if (rs.getBoolean("is_banned")) {
+                    user.banUser(rs.getString("ban_reason"));
+
+                    // banUser() makes the ban permanent, so restore the stored expiration
+                    Timestamp banExpiration = rs.getTimestamp("ban_expiration");
+                    if (banExpiration != null) {
+                        setDateField(user, "banExpiration", banExpiration);
                     }
-                } catch (SQLException e) {
-                    // Column might not exist in older databases
-                    System.out.println("Warning: Ban columns not found for user " + userId);
                 }
 
                 // Add to cache
-                users.put(userId, user);
+                cacheUser(user);
+                loadedUsers.add(user);
             }
             rs.close();
             ps.close();
 
-            // Load wardrobe items for users
-            for (User user : users.values()) {
-                ps = conn.prepareStatement(
-                        "SELECT product_id FROM wardrobe_items WHERE user_id = ?");
-                ps.setString(1, user.getUserId());
-                rs = ps.executeQuery();
+            // Load wardrobe items for all users in a single pass
+            ps = DatabaseUtils.prepareStreaming(conn,
+                    "SELECT user_id, product_id FROM wardrobe_items ORDER BY user_id");
+            rs = ps.executeQuery();
 
-                while (rs.next()) {
-                    user.addToWardrobe(rs.getString("product_id"));
+            User owner = null;
+            while (rs.next()) {
+                owner = findParent(users, owner, rs.getString("user_id"), User::getUserId);
+                if (owner != null) {
+                    owner.addToWardrobe(rs.getString("product_id"));
                 }
-                rs.close();
-                ps.close();
             }
+            rs.close();
+            ps.close();
 
-            // Load style preferences for users
-            for (User user : users.values()) {
-                ps = conn.prepareStatement(
-                        "SELECT preference_type, preference_value, preference_weight " +
-                                "FROM style_preferences WHERE user_id = ?");
-                ps.setString(1, user.getUserId());
-                rs = ps.executeQuery();
+            // Load style preferences for all users in a single pass
+            ps = DatabaseUtils.prepareStreaming(conn,
+                    "SELECT user_id, preference_type, preference_value, preference_weight " +
+                            "FROM style_preferences ORDER BY user_id");
+            rs = ps.executeQuery();
 
-                while (rs.next()) {
+            owner = null;
+            while (rs.next()) {
+                owner = findParent(users, owner, rs.getString("user_id"), User::getUserId);
+                if (owner != null) {
                     StylePreference preference = new StylePreference(
                             rs.getString("preference_type"),
                             rs.getString("preference_value"),
                             rs.getDouble("preference_weight"));
-                    user.addStylePreference(preference);
+                    owner.addStylePreference(preference);
                 }
-                rs.close();
-                ps.close();
             }
+            rs.close();
+            ps.close();
+
+            // Everything just read matches the database
+            loadedUsers.forEach(User::markClean);
 
         } finally {
             DatabaseUtils.close(conn, ps, rs);
         }
     }
 
+    /**
+     * Sets a date field that User only exposes through its status methods.
+     */
+    private static void setDateField(User user, String fieldName, Timestamp value) {
+        try {
+            Field field = User.class.getDeclaredField(fieldName);
+            field.setAccessible(true);
+            field.set(user, new Date(value.getTime()));
+        } catch (ReflectiveOperationException e) {
+            System.out.println("Warning: Could not set " + fieldName + " via reflection for " + user.getUserId());
+        }
+    }
+
     private void loadProductsFromDb() throws SQLException {
         Connection conn = null;
         PreparedStatement ps = null;
@@ -285,6 +441,11 @@ public class DataManager {
             ps = conn.prepareStatement("SELECT * FROM products");
             rs = ps.executeQuery();
 
+            // Products are cached only once their attributes are loaded, so
+            // the search index sees them complete
+            List<Product> loadedProducts = new ArrayList<>();
+            Map<String, Product> loadedById = new HashMap<>();
+
             while (rs.next()) {
                 String productId = rs.getString("product_id");
                 String name = rs.getString("name");
@@ -306,44 +467,42 @@ public class DataManager {
                 product.setMaterial(rs.getString("material"));
                 product.setSeason(rs.getString("season"));
                 product.setImagePath(rs.getString("image_path"));
-                product.setStockQuantity(rs.getInt("stock_quantity"));
+                product.setThumbnailPaths(rs.getString("thumbnail_card"), rs.getString("thumbnail_chip"),
+                        rs.getString("thumbnail_preview"));
+                product.syncStock(rs.getInt("stock_quantity"), rs.getInt("version"));
                 product.setFeatured(rs.getBoolean("is_featured"));
 
-                // Default to true if column doesn't exist or is null
-                boolean isVisible = true;
-                try {
-                    isVisible = rs.getBoolean("is_visible");
-                    if (rs.wasNull()) {
-                        isVisible = true; // Default to visible if NULL
-                    }
-                } catch (SQLException e) {
-                    // Column doesn't exist, use default value
-                    System.out.println("Warning: is_visible column not found, defaulting to true");
-                }
-                product.setVisible(isVisible);
+                // The migrations always add is_visible; NULL counts as visible
+                boolean isVisible = rs.getBoolean("is_visible");
+                product.setVisible(isVisible || rs.wasNull());
 
-                // Add to cache
-                products.put(productId, product);
+                loadedProducts.add(product);
+                loadedById.put(productId, product);
             }
             rs.close();
             ps.close();
 
-            // Load product attributes
-            for (Product product : products.values()) {
-                ps = conn.prepareStatement(
-                        "SELECT attribute_name, attribute_value FROM product_attributes " +
-                                "WHERE product_id = ?");
-                ps.setString(1, product.getProductId());
-                rs = ps.executeQuery();
+            // Load attributes for all products in a single pass
+            ps = DatabaseUtils.prepareStreaming(conn,
+                    "SELECT product_id, attribute_name, attribute_value FROM product_attributes " +
+                            "ORDER BY product_id");
+            rs = ps.executeQuery();
 
-                while (rs.next()) {
-                    product.setAttribute(
+            Product owner = null;
+            while (rs.next()) {
+                owner = findParent(loadedById, owner, rs.getString("product_id"), Product::getProductId);
+                if (owner != null) {
+                    owner.setAttribute(
                             rs.getString("attribute_name"),
                             rs.getString("attribute_value"));
                 }
-                rs.close();
-                ps.close();
             }
+            rs.close();
+            ps.close();
+
+            // Everything just read matches the database
+            loadedProducts.forEach(Product::markClean);
+            loadedProducts.forEach(this::cacheProduct);
 
         } finally {
             DatabaseUtils.close(conn, ps, rs);
@@ -360,6 +519,8 @@ public class DataManager {
             ps = conn.prepareStatement("SELECT * FROM outfits");
             rs = ps.executeQuery();
 
+            List<Outfit> loadedOutfits = new ArrayList<>();
+
             while (rs.next()) {
                 String outfitId = rs.getString("outfit_id");
                 String userId = rs.getString("user_id");
@@ -384,10 +545,11 @@ public class DataManager {
                 }
 
                 // Add to cache
-                outfits.put(outfitId, outfit);
+                cacheOutfit(outfit);
+                loadedOutfits.add(outfit);
 
                 // Add to user's outfits list
-                User user = users.get(userId);
+                User user = lookup(users, userId);
                 if (user != null) {
                     user.addOutfit(outfitId);
                 }
@@ -395,34 +557,62 @@ public class DataManager {
             rs.close();
             ps.close();
 
-            // Load outfit products
-            for (Outfit outfit : outfits.values()) {
-                ps = conn.prepareStatement(
-                        "SELECT product_id FROM outfit_products WHERE outfit_id = ?");
-                ps.setString(1, outfit.getOutfitId());
-                rs = ps.executeQuery();
+            // Load products for all outfits in a single pass
+            ps = DatabaseUtils.prepareStreaming(conn,
+                    "SELECT outfit_id, product_id FROM outfit_products ORDER BY outfit_id");
+            rs = ps.executeQuery();
 
-                while (rs.next()) {
-                    outfit.addProduct(rs.getString("product_id"));
+            Outfit owner = null;
+            while (rs.next()) {
+                owner = findParent(outfits, owner, rs.getString("outfit_id"), Outfit::getOutfitId);
+                if (owner != null) {
+                    owner.addProduct(rs.getString("product_id"));
                 }
-                rs.close();
-                ps.close();
             }
+            rs.close();
+            ps.close();
 
-            // Load outfit tags
-            for (Outfit outfit : outfits.values()) {
-                ps = conn.prepareStatement(
-                        "SELECT tag FROM outfit_tags WHERE outfit_id = ?");
-                ps.setString(1, outfit.getOutfitId());
-                rs = ps.executeQuery();
+            // Load tags for all outfits in a single pass
+            ps = DatabaseUtils.prepareStreaming(conn,
+                    "SELECT outfit_id, tag FROM outfit_tags ORDER BY outfit_id");
+            rs = ps.executeQuery();
 
-                while (rs.next()) {
-                    outfit.addTag(rs.getString("tag"));
+            owner = null;
+            while (rs.next()) {
+                owner = findParent(outfits, owner, rs.getString("outfit_id"), Outfit::getOutfitId);
+                if (owner != null) {
+                    owner.addTag(rs.getString("tag"));
                 }
-                rs.close();
-                ps.close();
             }
+            rs.close();
+            ps.close();
+
+            // Everything just read matches the database
+            loadedOutfits.forEach(Outfit::markClean);
+
+        } finally {
+            DatabaseUtils.close(conn, ps, rs);
+        }
+    }
+
+    private void loadReservationsFromDb() throws SQLException {
+        Connection conn = null;
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+
+        try {
+            conn = DatabaseUtils.getConnection();
+            ps = conn.prepareStatement("SELECT product_id, cart_id, quantity, expires_at FROM stock_reservations");
+            rs = ps.executeQuery();
 
+            reservations.clear();
+            while (rs.next()) {
+                reservations.put(new StockReservations.Reservation(
+                        rs.getString("product_id"),
+                        rs.getString("cart_id"),
+                        rs.getInt("quantity"),
+                        rs.getTimestamp("expires_at").getTime()));
+            }
         } finally {
             DatabaseUtils.close(conn, ps, rs);
         }
@@ -436,10 +626,11 @@ public class DataManager {
         try {
             conn = DatabaseUtils.getConnection();
 
-            // Get all carts
+            // Get all carts, indexed by cart ID so items can be stitched in below
             ps = conn.prepareStatement("SELECT * FROM shopping_carts");
             rs = ps.executeQuery();
 
+            Map<String, ShoppingCart> cartsById = new HashMap<>();
             while (rs.next()) {
                 String cartId = rs.getString("cart_id");
                 String userId = rs.getString("user_id");
@@ -448,280 +639,344 @@ public class DataManager {
                 // Set the cart ID explicitly since we're reconstructing from DB
                 cart.setCartId(cartId);
                 carts.put(userId, cart);
+                cartsById.put(cartId, cart);
             }
             rs.close();
             ps.close();
 
-            // Load cart items
-            for (ShoppingCart cart : carts.values()) {
-                ps = conn.prepareStatement(
-                        "SELECT ci.product_id, ci.quantity, p.* " +
-                                "FROM cart_items ci " +
-                                "JOIN products p ON ci.product_id = p.product_id " +
-                                "WHERE ci.cart_id = ?");
-                ps.setString(1, cart.getCartId());
-                rs = ps.executeQuery();
-
-                while (rs.next()) {
-                    // For each cart item, we need the product and quantity
-                    String productId = rs.getString("product_id");
-                    int quantity = rs.getInt("quantity");
-
-                    // Get the product from cache if it exists, or create a new one
-                    Product product = products.get(productId);
-                    if (product == null) {
-                        String name = rs.getString("name");
-                        String category = rs.getString("category");
-                        BigDecimal price = rs.getBigDecimal("price");
-
-                        product = new Product(name, category, price);
-                        // Set the product ID explicitly since we're reconstructing from DB
-                        product.setProductId(productId);
-                        products.put(productId, product);
-                    }
+            // Load items for all carts in a single pass
+            ps = DatabaseUtils.prepareStreaming(conn,
+                    "SELECT ci.cart_id, ci.product_id, ci.quantity, p.name, p.category, p.price " +
+                            "FROM cart_items ci " +
+                            "JOIN products p ON ci.product_id = p.product_id " +
+                            "ORDER BY ci.cart_id");
+            rs = ps.executeQuery();
 
-                    // Add product to cart with specified quantity
-                    cart.addItem(product, quantity);
+            ShoppingCart owner = null;
+            while (rs.next()) {
+                owner = findParent(cartsById, owner, rs.getString("cart_id"), ShoppingCart::getCartId);
+                if (owner == null) {
+                    continue;
                 }
-                rs.close();
-                ps.close();
+
+                // For each cart item, we need the product and quantity
+                String productId = rs.getString("product_id");
+                int quantity = rs.getInt("quantity");
+
+                // Get the product from cache if it exists, or create a new one
+                Product product = lookup(products, productId);
+                if (product == null) {
+                    String name = rs.getString("name");
+                    String category = rs.getString("category");
+                    BigDecimal price = rs.getBigDecimal("price");
+
+                    product = new Product(name, category, price);
+                    // Set the product ID explicitly since we're reconstructing from DB
+                    product.setProductId(productId);
+                    product.markClean();
+                    cacheProduct(product);
+                }
+
+                // Add product to cart with specified quantity
+                owner.addItem(product, quantity);
             }
+            rs.close();
+            ps.close();
+
+            // Everything just read matches the database
+            cartsById.values().forEach(ShoppingCart::markClean);
 
         } finally {
             DatabaseUtils.close(conn, ps, rs);
         }
     }
 
+    /**
+     * Resolves the parent entity for a child row while streaming a child table
+     * ordered by parent key. Consecutive rows for the same parent reuse the
+     * previous lookup.
+     */
+    private static <T> T findParent(Map<String, T> parents, T previous, String parentId,
+            java.util.function.Function<T, String> idOf) {
+        if (previous != null && idOf.apply(previous).equals(parentId)) {
+            return previous;
+        }
+        return parentId != null ? parents.get(parentId) : null;
+    }
+
     // Data saving methods
+
+    /**
+     * Copies a cache's values so persistence iterates a fixed set of entities
+     * while other threads keep mutating the cache.
+     */
+    private static <T> List<T> snapshot(Map<String, T> cache) {
+        return new ArrayList<>(cache.values());
+    }
+
+    /**
+     * Queues every entity with unsaved changes for the background writer.
+     * Returns immediately; use {@link #flush()} to wait for the writes.
+     */
     public void saveAllData() {
         try {
-            saveUsers();
-            saveProducts();
-            saveOutfits();
-            saveCarts();
+            snapshot(users).stream()
+                    .filter(User::hasPendingChanges)
+                    .forEach(user -> writeQueue.enqueue(EntityType.USER, user.getUserId()));
+            snapshot(products).stream()
+                    .filter(Product::hasPendingChanges)
+                    .forEach(product -> writeQueue.enqueue(EntityType.PRODUCT,
+                            product.getProductId()));
+            snapshot(outfits).stream()
+                    .filter(outfit -> outfit.hasPendingChanges() || outfit.isEmpty())
+                    .forEach(outfit -> writeQueue.enqueue(EntityType.OUTFIT,
+                            outfit.getOutfitId()));
+            snapshot(carts).stream()
+                    .filter(ShoppingCart::isDirty)
+                    .forEach(cart -> writeQueue.enqueue(EntityType.CART, cart.getUserId()));
         } catch (Exception e) {
             System.err.println("Error saving all data: " + e.getMessage());
             e.printStackTrace();
         }
     }
 
-    private void saveUsers() {
+    /**
+     * Blocks until all queued writes have been attempted.
+     *
+     * @return false if some changes are still failing to save; they are
+     *         retried in the background
+     */
+    public boolean flush() {
+        return writeQueue.flush();
+    }
+
+    /**
+     * Queues any remaining changes, writes them, and stops the background writer.
+     * Called once when the application exits.
+     *
+     * @return false if some changes could not be saved; they are logged
+     */
+    public boolean shutdown() {
+        // Let holds already requested finish before the final save
+        reservationExecutor.shutdown();
+        try {
+            reservationExecutor.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        saveAllData();
+        reservations.shutdown();
+        boolean saved = writeQueue.shutdown();
+        DatabaseUtils.shutdown();
+        return saved;
+    }
+
+    /**
+     * Writes one batch of queued entities. Runs on the write-behind thread.
+     */
+    private boolean writeBatch(EntityType type, List<String> keys) {
+        switch (type) {
+            case USER:
+                return saveUsers(resolveKeys(users, keys));
+            case PRODUCT:
+                return saveProducts(resolveKeys(products, keys));
+            case OUTFIT:
+                return saveOutfits(resolveKeys(outfits, keys));
+            case CART:
+                return saveCarts(resolveKeys(carts, keys));
+            default:
+                return true;
+        }
+    }
+
+    /**
+     * Looks up queued keys, skipping entities that were removed since they were queued.
+     */
+    private static <T> List<T> resolveKeys(Map<String, T> cache, List<String> keys) {
+        List<T> resolved = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            T entity = cache.get(key);
+            if (entity != null) {
+                resolved.add(entity);
+            }
+        }
+        return resolved;
+    }
+
+    /**
+     * Adds the current parameters to the statement's batch and sends the batch
+     * once it reaches the configured chunk size.
+     *
+     * @return the number of rows now waiting in the batch
+     */
+    private int addToBatch(PreparedStatement ps, int batched) throws SQLException {
+        ps.addBatch();
+        if (++batched >= jdbcBatchSize) {
+            ps.executeBatch();
+            return 0;
+        }
+        return batched;
+    }
+
+    private static void finishBatch(PreparedStatement ps, int batched) throws SQLException {
+        if (batched > 0) {
+            ps.executeBatch();
+        }
+    }
+
+    /**
+     * Deletes the child rows of every given parent with one batched statement.
+     */
+    private <T> void deleteChildRows(Connection conn, String sql, Collection<T> parents,
+            java.util.function.Function<T, String> idOf) throws SQLException {
+        PreparedStatement ps = conn.prepareStatement(sql);
+        try {
+            int batched = 0;
+            for (T parent : parents) {
+                ps.setString(1, idOf.apply(parent));
+                batched = addToBatch(ps, batched);
+            }
+            finishBatch(ps, batched);
+        } finally {
+            ps.close();
+        }
+    }
+
+    private boolean saveUsers(Collection<User> toSave) {
+        if (toSave.isEmpty()) {
+            return true;
+        }
+
         Connection conn = null;
         PreparedStatement ps = null;
         boolean databaseSaved = false;
 
+        // Only users with pending changes are written
+        List<User> savedUsers = new ArrayList<>();
+
         try {
             conn = DatabaseUtils.getConnection();
             conn.setAutoCommit(false);
 
-            // Make sure the users table has the new columns - using more compatible approach
-            try {
-                // Check if columns exist first, then add them if they don't
-                java.sql.DatabaseMetaData dbm = conn.getMetaData();
-                java.sql.ResultSet rs = dbm.getColumns(null, null, "users", "is_deactivated");
-                boolean isDeactivatedExists = rs.next();
-                rs.close();
-                
-                rs = dbm.getColumns(null, null, "users", "deactivation_date");
-                boolean deactivationDateExists = rs.next();
-                rs.close();
-                
-                rs = dbm.getColumns(null, null, "users", "is_dark_mode");
-                boolean isDarkModeExists = rs.next();
-                rs.close();
-                
-                rs = dbm.getColumns(null, null, "users", "is_banned");
-                boolean isBannedExists = rs.next();
-                rs.close();
-                
-                rs = dbm.getColumns(null, null, "users", "ban_reason");
-                boolean banReasonExists = rs.next();
-                rs.close();
-                
-                rs = dbm.getColumns(null, null, "users", "ban_expiration");
-                boolean banExpirationExists = rs.next();
-                rs.close();
-                
-                // Add each column individually if it doesn't exist
-                if (!isDeactivatedExists) {
-                    ps = conn.prepareStatement("ALTER TABLE users ADD COLUMN is_deactivated BOOLEAN DEFAULT FALSE");
-                    ps.executeUpdate();
-                    ps.close();
-                }
-                
-                if (!deactivationDateExists) {
-                    ps = conn.prepareStatement("ALTER TABLE users ADD COLUMN deactivation_date TIMESTAMP NULL");
-                    ps.executeUpdate();
-                    ps.close();
-                }
-                
-                if (!isDarkModeExists) {
-                    ps = conn.prepareStatement("ALTER TABLE users ADD COLUMN is_dark_mode BOOLEAN DEFAULT FALSE");
-                    ps.executeUpdate();
-                    ps.close();
+            // Clear the flags before writing so changes made while this
+            // write is in flight are picked up by the next flush
+            List<User> changedRows = new ArrayList<>();
+            List<User> changedWardrobes = new ArrayList<>();
+            List<User> changedPreferences = new ArrayList<>();
+            for (User user : toSave) {
+                if (!user.hasPendingChanges()) {
+                    continue;
                 }
-                
-                if (!isBannedExists) {
-                    ps = conn.prepareStatement("ALTER TABLE users ADD COLUMN is_banned BOOLEAN DEFAULT FALSE");
-                    ps.executeUpdate();
-                    ps.close();
+                if (user.isDirty()) {
+                    changedRows.add(user);
                 }
-                
-                if (!banReasonExists) {
-                    ps = conn.prepareStatement("ALTER TABLE users ADD COLUMN ban_reason VARCHAR(255) NULL");
-                    ps.executeUpdate();
-                    ps.close();
+                if (user.isWardrobeDirty()) {
+                    changedWardrobes.add(user);
                 }
-                
-                if (!banExpirationExists) {
-                    ps = conn.prepareStatement("ALTER TABLE users ADD COLUMN ban_expiration TIMESTAMP NULL");
-                    ps.executeUpdate();
-                    ps.close();
+                if (user.isStylePreferencesDirty()) {
+                    changedPreferences.add(user);
                 }
-                
-                System.out.println("Successfully updated users table schema");
-                
-            } catch (SQLException e) {
-                System.err.println("Warning: Could not update users table schema: " + e.getMessage());
-                // Continue anyway, as we'll save to memory
+                user.markClean();
+                savedUsers.add(user);
             }
 
-            // Clear existing style preferences to avoid duplicates
-            ps = conn.prepareStatement("DELETE FROM style_preferences");
-            ps.executeUpdate();
-            ps.close();
-
-            // Clear existing wardrobe items to avoid duplicates
-            ps = conn.prepareStatement("DELETE FROM wardrobe_items");
-            ps.executeUpdate();
-            ps.close();
-
-            for (User user : users.values()) {
-                try {
-                    // First, check if the user exists
-                    ps = conn.prepareStatement("SELECT user_id FROM users WHERE user_id = ?");
+            // Upsert user records in one batched statement
+            if (!changedRows.isEmpty()) {
+                ps = conn.prepareStatement(
+                        "INSERT INTO users " +
+                                "(user_id, username, email, password_hash, first_name, last_name, date_registered, " +
+                                "last_login, is_deactivated, deactivation_date, is_dark_mode, is_banned, ban_reason, ban_expiration) " +
+                                "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) " +
+                                "ON DUPLICATE KEY UPDATE " +
+                                "username = VALUES(username), " +
+                                "email = VALUES(email), " +
+                                "password_hash = VALUES(password_hash), " +
+                                "first_name = VALUES(first_name), " +
+                                "last_name = VALUES(last_name), " +
+                                "last_login = VALUES(last_login), " +
+                                "is_deactivated = VALUES(is_deactivated), " +
+                                "deactivation_date = VALUES(deactivation_date), " +
+                                "is_dark_mode = VALUES(is_dark_mode), " +
+                                "is_banned = VALUES(is_banned), " +
+                                "ban_reason = VALUES(ban_reason), " +
+                                "ban_expiration = VALUES(ban_expiration)");
+
+                int batched = 0;
+                for (User user : changedRows) {
                     ps.setString(1, user.getUserId());
-                    boolean userExists = ps.executeQuery().next();
-                    ps.close();
-                    
-                    if (userExists) {
-                        // If user exists, do an UPDATE
-                        ps = conn.prepareStatement(
-                                "UPDATE users SET " +
-                                        "username = ?, " +
-                                        "email = ?, " +
-                                        "password_hash = ?, " +
-                                        "first_name = ?, " +
-                                        "last_name = ?, " +
-                                        "last_login = ?, " +
-                                        "is_deactivated = ?, " +
-                                        "deactivation_date = ?, " +
-                                        "is_dark_mode = ?, " +
-                                        "is_banned = ?, " +
-                                        "ban_reason = ?, " +
-                                        "ban_expiration = ? " +
-                                        "WHERE user_id = ?");
-                        
-                        ps.setString(1, user.getUsername());
-                        ps.setString(2, user.getEmail());
-                        ps.setString(3, user.getPasswordHash());
-                        ps.setString(4, user.getFirstName());
-                        ps.setString(5, user.getLastName());
-                        ps.setTimestamp(6, user.getLastLogin() != null ? new Timestamp(user.getLastLogin().getTime()) : null);
-                        ps.setBoolean(7, user.isDeactivated());
-                        ps.setTimestamp(8,
-                                user.getDeactivationDate() != null ? new Timestamp(user.getDeactivationDate().getTime())
-                                        : null);
-                        ps.setBoolean(9, user.isDarkModeEnabled());
-                        ps.setBoolean(10, user.isBanned());
-                        ps.setString(11, user.getBanReason());
-                        ps.setTimestamp(12,
-                                user.getBanExpiration() != null ? new Timestamp(user.getBanExpiration().getTime()) : null);
-                        ps.setString(13, user.getUserId());
-                        
-                    } else {
-                        // If user doesn't exist, do an INSERT
-                        ps = conn.prepareStatement(
-                                "INSERT INTO users " +
-                                        "(user_id, username, email, password_hash, first_name, last_name, date_registered, " +
-                                        "last_login, is_deactivated, deactivation_date, is_dark_mode, is_banned, ban_reason, ban_expiration) " +
-                                        "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)");
-                        
-                        ps.setString(1, user.getUserId());
-                        ps.setString(2, user.getUsername());
-                        ps.setString(3, user.getEmail());
-                        ps.setString(4, user.getPasswordHash());
-                        ps.setString(5, user.getFirstName());
-                        ps.setString(6, user.getLastName());
-                        ps.setTimestamp(7,
-                                user.getDateRegistered() != null ? new Timestamp(user.getDateRegistered().getTime()) : null);
-                        ps.setTimestamp(8, user.getLastLogin() != null ? new Timestamp(user.getLastLogin().getTime()) : null);
-                        ps.setBoolean(9, user.isDeactivated());
-                        ps.setTimestamp(10,
-                                user.getDeactivationDate() != null ? new Timestamp(user.getDeactivationDate().getTime())
-                                        : null);
-                        ps.setBoolean(11, user.isDarkModeEnabled());
-                        ps.setBoolean(12, user.isBanned());
-                        ps.setString(13, user.getBanReason());
-                        ps.setTimestamp(14,
-                                user.getBanExpiration() != null ? new Timestamp(user.getBanExpiration().getTime()) : null);
-                    }
-                    
-                    ps.executeUpdate();
-                    ps.close();
-                    
-                    // Log user saving
-                    System.out.println("Saved user: " + user.getUsername() + " (ID: " + user.getUserId() + ")");
-                
-                } catch (SQLException e) {
-                    System.err.println("Error saving user " + user.getUsername() + ": " + e.getMessage());
-                    throw e; // Rethrow to trigger rollback
+                    ps.setString(2, user.getUsername());
+                    ps.setString(3, user.getEmail());
+                    ps.setString(4, user.getPasswordHash());
+                    ps.setString(5, user.getFirstName());
+                    ps.setString(6, user.getLastName());
+                    ps.setTimestamp(7,
+                            user.getDateRegistered() != null ? new Timestamp(user.getDateRegistered().getTime()) : null);
+                    ps.setTimestamp(8, user.getLastLogin() != null ? new Timestamp(user.getLastLogin().getTime()) : null);
+                    ps.setBoolean(9, user.isDeactivated());
+                    ps.setTimestamp(10,
+                            user.getDeactivationDate() != null ? new Timestamp(user.getDeactivationDate().getTime())
+                                    : null);
+                    ps.setBoolean(11, user.isDarkModeEnabled());
+                    ps.setBoolean(12, user.isBanned());
+                    ps.setString(13, user.getBanReason());
+                    ps.setTimestamp(14,
+                            user.getBanExpiration() != null ? new Timestamp(user.getBanExpiration().getTime()) : null);
+                    batched = addToBatch(ps, batched);
                 }
+                finishBatch(ps, batched);
+                ps.close();
+            }
 
-                // Insert wardrobe items
-                if (!user.getWardrobeItemIds().isEmpty()) {
-                    ps = conn.prepareStatement(
-                            "INSERT INTO wardrobe_items (user_id, product_id) VALUES (?, ?)");
+            // Replace the wardrobe items of users whose wardrobe changed
+            if (!changedWardrobes.isEmpty()) {
+                deleteChildRows(conn, "DELETE FROM wardrobe_items WHERE user_id = ?", changedWardrobes,
+                        User::getUserId);
 
+                ps = conn.prepareStatement("INSERT INTO wardrobe_items (user_id, product_id) VALUES (?, ?)");
+                int batched = 0;
+                for (User user : changedWardrobes) {
                     for (String productId : user.getWardrobeItemIds()) {
                         ps.setString(1, user.getUserId());
                         ps.setString(2, productId);
-                        ps.addBatch();
+                        batched = addToBatch(ps, batched);
                     }
-
-                    ps.executeBatch();
-                    ps.close();
                 }
+                finishBatch(ps, batched);
+                ps.close();
+            }
 
-                // Insert style preferences
-                if (!user.getStylePreferences().isEmpty()) {
-                    ps = conn.prepareStatement(
-                            "INSERT INTO style_preferences " +
-                                    "(preference_id, user_id, preference_type, preference_value, preference_weight) " +
-                                    "VALUES (?, ?, ?, ?, ?)");
+            // Replace the style preferences of users whose preferences changed
+            if (!changedPreferences.isEmpty()) {
+                deleteChildRows(conn, "DELETE FROM style_preferences WHERE user_id = ?", changedPreferences,
+                        User::getUserId);
 
+                ps = conn.prepareStatement(
+                        "INSERT INTO style_preferences " +
+                                "(preference_id, user_id, preference_type, preference_value, preference_weight) " +
+                                "VALUES (?, ?, ?, ?, ?)");
+                int batched = 0;
+                for (User user : changedPreferences) {
                     for (StylePreference pref : user.getStylePreferences()) {
-                        String prefId = UUID.randomUUID().toString();
-                        ps.setString(1, prefId);
+                        ps.setString(1, UUID.randomUUID().toString());
                         ps.setString(2, user.getUserId());
                         ps.setString(3, pref.getType());
                         ps.setString(4, pref.getValue());
                         ps.setDouble(5, pref.getWeight());
-                        ps.addBatch();
+                        batched = addToBatch(ps, batched);
                     }
-
-                    ps.executeBatch();
-                    ps.close();
                 }
+                finishBatch(ps, batched);
+                ps.close();
             }
 
             conn.commit();
             databaseSaved = true;
-            System.out.println("Saved " + users.size() + " users to database");
+            System.out.println("Saved " + savedUsers.size() + " changed users to database");
 
         } catch (SQLException e) {
             System.err.println("Error saving users to database: " + e.getMessage());
             e.printStackTrace();
+            savedUsers.forEach(User::markDirty);
 
             try {
                 if (conn != null)
@@ -744,30 +999,55 @@ public class DataManager {
         if (!databaseSaved) {
             System.err.println("Failed to save users to database!");
         }
+        return databaseSaved;
     }
 
-    private void saveProducts() {
+    private boolean saveProducts(Collection<Product> toSave) {
+        if (toSave.isEmpty()) {
+            return true;
+        }
+
         Connection conn = null;
         PreparedStatement ps = null;
+        boolean databaseSaved = false;
+
+        // Only products with pending changes are written
+        List<Product> savedProducts = new ArrayList<>();
 
         try {
             conn = DatabaseUtils.getConnection();
             conn.setAutoCommit(false);
 
-            // Clear existing product attributes to avoid duplicates
-            ps = conn.prepareStatement("DELETE FROM product_attributes");
-            ps.executeUpdate();
-            ps.close();
+            // Clear the flags before writing so changes made while this
+            // write is in flight are picked up by the next flush
+            List<Product> changedRows = new ArrayList<>();
+            List<Product> changedAttributes = new ArrayList<>();
+            for (Product product : toSave) {
+                if (!product.hasPendingChanges()) {
+                    continue;
+                }
+                if (product.isDirty()) {
+                    changedRows.add(product);
+                }
+                if (product.isAttributesDirty()) {
+                    changedAttributes.add(product);
+                }
+                product.markClean();
+                savedProducts.add(product);
+            }
 
-            for (Product product : products.values()) {
-                // Upsert product record
+            // Upsert product records in one batched statement. Stock is only
+            // written for new rows; existing stock changes go through the
+            // version-checked stock methods so they cannot be overwritten
+            if (!changedRows.isEmpty()) {
                 ps = conn.prepareStatement(
                         "INSERT INTO products " +
                                 "(product_id, name, description, brand, category, subcategory, price, " +
                                 "original_price, cost, gender, size, color, material, season, " +
                                 "image_path, stock_quantity, date_added, last_updated, is_featured, " +
-                                "average_rating, review_count, is_visible) " +
-                                "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) " +
+                                "average_rating, review_count, is_visible, " +
+                                "thumbnail_card, thumbnail_chip, thumbnail_preview) " +
+                                "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) " +
                                 "ON DUPLICATE KEY UPDATE " +
                                 "name = VALUES(name), " +
                                 "description = VALUES(description), " +
@@ -783,66 +1063,79 @@ public class DataManager {
                                 "material = VALUES(material), " +
                                 "season = VALUES(season), " +
                                 "image_path = VALUES(image_path), " +
-                                "stock_quantity = VALUES(stock_quantity), " +
                                 "last_updated = VALUES(last_updated), " +
                                 "is_featured = VALUES(is_featured), " +
                                 "average_rating = VALUES(average_rating), " +
                                 "review_count = VALUES(review_count), " +
-                                "is_visible = VALUES(is_visible)");
-
-                ps.setString(1, product.getProductId());
-                ps.setString(2, product.getName());
-                ps.setString(3, product.getDescription());
-                ps.setString(4, product.getBrand());
-                ps.setString(5, product.getCategory());
-                ps.setString(6, product.getSubcategory());
-                ps.setBigDecimal(7, product.getPrice());
-                ps.setBigDecimal(8, product.getOriginalPrice());
-                ps.setBigDecimal(9, product.getCost());
-                ps.setString(10, product.getGender());
-                ps.setString(11, product.getSize());
-                ps.setString(12, product.getColor());
-                ps.setString(13, product.getMaterial());
-                ps.setString(14, product.getSeason());
-                ps.setString(15, product.getImagePath());
-                ps.setInt(16, product.getStockQuantity());
-                ps.setTimestamp(17,
-                        product.getDateAdded() != null ? new Timestamp(product.getDateAdded().getTime()) : null);
-                ps.setTimestamp(18,
-                        product.getLastUpdated() != null ? new Timestamp(product.getLastUpdated().getTime()) : null);
-                ps.setBoolean(19, product.isFeatured());
-                ps.setDouble(20, product.getAverageRating());
-                ps.setInt(21, product.getReviewCount());
-                ps.setBoolean(22, product.isVisible());
-
-                ps.executeUpdate();
+                                "is_visible = VALUES(is_visible), " +
+                                "thumbnail_card = VALUES(thumbnail_card), " +
+                                "thumbnail_chip = VALUES(thumbnail_chip), " +
+                                "thumbnail_preview = VALUES(thumbnail_preview)");
+
+                int batched = 0;
+                for (Product product : changedRows) {
+                    ps.setString(1, product.getProductId());
+                    ps.setString(2, product.getName());
+                    ps.setString(3, product.getDescription());
+                    ps.setString(4, product.getBrand());
+                    ps.setString(5, product.getCategory());
+                    ps.setString(6, product.getSubcategory());
+                    ps.setBigDecimal(7, product.getPrice());
+                    ps.setBigDecimal(8, product.getOriginalPrice());
+                    ps.setBigDecimal(9, product.getCost());
+                    ps.setString(10, product.getGender());
+                    ps.setString(11, product.getSize());
+                    ps.setString(12, product.getColor());
+                    ps.setString(13, product.getMaterial());
+                    ps.setString(14, product.getSeason());
+                    ps.setString(15, product.getImagePath());
+                    ps.setInt(16, product.getStockQuantity());
+                    ps.setTimestamp(17,
+                            product.getDateAdded() != null ? new Timestamp(product.getDateAdded().getTime()) : null);
+                    ps.setTimestamp(18,
+                            product.getLastUpdated() != null ? new Timestamp(product.getLastUpdated().getTime()) : null);
+                    ps.setBoolean(19, product.isFeatured());
+                    ps.setDouble(20, product.getAverageRating());
+                    ps.setInt(21, product.getReviewCount());
+                    ps.setBoolean(22, product.isVisible());
+                    ps.setString(23, product.getCardThumbnailPath());
+                    ps.setString(24, product.getChipThumbnailPath());
+                    ps.setString(25, product.getPreviewThumbnailPath());
+                    batched = addToBatch(ps, batched);
+                }
+                finishBatch(ps, batched);
                 ps.close();
+            }
 
-                // Insert product attributes
-                Map<String, String> attributes = product.getAllAttributes();
-                if (!attributes.isEmpty()) {
-                    ps = conn.prepareStatement(
-                            "INSERT INTO product_attributes (product_id, attribute_name, attribute_value) " +
-                                    "VALUES (?, ?, ?)");
+            // Replace the attributes of products whose attributes changed
+            if (!changedAttributes.isEmpty()) {
+                deleteChildRows(conn, "DELETE FROM product_attributes WHERE product_id = ?", changedAttributes,
+                        Product::getProductId);
 
-                    for (Map.Entry<String, String> entry : attributes.entrySet()) {
+                ps = conn.prepareStatement(
+                        "INSERT INTO product_attributes (product_id, attribute_name, attribute_value) " +
+                                "VALUES (?, ?, ?)");
+                int batched = 0;
+                for (Product product : changedAttributes) {
+                    for (Map.Entry<String, String> entry : product.getAllAttributes().entrySet()) {
                         ps.setString(1, product.getProductId());
                         ps.setString(2, entry.getKey());
                         ps.setString(3, entry.getValue());
-                        ps.addBatch();
+                        batched = addToBatch(ps, batched);
                     }
-
-                    ps.executeBatch();
-                    ps.close();
                 }
+                finishBatch(ps, batched);
+                ps.close();
             }
 
             conn.commit();
-            System.out.println("Saved " + products.size() + " products to database");
+            databaseSaved = true;
+            System.out.println("Saved " + savedProducts.size() + " changed products to database");
 
         } catch (SQLException e) {
             System.err.println("Error saving products: " + e.getMessage());
             e.printStackTrace();
+            savedProducts.forEach(Product::markDirty);
 
             try {
                 if (conn != null)
@@ -860,48 +1153,51 @@ public class DataManager {
 
             DatabaseUtils.close(conn, ps, null);
         }
+
+        return databaseSaved;
     }
 
-    private void saveOutfits() {
+    private boolean saveOutfits(Collection<Outfit> toSave) {
+        if (toSave.isEmpty()) {
+            return true;
+        }
+
         Connection conn = null;
         PreparedStatement ps = null;
+        boolean databaseSaved = false;
+
+        // Only outfits with pending changes are written
+        List<Outfit> savedOutfits = new ArrayList<>();
 
         try {
             conn = DatabaseUtils.getConnection();
             conn.setAutoCommit(false);
 
-            // Filter out empty outfits
-            List<Outfit> emptyOutfits = outfits.values().stream()
-                    .filter(outfit -> outfit.getProductIds().isEmpty())
-                    .collect(java.util.stream.Collectors.toList());
-
-            System.out.println("saveOutfits: Found " + emptyOutfits.size() + " empty outfits to remove");
-
-            // Remove empty outfits from the collection
-            for (Outfit emptyOutfit : emptyOutfits) {
-                outfits.remove(emptyOutfit.getOutfitId());
-
-                // Also remove from user's outfit list
-                User user = users.get(emptyOutfit.getUserId());
-                if (user != null) {
-                    user.removeOutfit(emptyOutfit.getOutfitId());
+            // Clear the flags before writing so changes made while this
+            // write is in flight are picked up by the next flush
+            List<Outfit> changedRows = new ArrayList<>();
+            List<Outfit> changedProducts = new ArrayList<>();
+            List<Outfit> changedTags = new ArrayList<>();
+            for (Outfit outfit : toSave) {
+                // Outfits are removed where they are emptied; never write one without products
+                if (outfit.isEmpty() || !outfit.hasPendingChanges()) {
+                    continue;
                 }
-
-                System.out.println("saveOutfits: Removed empty outfit: " + emptyOutfit.getName() +
-                        " (ID: " + emptyOutfit.getOutfitId() + ")");
+                if (outfit.isDirty()) {
+                    changedRows.add(outfit);
+                }
+                if (outfit.isProductsDirty()) {
+                    changedProducts.add(outfit);
+                }
+                if (outfit.isTagsDirty()) {
+                    changedTags.add(outfit);
+                }
+                outfit.markClean();
+                savedOutfits.add(outfit);
             }
 
-            // Clear existing outfit products and tags to avoid duplicates
-            ps = conn.prepareStatement("DELETE FROM outfit_products");
-            ps.executeUpdate();
-            ps.close();
-
-            ps = conn.prepareStatement("DELETE FROM outfit_tags");
-            ps.executeUpdate();
-            ps.close();
-
-            for (Outfit outfit : outfits.values()) {
-                // Upsert outfit record
+            // Upsert outfit records in one batched statement
+            if (!changedRows.isEmpty()) {
                 ps = conn.prepareStatement(
                         "INSERT INTO outfits " +
                                 "(outfit_id, user_id, name, description, created_at, last_modified, " +
@@ -917,60 +1213,71 @@ public class DataManager {
                                 "season = VALUES(season), " +
                                 "occasion = VALUES(occasion)");
 
-                ps.setString(1, outfit.getOutfitId());
-                ps.setString(2, outfit.getUserId());
-                ps.setString(3, outfit.getName());
-                ps.setString(4, outfit.getDescription());
-                ps.setTimestamp(5,
-                        outfit.getCreatedAt() != null ? new Timestamp(outfit.getCreatedAt().getTime()) : null);
-                ps.setTimestamp(6,
-                        outfit.getLastModified() != null ? new Timestamp(outfit.getLastModified().getTime()) : null);
-                ps.setBoolean(7, outfit.isAiGenerated());
-                ps.setDouble(8, outfit.getStyleRating());
-                ps.setInt(9, outfit.getLikesCount());
-                ps.setString(10, outfit.getSeason() != null ? outfit.getSeason().name() : null);
-                ps.setString(11, outfit.getOccasion() != null ? outfit.getOccasion().name() : null);
-
-                ps.executeUpdate();
+                int batched = 0;
+                for (Outfit outfit : changedRows) {
+                    ps.setString(1, outfit.getOutfitId());
+                    ps.setString(2, outfit.getUserId());
+                    ps.setString(3, outfit.getName());
+                    ps.setString(4, outfit.getDescription());
+                    ps.setTimestamp(5,
+                            outfit.getCreatedAt() != null ? new Timestamp(outfit.getCreatedAt().getTime()) : null);
+                    ps.setTimestamp(6,
+                            outfit.getLastModified() != null ? new Timestamp(outfit.getLastModified().getTime()) : null);
+                    ps.setBoolean(7, outfit.isAiGenerated());
+                    ps.setDouble(8, outfit.getStyleRating());
+                    ps.setInt(9, outfit.getLikesCount());
+                    ps.setString(10, outfit.getSeason() != null ? outfit.getSeason().name() : null);
+                    ps.setString(11, outfit.getOccasion() != null ? outfit.getOccasion().name() : null);
+                    batched = addToBatch(ps, batched);
+                }
+                finishBatch(ps, batched);
                 ps.close();
+            }
 
-                // Insert outfit products
-                if (!outfit.getProductIds().isEmpty()) {
-                    ps = conn.prepareStatement(
-                            "INSERT INTO outfit_products (outfit_id, product_id) VALUES (?, ?)");
+            // Replace the products of outfits whose products changed
+            if (!changedProducts.isEmpty()) {
+                deleteChildRows(conn, "DELETE FROM outfit_products WHERE outfit_id = ?", changedProducts,
+                        Outfit::getOutfitId);
 
+                ps = conn.prepareStatement("INSERT INTO outfit_products (outfit_id, product_id) VALUES (?, ?)");
+                int batched = 0;
+                for (Outfit outfit : changedProducts) {
                     for (String productId : outfit.getProductIds()) {
                         ps.setString(1, outfit.getOutfitId());
                         ps.setString(2, productId);
-                        ps.addBatch();
+                        batched = addToBatch(ps, batched);
                     }
-
-                    ps.executeBatch();
-                    ps.close();
                 }
+                finishBatch(ps, batched);
+                ps.close();
+            }
 
-                // Insert outfit tags
-                if (!outfit.getTags().isEmpty()) {
-                    ps = conn.prepareStatement(
-                            "INSERT INTO outfit_tags (outfit_id, tag) VALUES (?, ?)");
+            // Replace the tags of outfits whose tags changed
+            if (!changedTags.isEmpty()) {
+                deleteChildRows(conn, "DELETE FROM outfit_tags WHERE outfit_id = ?", changedTags,
+                        Outfit::getOutfitId);
 
+                ps = conn.prepareStatement("INSERT INTO outfit_tags (outfit_id, tag) VALUES (?, ?)");
+                int batched = 0;
+                for (Outfit outfit : changedTags) {
                     for (String tag : outfit.getTags()) {
                         ps.setString(1, outfit.getOutfitId());
                         ps.setString(2, tag);
-                        ps.addBatch();
+                        batched = addToBatch(ps, batched);
                     }
-
-                    ps.executeBatch();
-                    ps.close();
                 }
+                finishBatch(ps, batched);
+                ps.close();
             }
 
             conn.commit();
-            System.out.println("Saved " + outfits.size() + " outfits to database");
+            databaseSaved = true;
+            System.out.println("Saved " + savedOutfits.size() + " changed outfits to database");
 
         } catch (SQLException e) {
             System.err.println("Error saving outfits: " + e.getMessage());
             e.printStackTrace();
+            savedOutfits.forEach(Outfit::markDirty);
 
             try {
                 if (conn != null)
@@ -988,57 +1295,77 @@ public class DataManager {
 
             DatabaseUtils.close(conn, ps, null);
         }
+
+        return databaseSaved;
     }
 
-    private void saveCarts() {
+    private boolean saveCarts(Collection<ShoppingCart> toSave) {
+        if (toSave.isEmpty()) {
+            return true;
+        }
+
         Connection conn = null;
         PreparedStatement ps = null;
+        boolean databaseSaved = false;
+
+        // Only carts with pending changes are written
+        List<ShoppingCart> savedCarts = new ArrayList<>();
 
         try {
             conn = DatabaseUtils.getConnection();
             conn.setAutoCommit(false);
 
-            // Clear existing cart items to avoid duplicates
-            ps = conn.prepareStatement("DELETE FROM cart_items");
-            ps.executeUpdate();
-            ps.close();
+            // Clear the flags before writing so changes made while this
+            // write is in flight are picked up by the next flush
+            for (ShoppingCart cart : toSave) {
+                if (cart.isDirty()) {
+                    cart.markClean();
+                    savedCarts.add(cart);
+                }
+            }
 
-            for (ShoppingCart cart : carts.values()) {
-                // Upsert cart record
+            if (!savedCarts.isEmpty()) {
+                // Upsert cart records in one batched statement
                 ps = conn.prepareStatement(
                         "INSERT INTO shopping_carts (cart_id, user_id) " +
                                 "VALUES (?, ?) " +
                                 "ON DUPLICATE KEY UPDATE user_id = VALUES(user_id)");
-
-                ps.setString(1, cart.getCartId());
-                ps.setString(2, cart.getUserId());
-
-                ps.executeUpdate();
+                int batched = 0;
+                for (ShoppingCart cart : savedCarts) {
+                    ps.setString(1, cart.getCartId());
+                    ps.setString(2, cart.getUserId());
+                    batched = addToBatch(ps, batched);
+                }
+                finishBatch(ps, batched);
                 ps.close();
 
-                // Insert cart items
-                if (!cart.getItems().isEmpty()) {
-                    ps = conn.prepareStatement(
-                            "INSERT INTO cart_items (cart_id, product_id, quantity) VALUES (?, ?, ?)");
+                // Replace the items of every changed cart
+                deleteChildRows(conn, "DELETE FROM cart_items WHERE cart_id = ?", savedCarts,
+                        ShoppingCart::getCartId);
 
+                ps = conn.prepareStatement(
+                        "INSERT INTO cart_items (cart_id, product_id, quantity) VALUES (?, ?, ?)");
+                batched = 0;
+                for (ShoppingCart cart : savedCarts) {
                     for (ShoppingCart.CartItem item : cart.getItems()) {
                         ps.setString(1, cart.getCartId());
                         ps.setString(2, item.getProduct().getProductId());
                         ps.setInt(3, item.getQuantity());
-                        ps.addBatch();
+                        batched = addToBatch(ps, batched);
                     }
-
-                    ps.executeBatch();
-                    ps.close();
                 }
+                finishBatch(ps, batched);
+                ps.close();
             }
 
             conn.commit();
-            System.out.println("Saved " + carts.size() + " shopping carts to database");
+            databaseSaved = true;
+            System.out.println("Saved " + savedCarts.size() + " changed shopping carts to database");
 
         } catch (SQLException e) {
             System.err.println("Error saving carts: " + e.getMessage());
             e.printStackTrace();
+            savedCarts.forEach(ShoppingCart::markDirty);
 
             try {
                 if (conn != null)
@@ -1056,6 +1383,8 @@ public class DataManager {
 
             DatabaseUtils.close(conn, ps, null);
         }
+
+        return databaseSaved;
     }
 
     // User management
@@ -1068,46 +1397,47 @@ public class DataManager {
     }
 
     public User getUser(String userId) {
-        return users.get(userId);
+        return lookup(users, userId);
     }
 
+    /**
+     * Looks a user up by username. Usernames are matched case-insensitively,
+     * like the UNIQUE constraint on users.username.
+     */
     public User getUserByUsername(String username) {
         if (username == null || username.isEmpty()) {
             return null;
         }
 
-        // Special case for admin user
-        if (username.equals("admin")) {
-            // First check if we have a real admin user in the data store
-            for (User user : users.values()) {
-                if (user.getUsername().equals("admin")) {
-                    System.out.println("Found admin user in the user store");
-                    return user;
-                }
-            }
+        User user = findIndexedUser(username);
 
-            // If not, create a temporary admin user with hardcoded credentials
+        // Special case for admin user
+        if (user == null && username.equals("admin")) {
+            // If there is no real admin user, create a temporary admin user with hardcoded credentials
             System.out.println("Creating temporary admin user");
-            User adminUser = new User("admin", "admin@example.com", "admin");
-            return adminUser;
+            return new User("admin", "admin@example.com", "admin");
         }
 
-        // Normal case - find user by username
-        for (User user : users.values()) {
-            if (username.equals(user.getUsername())) {
-                return user;
-            }
-        }
+        return user;
+    }
 
-        return null;
+    private User findIndexedUser(String username) {
+        String key = usernameKey(username);
+        User user = usersByUsername.get(key);
+        if (user != null && !key.equals(usernameKey(user.getUsername()))) {
+            // Left behind by a rename; the user is indexed under its new name
+            usersByUsername.remove(key, user);
+            return null;
+        }
+        return user;
     }
 
     public void addUser(User user) {
         if (user == null || user.getUserId() == null) {
             throw new IllegalArgumentException("User or user ID cannot be null");
         }
-        users.put(user.getUserId(), user);
-        saveUsers(); // Save immediately when a user is added
+        cacheUser(user);
+        persist(EntityType.USER, user.getUserId());
     }
 
     /**
@@ -1125,6 +1455,18 @@ public class DataManager {
         Connection conn = null;
         PreparedStatement ps = null;
 
+        // Drop queued writes for the user and everything they own, then let
+        // batches already in flight land so they cannot re-insert deleted rows
+        writeQueue.cancel(EntityType.USER, userId);
+        writeQueue.cancel(EntityType.CART, userId);
+        Set<String> ownedOutfitIds = outfitIdsByUser.get(userId);
+        if (ownedOutfitIds != null) {
+            for (String outfitId : ownedOutfitIds) {
+                writeQueue.cancel(EntityType.OUTFIT, outfitId);
+            }
+        }
+        flush();
+
         try {
             conn = DatabaseUtils.getConnection();
             conn.setAutoCommit(false);
@@ -1165,7 +1507,7 @@ public class DataManager {
                 psOutfit.close();
 
                 // Also remove from memory
-                outfits.remove(outfitId);
+                uncacheOutfit(outfitId);
             }
             rs.close();
             ps.close();
@@ -1216,30 +1558,21 @@ public class DataManager {
         System.out.println("Removing user " + userId + " from in-memory storage");
 
         // Get user's outfits first to remove them
-        User userToRemove = users.get(userId);
+        User userToRemove = lookup(users, userId);
         if (userToRemove != null) {
             List<String> outfitIds = new ArrayList<>(userToRemove.getOutfitIds());
             for (String outfitId : outfitIds) {
-                outfits.remove(outfitId);
+                uncacheOutfit(outfitId);
                 userToRemove.removeOutfit(outfitId);
             }
         }
 
         // Remove from memory
-        User removedUser = users.remove(userId);
+        User removedUser = uncacheUser(userId);
         carts.remove(userId);
 
         if (removedUser != null) {
             System.out.println("User removed from memory: " + removedUser.getUsername());
-
-            // Try to save the changes to persist them
-            try {
-                saveUsers();
-                saveOutfits();
-            } catch (Exception e) {
-                System.err.println("Error saving changes after user removal: " + e.getMessage());
-            }
-
             return true;
         }
 
@@ -1255,12 +1588,12 @@ public class DataManager {
         if (product == null || product.getProductId() == null) {
             throw new IllegalArgumentException("Product or product ID cannot be null");
         }
-        products.put(product.getProductId(), product);
-        saveProducts(); // Save immediately when a product is added
+        cacheProduct(product);
+        persist(EntityType.PRODUCT, product.getProductId());
     }
 
     public Product getProduct(String productId) {
-        return products.get(productId);
+        return lookup(products, productId);
     }
 
     public List<Product> getAllProducts() {
@@ -1268,14 +1601,67 @@ public class DataManager {
     }
 
     /**
-     * Gets all visible products from the store
+     * Reads the image and thumbnail paths every product in the database
+     * references, including products other clients added since this one
+     * loaded its catalogue.
+     *
+     * @return the paths, or null if the database could not be read
+     */
+    public Set<String> getReferencedImagePaths() {
+        Connection conn = null;
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+
+        try {
+            conn = DatabaseUtils.getConnection();
+            ps = DatabaseUtils.prepareStreaming(conn,
+                    "SELECT image_path, thumbnail_card, thumbnail_chip, thumbnail_preview FROM products");
+            rs = ps.executeQuery();
+
+            Set<String> paths = new HashSet<>();
+            while (rs.next()) {
+                for (int column = 1; column <= 4; column++) {
+                    String path = rs.getString(column);
+                    if (path != null) {
+                        paths.add(path);
+                    }
+                }
+            }
+            return paths;
+        } catch (SQLException e) {
+            System.err.println("Error reading product image paths: " + e.getMessage());
+            return null;
+        } finally {
+            DatabaseUtils.close(conn, ps, rs);
+        }
+    }
+
+    /**
+     * Gets all visible products from the store. The list is a read-only
+     * snapshot that is shared until the next product change.
      * 
      * @return List of all visible products
      */
     public List<Product> getVisibleProducts() {
-        return products.values().stream()
-                .filter(product -> product != null && product.isVisible())
-                .collect(Collectors.toList());
+        List<Product> snapshot = visibleProducts;
+        if (snapshot == null) {
+            long generation;
+            synchronized (visibleProductsLock) {
+                generation = productGeneration;
+            }
+
+            snapshot = Collections.unmodifiableList(products.values().stream()
+                    .filter(product -> product != null && product.isVisible())
+                    .collect(Collectors.toList()));
+
+            // Only publish if no product changed while the snapshot was built
+            synchronized (visibleProductsLock) {
+                if (generation == productGeneration) {
+                    visibleProducts = snapshot;
+                }
+            }
+        }
+        return snapshot;
     }
 
     public List<Product> getProductsByIds(List<String> productIds) {
@@ -1289,12 +1675,60 @@ public class DataManager {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Searches the visible products through the search index. Every word of
+     * the text has to match the start of a word in the product's name, brand,
+     * description or attribute values.
+     *
+     * @param text     the search words; null or blank matches every product
+     * @param category the category to restrict to, or null for all
+     * @param range    the price range to restrict to, or null for all
+     * @return the matching products
+     */
+    public List<Product> searchProducts(String text, String category, PriceRange range) {
+        return searchIndex.search(text, category, range);
+    }
+
+    /**
+     * Typo-tolerant search of the visible products, best matches first.
+     * Misspelt words are matched against product names and brands, and
+     * results are ranked by match quality, then by being featured, their
+     * rating and their stock.
+     *
+     * @param text     the search words; null or blank matches every product
+     * @param category the category to restrict to, or null for all
+     * @param range    the price range to restrict to, or null for all
+     * @param limit    the maximum number of products to return
+     * @return the best matching products, best first
+     */
+    public List<Product> searchProductsFuzzy(String text, String category, PriceRange range, int limit) {
+        return searchIndex.fuzzySearch(text, category, range, limit);
+    }
+
     public void updateProduct(Product product) {
         if (product == null || product.getProductId() == null) {
             throw new IllegalArgumentException("Product or product ID cannot be null");
         }
-        products.put(product.getProductId(), product);
-        saveProducts(); // Save immediately when a product is updated
+        cacheProduct(product);
+        persist(EntityType.PRODUCT, product.getProductId());
+    }
+
+    /**
+     * Records thumbnails made in the background, unless the product was
+     * deleted or its image replaced in the meantime.
+     *
+     * @param sourcePath the image the thumbnails were made from
+     * @return the updated product, or null if the thumbnails no longer apply
+     */
+    public Product setProductThumbnails(String productId, String sourcePath, String cardPath, String chipPath,
+            String previewPath) {
+        Product product = getProduct(productId);
+        if (product == null || !sourcePath.equals(product.getImagePath())) {
+            return null;
+        }
+        product.setThumbnailPaths(cardPath, chipPath, previewPath);
+        updateProduct(product);
+        return product;
     }
 
     public void deleteProduct(String productId) {
@@ -1304,6 +1738,11 @@ public class DataManager {
 
         System.out.println("Deleting product with ID: " + productId);
 
+        // Drop its queued write, then let batches already in flight land
+        // so they cannot re-insert deleted rows
+        writeQueue.cancel(EntityType.PRODUCT, productId);
+        flush();
+
         Connection conn = null;
         PreparedStatement ps = null;
 
@@ -1356,26 +1795,41 @@ public class DataManager {
             // Now update the in-memory collections
 
             // Remove product from the products map
-            Product removedProduct = products.remove(productId);
+            Product removedProduct = uncacheProduct(productId);
             System.out.println("Removed from in-memory products map: " + (removedProduct != null ? "yes" : "no"));
 
+            // Its cart holds were deleted along with the product row
+            reservations.removeProduct(productId);
+
             // Remove the product from all user wardrobes
             int inMemoryWardrobesUpdated = 0;
             for (User user : users.values()) {
-                if (user.getWardrobeItemIds().remove(productId)) {
+                if (user.removeFromWardrobe(productId)) {
+                    persist(EntityType.USER, user.getUserId());
                     inMemoryWardrobesUpdated++;
                 }
             }
             System.out.println("Updated " + inMemoryWardrobesUpdated + " in-memory user wardrobes");
 
-            // Remove the product from all outfits
+            // Remove the product from all outfits; outfits left without
+            // products are removed altogether
             int inMemoryOutfitsUpdated = 0;
+            List<String> emptiedOutfitIds = new ArrayList<>();
             for (Outfit outfit : outfits.values()) {
-                if (outfit.getProductIds().remove(productId)) {
+                if (outfit.removeProduct(productId)) {
+                    if (outfit.getProductIds().isEmpty()) {
+                        emptiedOutfitIds.add(outfit.getOutfitId());
+                    } else {
+                        persist(EntityType.OUTFIT, outfit.getOutfitId());
+                    }
                     inMemoryOutfitsUpdated++;
                 }
             }
             System.out.println("Updated " + inMemoryOutfitsUpdated + " in-memory outfits");
+            for (String outfitId : emptiedOutfitIds) {
+                removeOutfit(outfitId);
+            }
+            System.out.println("Removed " + emptiedOutfitIds.size() + " outfits left empty");
 
             // Remove the product from all shopping carts
             int inMemoryCartsUpdated = 0;
@@ -1383,6 +1837,7 @@ public class DataManager {
                 int cartSizeBefore = cart.getItemCount();
                 cart.removeItem(productId);
                 if (cart.getItemCount() < cartSizeBefore) {
+                    persist(EntityType.CART, cart.getUserId());
                     inMemoryCartsUpdated++;
                 }
             }
@@ -1395,16 +1850,6 @@ public class DataManager {
                 System.out.println("Product " + productId + " successfully removed from memory");
             }
 
-            // Force a reload to ensure everything is in sync
-            loadAllData();
-
-            // Double-check after reload
-            if (getProduct(productId) != null) {
-                System.err.println("CRITICAL ERROR: Product reappeared after reload!");
-            } else {
-                System.out.println("Product " + productId + " confirmed deleted after reload");
-            }
-
         } catch (SQLException e) {
             System.err.println("Error deleting product " + productId + ": " + e.getMessage());
             e.printStackTrace();
@@ -1437,18 +1882,17 @@ public class DataManager {
         }
 
         if (validateOutfit(outfit)) {
-            outfits.put(outfit.getOutfitId(), outfit);
-            User user = users.get(outfit.getUserId());
+            cacheOutfit(outfit);
+            User user = lookup(users, outfit.getUserId());
             if (user != null) {
                 user.addOutfit(outfit.getOutfitId());
-                saveUsers(); // Save user changes
             }
-            saveOutfits(); // Save immediately when an outfit is added
+            persist(EntityType.OUTFIT, outfit.getOutfitId());
         }
     }
 
     public Outfit getOutfit(String outfitId) {
-        return outfits.get(outfitId);
+        return lookup(outfits, outfitId);
     }
 
     public List<Outfit> getUserOutfits(String userId) {
@@ -1456,9 +1900,19 @@ public class DataManager {
             return new ArrayList<>();
         }
 
-        return outfits.values().stream()
-                .filter(outfit -> outfit.getUserId().equals(userId))
-                .collect(Collectors.toList());
+        Set<String> outfitIds = outfitIdsByUser.get(userId);
+        if (outfitIds == null) {
+            return new ArrayList<>();
+        }
+
+        List<Outfit> userOutfits = new ArrayList<>(outfitIds.size());
+        for (String outfitId : outfitIds) {
+            Outfit outfit = lookup(outfits, outfitId);
+            if (outfit != null) {
+                userOutfits.add(outfit);
+            }
+        }
+        return userOutfits;
     }
 
     public List<Outfit> getUserOutfitsWithProducts(String userId) {
@@ -1468,7 +1922,9 @@ public class DataManager {
         System.out.println("getUserOutfitsWithProducts: Found " + userOutfits.size() +
                 " outfits for user " + userId);
 
-        // First, try to get outfits directly from database with their products
+        // First, try to get outfits directly from database with their products,
+        // after making sure queued outfit writes have reached it
+        flush();
         Connection conn = null;
         PreparedStatement ps = null;
         ResultSet rs = null;
@@ -1509,7 +1965,7 @@ public class DataManager {
 
         for (Outfit outfit : userOutfits) {
             // Make sure this outfit is in the outfits map
-            outfits.put(outfit.getOutfitId(), outfit);
+            cacheOutfit(outfit);
 
             Outfit detailed = new Outfit(outfit.getUserId(), outfit.getName());
             detailed.setOutfitId(outfit.getOutfitId()); // Ensure ID is preserved
@@ -1524,8 +1980,13 @@ public class DataManager {
                 detailed.addProduct(productId);
             }
 
+            // The copy carries the same data, so it only needs saving if the original did
+            if (!outfit.hasPendingChanges()) {
+                detailed.markClean();
+            }
+
             // Also ensure this outfit is in the outfits map with the correct ID
-            outfits.put(detailed.getOutfitId(), detailed);
+            cacheOutfit(detailed);
 
             System.out.println("getUserOutfitsWithProducts: Added outfit " + detailed.getName() +
                     " (ID: " + detailed.getOutfitId() + ") to result and outfits map");
@@ -1543,7 +2004,7 @@ public class DataManager {
         }
 
         for (String productId : outfit.getProductIds()) {
-            if (!products.containsKey(productId)) {
+            if (lookup(products, productId) == null) {
                 return false;
             }
         }
@@ -1557,8 +2018,8 @@ public class DataManager {
         }
 
         if (validateOutfit(outfit)) {
-            outfits.put(outfit.getOutfitId(), outfit);
-            saveOutfits(); // Save immediately when an outfit is updated
+            cacheOutfit(outfit);
+            persist(EntityType.OUTFIT, outfit.getOutfitId());
         }
     }
 
@@ -1577,9 +2038,9 @@ public class DataManager {
         Outfit outfitToRemove = null;
 
         // First check if it's in the outfits map
-        if (outfits.containsKey(outfitId)) {
+        if (lookup(outfits, outfitId) != null) {
             System.out.println("removeOutfit: Found outfit in outfits map");
-            outfitToRemove = outfits.get(outfitId);
+            outfitToRemove = lookup(outfits, outfitId);
             outfitFound = true;
         } else {
             // If not in the map, search through all users' outfits to find it
@@ -1603,6 +2064,11 @@ public class DataManager {
             return false;
         }
 
+        // Drop its queued write, then let batches already in flight land
+        // so they cannot re-insert deleted rows
+        writeQueue.cancel(EntityType.OUTFIT, outfitId);
+        flush();
+
         try {
             // First, delete from database to maintain referential integrity
             Connection conn = null;
@@ -1651,7 +2117,7 @@ public class DataManager {
 
             // Remove from user's outfit list
             String userId = outfitToRemove.getUserId();
-            User user = users.get(userId);
+            User user = lookup(users, userId);
             if (user != null) {
                 System.out.println("removeOutfit: Found user: " + user.getUsername());
                 boolean removed = user.removeOutfit(outfitId);
@@ -1662,14 +2128,9 @@ public class DataManager {
             }
 
             // Remove from outfits map
-            Outfit removedOutfit = outfits.remove(outfitId);
+            Outfit removedOutfit = uncacheOutfit(outfitId);
             System.out.println("removeOutfit: Removed from outfits map: " + (removedOutfit != null));
 
-            // Save changes
-            saveOutfits();
-            saveUsers();
-            System.out.println("removeOutfit: Changes saved to data store");
-
             return true;
         } catch (Exception e) {
             System.err.println("removeOutfit: Exception during outfit removal: " + e.getMessage());
@@ -1684,7 +2145,7 @@ public class DataManager {
             return new ArrayList<>();
         }
 
-        User user = users.get(userId);
+        User user = lookup(users, userId);
         if (user == null) {
             return new ArrayList<>();
         }
@@ -1697,12 +2158,7 @@ public class DataManager {
             return new ShoppingCart("guest");
         }
 
-        ShoppingCart cart = carts.get(userId);
-        if (cart == null) {
-            cart = new ShoppingCart(userId);
-            carts.put(userId, cart);
-        }
-        return cart;
+        return carts.computeIfAbsent(userId, ShoppingCart::new);
     }
 
     public void saveCart(ShoppingCart cart) {
@@ -1710,57 +2166,913 @@ public class DataManager {
             throw new IllegalArgumentException("Cart or user ID cannot be null");
         }
         carts.put(cart.getUserId(), cart);
-        saveCarts(); // Save immediately when a cart is updated
+        persist(EntityType.CART, cart.getUserId());
     }
 
-    // Sample data initialization
-    public void initializeSampleData() {
-        // Create admin user if it doesn't exist
-        if (getUserByUsername("admin") == null) {
-            User adminUser = new User("admin", "admin@example.com", "admin");
-            users.put(adminUser.getUserId(), adminUser);
+    // Stock. Changes are compare-and-set on the product's version column, so
+    // concurrent checkouts and admin edits from other clients are never lost.
+    // Readers only ever see the cached value and never wait.
+
+    private static final class StockLevel {
+        final int quantity;
+        final int version;
+
+        StockLevel(int quantity, int version) {
+            this.quantity = quantity;
+            this.version = version;
         }
+    }
 
-        // Check if we already have sample products
-        if (!products.isEmpty()) {
-            return;
+    /**
+     * Takes stock for a cart or purchase, retrying if another client changed
+     * the product's stock in the meantime.
+     *
+     * @return true if the stock was taken, false if not enough is left
+     */
+    public boolean reserveStock(String productId, int quantity) {
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Quantity must be positive");
         }
+        return changeStock(productId, stock -> stock - quantity);
+    }
 
-        // Sample products
-        Product tshirt = createSampleProduct("Basic T-Shirt", "Tops", "19.99", "black", "M");
-        Product jeans = createSampleProduct("Slim Jeans", "Bottoms", "49.99", "blue", "32");
-        Product shoes = createSampleProduct("Running Shoes", "Shoes", "79.99", "white", "10");
-        Product jacket = createSampleProduct("Denim Jacket", "Outerwear", "89.99", "blue", "L");
+    /**
+     * Returns stock taken by {@link #reserveStock(String, int)}.
+     */
+    public void releaseStock(String productId, int quantity) {
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Quantity must be positive");
+        }
+        if (!changeStock(productId, stock -> stock + quantity)) {
+            System.err.println("Could not release " + quantity + " of product " + productId);
+        }
+    }
 
-        // Sample user (only create if no users exist)
-        if (users.isEmpty()) {
-            User sampleUser = new User("sampleuser", "user@example.com", "password123");
-            users.put(sampleUser.getUserId(), sampleUser);
+    /**
+     * Sets a product's stock, e.g. from the admin editor, only if nobody has
+     * changed it since the editor read it.
+     *
+     * @param expectedVersion the {@link Product#getVersion()} the new value is based on
+     * @return false if the stock changed in between; the cache then holds the current value
+     */
+    public boolean updateStock(String productId, int expectedVersion, int quantity) {
+        if (quantity < 0) {
+            throw new IllegalArgumentException("Stock cannot be negative");
+        }
+        Product product = lookup(products, productId);
+        if (product == null) {
+            return false;
+        }
 
-            // Sample outfits
-            Outfit casualOutfit = new Outfit(sampleUser.getUserId(), "Casual Look");
-            casualOutfit.addProduct(tshirt.getProductId());
-            casualOutfit.addProduct(jeans.getProductId());
-            outfits.put(casualOutfit.getOutfitId(), casualOutfit);
-            sampleUser.addOutfit(casualOutfit.getOutfitId());
+        Connection conn = null;
+        try {
+            conn = DatabaseUtils.getConnection();
+            if (compareAndSetStock(conn, product, expectedVersion, quantity)) {
+                return true;
+            }
+            refreshStock(conn, product);
+            return false;
+        } catch (SQLException e) {
+            System.err.println("Error updating stock of product " + productId + ": " + e.getMessage());
+            return false;
+        } finally {
+            DatabaseUtils.close(conn, null, null);
+        }
+    }
 
-            Outfit sportyOutfit = new Outfit(sampleUser.getUserId(), "Sporty Look");
-            sportyOutfit.addProduct(tshirt.getProductId());
-            sportyOutfit.addProduct(shoes.getProductId());
-            outfits.put(sportyOutfit.getOutfitId(), sportyOutfit);
-            sampleUser.addOutfit(sportyOutfit.getOutfitId());
+    /**
+     * Applies a stock change optimistically. The first attempt is based on
+     * the cached stock; after a conflict, or if the cache says there is not
+     * enough, the current row is read back and the change is retried.
+     *
+     * @param change computes the new stock from the current stock; a negative
+     *               result means the change cannot be made
+     */
+    private boolean changeStock(String productId, IntUnaryOperator change) {
+        Product product = lookup(products, productId);
+        if (product == null) {
+            return false;
         }
 
-        System.out.println("Sample data initialized");
+        Connection conn = null;
+        try {
+            conn = DatabaseUtils.getConnection();
+            // Read the version first: a torn read can only cause a retry
+            int version = product.getVersion();
+            StockLevel current = new StockLevel(product.getStockQuantity(), version);
+            boolean fromDatabase = false;
+
+            for (int attempt = 0; attempt < stockRetries; attempt++) {
+                int quantity = change.applyAsInt(current.quantity);
+                if (quantity < 0) {
+                    if (fromDatabase) {
+                        return false;
+                    }
+                } else if (compareAndSetStock(conn, product, current.version, quantity)) {
+                    return true;
+                }
+
+                current = refreshStock(conn, product);
+                if (current == null) {
+                    return false;
+                }
+                fromDatabase = true;
+            }
+
+            System.err.println("Gave up changing stock of product " + productId + " after "
+                    + stockRetries + " conflicting attempts");
+            return false;
+        } catch (SQLException e) {
+            System.err.println("Error changing stock of product " + productId + ": " + e.getMessage());
+            return false;
+        } finally {
+            DatabaseUtils.close(conn, null, null);
+        }
     }
 
-    private Product createSampleProduct(String name, String category, String price, String color, String size) {
-        Product product = new Product(name, category, new BigDecimal(price));
-        product.setColor(color);
-        product.setSize(size);
-        product.setDescription("Sample " + name + " in " + color);
-        product.setStockQuantity(10); // Set some initial stock
-        products.put(product.getProductId(), product);
+    private boolean compareAndSetStock(Connection conn, Product product, int expectedVersion, int quantity)
+            throws SQLException {
+        PreparedStatement ps = null;
+        try {
+            ps = conn.prepareStatement(
+                    "UPDATE products SET stock_quantity = ?, version = version + 1, last_updated = CURRENT_TIMESTAMP " +
+                            "WHERE product_id = ? AND version = ?");
+            ps.setInt(1, quantity);
+            ps.setString(2, product.getProductId());
+            ps.setInt(3, expectedVersion);
+            if (ps.executeUpdate() == 0) {
+                return false;
+            }
+        } finally {
+            DatabaseUtils.close(null, ps, null);
+        }
+
+        product.syncStock(quantity, expectedVersion + 1);
+        changeLog.record(EntityType.PRODUCT, product.getProductId(), false);
+        return true;
+    }
+
+    /**
+     * Reloads one product's stock into the cache.
+     *
+     * @return the current stock, or null if the product no longer exists
+     */
+    private StockLevel refreshStock(Connection conn, Product product) throws SQLException {
+        StockLevel current = readStock(conn, Collections.singletonList(product.getProductId()))
+                .get(product.getProductId());
+        if (current != null) {
+            product.syncStock(current.quantity, current.version);
+            changeLog.record(EntityType.PRODUCT, product.getProductId(), false);
+        }
+        return current;
+    }
+
+    private Map<String, StockLevel> readStock(Connection conn, Collection<String> productIds) throws SQLException {
+        Map<String, StockLevel> levels = new HashMap<>();
+        if (productIds.isEmpty()) {
+            return levels;
+        }
+
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+        try {
+            String placeholders = String.join(", ", Collections.nCopies(productIds.size(), "?"));
+            ps = conn.prepareStatement(
+                    "SELECT product_id, stock_quantity, version FROM products WHERE product_id IN (" + placeholders + ")");
+            int index = 1;
+            for (String productId : productIds) {
+                ps.setString(index++, productId);
+            }
+            rs = ps.executeQuery();
+            while (rs.next()) {
+                levels.put(rs.getString("product_id"),
+                        new StockLevel(rs.getInt("stock_quantity"), rs.getInt("version")));
+            }
+        } finally {
+            DatabaseUtils.close(null, ps, rs);
+        }
+        return levels;
+    }
+
+    /**
+     * Mirrors stock read from the database in the cache.
+     */
+    private void syncStock(Map<String, StockLevel> levels) {
+        for (Map.Entry<String, StockLevel> entry : levels.entrySet()) {
+            Product product = lookup(products, entry.getKey());
+            if (product != null) {
+                product.syncStock(entry.getValue().quantity, entry.getValue().version);
+                changeLog.record(EntityType.PRODUCT, product.getProductId(), false);
+            }
+        }
+    }
+
+    // Cart reservations. A cart line holds its stock for a limited time:
+    // the held units are taken out of stock_quantity, so the product's stock
+    // is always what is still available to other carts.
+
+    /**
+     * Holds stock for a cart line so it cannot sell out before checkout. The
+     * hold is set to exactly the given quantity, so only the difference to
+     * what the cart already holds is taken from or returned to stock. Every
+     * call renews the hold for the configured time.
+     *
+     * @param quantity the quantity the cart line now has; 0 releases the hold
+     * @return false if not enough stock is left, in which case nothing changes
+     */
+    public boolean reserveForCart(ShoppingCart cart, String productId, int quantity) {
+        if (cart == null || cart.getUserId() == null || productId == null) {
+            throw new IllegalArgumentException("Cart, user ID and product ID cannot be null");
+        }
+        if (quantity < 0) {
+            throw new IllegalArgumentException("Quantity cannot be negative");
+        }
+
+        String cartId = cart.getCartId();
+        long expiresAt = System.currentTimeMillis() + reservationTtlMillis;
+        Map<String, StockLevel> stockAfter = Collections.emptyMap();
+        Connection conn = null;
+        PreparedStatement ps = null;
+
+        try {
+            conn = DatabaseUtils.getConnection();
+            conn.setAutoCommit(false);
+
+            int held = lockCartReservations(conn, cartId).getOrDefault(productId, 0);
+            int needed = quantity - held;
+            if (needed != 0) {
+                ps = conn.prepareStatement(
+                        "UPDATE products SET stock_quantity = stock_quantity - ?, version = version + 1, " +
+                                "last_updated = CURRENT_TIMESTAMP WHERE product_id = ? AND stock_quantity >= ?");
+                ps.setInt(1, needed);
+                ps.setString(2, productId);
+                ps.setInt(3, needed);
+                if (ps.executeUpdate() == 0) {
+                    conn.rollback();
+                    stockAfter = readStock(conn, Collections.singletonList(productId));
+                    return false;
+                }
+                ps.close();
+            }
+
+            if (quantity == 0) {
+                ps = conn.prepareStatement("DELETE FROM stock_reservations WHERE product_id = ? AND cart_id = ?");
+                ps.setString(1, productId);
+                ps.setString(2, cartId);
+            } else {
+                ps = conn.prepareStatement(
+                        "INSERT INTO stock_reservations (product_id, cart_id, quantity, expires_at) " +
+                                "VALUES (?, ?, ?, ?) " +
+                                "ON DUPLICATE KEY UPDATE quantity = VALUES(quantity), expires_at = VALUES(expires_at)");
+                ps.setString(1, productId);
+                ps.setString(2, cartId);
+                ps.setInt(3, quantity);
+                ps.setTimestamp(4, new Timestamp(expiresAt));
+            }
+            ps.executeUpdate();
+
+            stockAfter = readStock(conn, Collections.singletonList(productId));
+            conn.commit();
+
+        } catch (SQLException e) {
+            System.err.println("Error reserving product " + productId + " for cart " + cartId + ": " + e.getMessage());
+            e.printStackTrace();
+
+            try {
+                if (conn != null)
+                    conn.rollback();
+            } catch (SQLException ex) {
+                System.err.println("Error rolling back transaction: " + ex.getMessage());
+            }
+            return false;
+        } finally {
+            try {
+                if (conn != null)
+                    conn.setAutoCommit(true);
+            } catch (SQLException e) {
+                System.err.println("Error resetting auto-commit: " + e.getMessage());
+            }
+
+            DatabaseUtils.close(conn, ps, null);
+            syncStock(stockAfter);
+        }
+
+        if (quantity == 0) {
+            reservations.remove(productId, cartId);
+        } else {
+            reservations.put(new StockReservations.Reservation(productId, cartId, quantity, expiresAt));
+        }
+        return true;
+    }
+
+    /**
+     * Runs {@link #reserveForCart} on a background thread, for callers on the
+     * FX thread. Holds run in the order they were requested.
+     *
+     * @return completes with false if not enough stock is left, or
+     *         exceptionally if the arguments are invalid
+     */
+    public CompletableFuture<Boolean> reserveForCartAsync(ShoppingCart cart, String productId, int quantity) {
+        return CompletableFuture.supplyAsync(() -> reserveForCart(cart, productId, quantity), reservationExecutor);
+    }
+
+    /**
+     * Releases everything a cart holds, e.g. when the cart is cleared. Runs
+     * after every hold requested before it, so a hold still queued cannot
+     * land after the release and keep stock for an emptied cart.
+     *
+     * @return completes once the holds are released
+     */
+    public CompletableFuture<Void> releaseCartStockAsync(ShoppingCart cart) {
+        return CompletableFuture.runAsync(() -> releaseCartStock(cart), reservationExecutor);
+    }
+
+    private void releaseCartStock(ShoppingCart cart) {
+        if (cart == null) {
+            return;
+        }
+        for (StockReservations.Reservation reservation : reservations.getCartReservations(cart.getCartId())) {
+            reserveForCart(cart, reservation.productId, 0);
+        }
+    }
+
+    /**
+     * @return units of the product held in shopping carts
+     */
+    public int getReservedStock(String productId) {
+        return reservations.getReserved(productId);
+    }
+
+    /**
+     * @return units of the product that can still be added to a cart; held
+     *         units are already excluded from the product's stock quantity
+     */
+    public int getAvailableStock(String productId) {
+        Product product = lookup(products, productId);
+        return product != null ? Math.max(0, product.getStockQuantity()) : 0;
+    }
+
+    /**
+     * Locks a cart's reservation rows for the rest of the transaction.
+     *
+     * @return the quantity held per product ID
+     */
+    private Map<String, Integer> lockCartReservations(Connection conn, String cartId) throws SQLException {
+        Map<String, Integer> held = new HashMap<>();
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+        try {
+            ps = conn.prepareStatement(
+                    "SELECT product_id, quantity FROM stock_reservations WHERE cart_id = ? FOR UPDATE");
+            ps.setString(1, cartId);
+            rs = ps.executeQuery();
+            while (rs.next()) {
+                held.put(rs.getString("product_id"), rs.getInt("quantity"));
+            }
+        } finally {
+            DatabaseUtils.close(null, ps, rs);
+        }
+        return held;
+    }
+
+    /**
+     * Returns the stock of a lapsed reservation. Runs on the sweeper thread.
+     * The row is checked again first, since another client may have renewed
+     * the hold or placed the order in the meantime.
+     */
+    private void expireReservation(StockReservations.Reservation expired) {
+        StockReservations.Reservation renewed = null;
+        Map<String, StockLevel> stockAfter = Collections.emptyMap();
+        Connection conn = null;
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+
+        try {
+            conn = DatabaseUtils.getConnection();
+            conn.setAutoCommit(false);
+
+            ps = conn.prepareStatement(
+                    "SELECT quantity, expires_at FROM stock_reservations " +
+                            "WHERE product_id = ? AND cart_id = ? FOR UPDATE");
+            ps.setString(1, expired.productId);
+            ps.setString(2, expired.cartId);
+            rs = ps.executeQuery();
+            if (rs.next()) {
+                int quantity = rs.getInt("quantity");
+                long expiresAt = rs.getTimestamp("expires_at").getTime();
+                rs.close();
+                ps.close();
+                rs = null;
+
+                if (expiresAt > System.currentTimeMillis()) {
+                    renewed = new StockReservations.Reservation(expired.productId, expired.cartId, quantity,
+                            expiresAt);
+                } else {
+                    ps = conn.prepareStatement(
+                            "DELETE FROM stock_reservations WHERE product_id = ? AND cart_id = ?");
+                    ps.setString(1, expired.productId);
+                    ps.setString(2, expired.cartId);
+                    ps.executeUpdate();
+                    ps.close();
+
+                    ps = conn.prepareStatement(
+                            "UPDATE products SET stock_quantity = stock_quantity + ?, version = version + 1, " +
+                                    "last_updated = CURRENT_TIMESTAMP WHERE product_id = ?");
+                    ps.setInt(1, quantity);
+                    ps.setString(2, expired.productId);
+                    ps.executeUpdate();
+
+                    stockAfter = readStock(conn, Collections.singletonList(expired.productId));
+                    System.out.println("Released " + quantity + " of product " + expired.productId
+                            + " held by cart " + expired.cartId);
+                }
+            }
+            conn.commit();
+
+        } catch (SQLException e) {
+            System.err.println("Error expiring " + expired + ": " + e.getMessage());
+
+            try {
+                if (conn != null)
+                    conn.rollback();
+            } catch (SQLException ex) {
+                System.err.println("Error rolling back transaction: " + ex.getMessage());
+            }
+            // Try again on the next pass
+            renewed = new StockReservations.Reservation(expired.productId, expired.cartId, expired.quantity,
+                    System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(1));
+        } finally {
+            try {
+                if (conn != null)
+                    conn.setAutoCommit(true);
+            } catch (SQLException e) {
+                System.err.println("Error resetting auto-commit: " + e.getMessage());
+            }
+
+            DatabaseUtils.close(conn, ps, rs);
+        }
+
+        syncStock(stockAfter);
+        reservations.replaceIfCurrent(expired, renewed);
+    }
+
+    /**
+     * Places an order for everything in the user's cart. In one transaction it
+     * decrements stock for every line, but only where enough stock is left,
+     * records the order and its lines, adds to the monthly sales totals, adds
+     * the products to the user's wardrobe and empties the cart. The caches are
+     * updated once the transaction commits.
+     *
+     * @param userId        the user placing the order
+     * @param paymentMethod how the order is paid, as shown at checkout
+     * @return the outcome; if any product is short of stock nothing is changed
+     */
+    public OrderResult placeOrder(String userId, String paymentMethod) {
+        User user = lookup(users, userId);
+        ShoppingCart cart = lookup(carts, userId);
+        if (user == null || cart == null || cart.getItems().isEmpty()) {
+            return OrderResult.failed(OrderResult.Status.EMPTY_CART, "The shopping cart is empty.");
+        }
+
+        List<Order.Item> orderItems = new ArrayList<>();
+        for (ShoppingCart.CartItem item : cart.getItems()) {
+            Product product = item.getProduct();
+            orderItems.add(new Order.Item(product.getProductId(), product.getName(),
+                    product.getPrice(), item.getQuantity()));
+        }
+        return placeOrder(user, cart, new Order(userId, paymentMethod, orderItems));
+    }
+
+    /**
+     * Places an order for one product outside the cart, as when buying
+     * straight from the store page. It is recorded like a checkout: stock is
+     * decremented only if enough is left, the order and the monthly sales
+     * totals are written, and the product is added to the user's wardrobe.
+     * The user's cart and its stock holds are left alone.
+     *
+     * @return the outcome; if the product is short of stock nothing is changed
+     */
+    public OrderResult placeOrder(String userId, String productId, int quantity, String paymentMethod) {
+        User user = lookup(users, userId);
+        Product product = lookup(products, productId);
+        if (user == null || product == null || quantity < 1) {
+            return OrderResult.failed(OrderResult.Status.EMPTY_CART, "There is nothing to order.");
+        }
+
+        Order.Item item = new Order.Item(product.getProductId(), product.getName(), product.getPrice(), quantity);
+        return placeOrder(user, null, new Order(userId, paymentMethod, Collections.singletonList(item)));
+    }
+
+    /**
+     * Records an order in one transaction and mirrors it in the caches.
+     *
+     * @param cart the cart the order empties, or null for a purchase made
+     *             outside the cart
+     */
+    private OrderResult placeOrder(User user, ShoppingCart cart, Order order) {
+        String userId = user.getUserId();
+        List<Order.Item> items = order.getItems();
+
+        // The order rows reference the user, cart and products, so queued
+        // writes for them must reach the database first
+        flush();
+
+        Map<String, StockLevel> stockAfter;
+        Connection conn = null;
+        PreparedStatement ps = null;
+
+        try {
+            conn = DatabaseUtils.getConnection();
+            conn.setAutoCommit(false);
+
+            // Stock held for the cart was already taken, so only the rest is
+            // decremented, and only where enough is left. Holds for products
+            // no longer in the cart go back to stock.
+            Map<String, Integer> held = cart != null
+                    ? lockCartReservations(conn, cart.getCartId())
+                    : Collections.<String, Integer>emptyMap();
+            Set<String> released = new HashSet<>(held.keySet());
+            ps = conn.prepareStatement(
+                    "UPDATE products SET stock_quantity = stock_quantity - ?, version = version + 1, " +
+                            "last_updated = CURRENT_TIMESTAMP WHERE product_id = ? AND stock_quantity >= ?");
+            for (Order.Item item : items) {
+                String productId = item.getProductId();
+                int needed = item.getQuantity() - held.getOrDefault(productId, 0);
+                released.remove(productId);
+                ps.setInt(1, needed);
+                ps.setString(2, productId);
+                ps.setInt(3, needed);
+                ps.addBatch();
+            }
+            for (String productId : released) {
+                ps.setInt(1, -held.get(productId));
+                ps.setString(2, productId);
+                ps.setInt(3, -held.get(productId));
+                ps.addBatch();
+            }
+            int[] updated = ps.executeBatch();
+            ps.close();
+
+            // Each conditional update must report exactly one row, or the
+            // stock check cannot be trusted
+            List<Product> unavailable = new ArrayList<>();
+            for (int i = 0; i < items.size(); i++) {
+                if (updated[i] == Statement.SUCCESS_NO_INFO) {
+                    throw new SQLException("The driver did not report stock update counts");
+                }
+                if (updated[i] != 1) {
+                    unavailable.add(lookup(products, items.get(i).getProductId()));
+                }
+            }
+            if (!unavailable.isEmpty()) {
+                conn.rollback();
+                return new OrderResult(OrderResult.Status.INSUFFICIENT_STOCK, null, unavailable,
+                        "Not enough stock left for " + unavailable.size() + " item(s).");
+            }
+
+            // The rows stay locked until commit, so this is the stock the order leaves
+            Set<String> changedProducts = new HashSet<>(released);
+            for (Order.Item item : items) {
+                changedProducts.add(item.getProductId());
+            }
+            stockAfter = readStock(conn, changedProducts);
+
+            insertOrder(conn, order);
+
+            // Add the purchased products to the wardrobe
+            ps = conn.prepareStatement("INSERT IGNORE INTO wardrobe_items (user_id, product_id) VALUES (?, ?)");
+            for (Order.Item item : items) {
+                ps.setString(1, userId);
+                ps.setString(2, item.getProductId());
+                ps.addBatch();
+            }
+            ps.executeBatch();
+            ps.close();
+
+            if (cart != null) {
+                // Empty the cart and drop its holds
+                ps = conn.prepareStatement("DELETE FROM cart_items WHERE cart_id = ?");
+                ps.setString(1, cart.getCartId());
+                ps.executeUpdate();
+                ps.close();
+
+                ps = conn.prepareStatement("DELETE FROM stock_reservations WHERE cart_id = ?");
+                ps.setString(1, cart.getCartId());
+                ps.executeUpdate();
+            }
+
+            conn.commit();
+
+        } catch (SQLException e) {
+            System.err.println("Error placing order for user " + userId + ": " + e.getMessage());
+            e.printStackTrace();
+
+            try {
+                if (conn != null)
+                    conn.rollback();
+            } catch (SQLException ex) {
+                System.err.println("Error rolling back transaction: " + ex.getMessage());
+            }
+            return OrderResult.failed(OrderResult.Status.FAILED,
+                    "The order could not be saved. Please try again.");
+        } finally {
+            try {
+                if (conn != null)
+                    conn.setAutoCommit(true);
+            } catch (SQLException e) {
+                System.err.println("Error resetting auto-commit: " + e.getMessage());
+            }
+
+            DatabaseUtils.close(conn, ps, null);
+        }
+
+        if (cart != null) {
+            reservations.removeCart(cart.getCartId());
+        }
+        applyPlacedOrder(user, cart, items, stockAfter);
+        return OrderResult.placed(order);
+    }
+
+    /**
+     * Writes the order, its lines and the running monthly totals inside the
+     * caller's transaction.
+     */
+    private void insertOrder(Connection conn, Order order) throws SQLException {
+        Timestamp orderDate = new Timestamp(order.getOrderDate().getTime());
+        PreparedStatement ps = null;
+
+        try {
+            ps = conn.prepareStatement(
+                    "INSERT INTO orders (order_id, user_id, order_date, payment_method, total_amount) " +
+                            "VALUES (?, ?, ?, ?, ?)");
+            ps.setString(1, order.getOrderId());
+            ps.setString(2, order.getUserId());
+            ps.setTimestamp(3, orderDate);
+            ps.setString(4, order.getPaymentMethod());
+            ps.setBigDecimal(5, order.getTotalAmount());
+            ps.executeUpdate();
+            ps.close();
+
+            ps = conn.prepareStatement(
+                    "INSERT INTO order_items (order_id, product_id, product_name, unit_price, quantity) " +
+                            "VALUES (?, ?, ?, ?, ?)");
+            for (Order.Item item : order.getItems()) {
+                ps.setString(1, order.getOrderId());
+                ps.setString(2, item.getProductId());
+                ps.setString(3, item.getProductName());
+                ps.setBigDecimal(4, item.getUnitPrice());
+                ps.setInt(5, item.getQuantity());
+                ps.addBatch();
+            }
+            ps.executeBatch();
+            ps.close();
+
+            // Keep the monthly aggregate current so reports never scan orders
+            ps = conn.prepareStatement(
+                    "INSERT INTO sales_monthly (sales_month, order_count, units_sold, revenue) VALUES (?, 1, ?, ?) " +
+                            "ON DUPLICATE KEY UPDATE order_count = order_count + 1, " +
+                            "units_sold = units_sold + VALUES(units_sold), revenue = revenue + VALUES(revenue)");
+            ps.setString(1, YearMonth.from(orderDate.toLocalDateTime()).toString());
+            ps.setInt(2, order.getItemCount());
+            ps.setBigDecimal(3, order.getTotalAmount());
+            ps.executeUpdate();
+        } finally {
+            DatabaseUtils.close(null, ps, null);
+        }
+    }
+
+    /**
+     * Returns one page of a user's orders, newest first. Pages are keyed on
+     * the last order of the previous page rather than an offset, so each page
+     * is a single range scan of the (user_id, order_date, order_id) index no
+     * matter how far back the user pages.
+     *
+     * @param userId the user whose orders to list
+     * @param after  the last order of the previous page, or null for the first page
+     * @param limit  the maximum number of orders to return
+     * @return the orders with their lines, newest first
+     */
+    public List<Order> getOrderHistory(String userId, Order after, int limit) {
+        if (userId == null || limit <= 0) {
+            return Collections.emptyList();
+        }
+
+        List<String> orderIds = new ArrayList<>();
+        Map<String, Object[]> headers = new HashMap<>();
+        Connection conn = null;
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+
+        try {
+            conn = DatabaseUtils.getConnection();
+            if (after == null) {
+                ps = conn.prepareStatement(
+                        "SELECT order_id, order_date, payment_method FROM orders WHERE user_id = ? " +
+                                "ORDER BY order_date DESC, order_id DESC LIMIT ?");
+                ps.setString(1, userId);
+                ps.setInt(2, limit);
+            } else {
+                Timestamp afterDate = new Timestamp(after.getOrderDate().getTime());
+                ps = conn.prepareStatement(
+                        "SELECT order_id, order_date, payment_method FROM orders WHERE user_id = ? " +
+                                "AND (order_date < ? OR (order_date = ? AND order_id < ?)) " +
+                                "ORDER BY order_date DESC, order_id DESC LIMIT ?");
+                ps.setString(1, userId);
+                ps.setTimestamp(2, afterDate);
+                ps.setTimestamp(3, afterDate);
+                ps.setString(4, after.getOrderId());
+                ps.setInt(5, limit);
+            }
+            rs = ps.executeQuery();
+            while (rs.next()) {
+                String orderId = rs.getString("order_id");
+                orderIds.add(orderId);
+                headers.put(orderId, new Object[] { rs.getTimestamp("order_date"), rs.getString("payment_method") });
+            }
+            rs.close();
+            ps.close();
+            rs = null;
+
+            if (orderIds.isEmpty()) {
+                return Collections.emptyList();
+            }
+
+            // Load the lines of the whole page in one query
+            Map<String, List<Order.Item>> itemsByOrder = new HashMap<>();
+            String placeholders = String.join(", ", Collections.nCopies(orderIds.size(), "?"));
+            ps = conn.prepareStatement(
+                    "SELECT order_id, product_id, product_name, unit_price, quantity FROM order_items " +
+                            "WHERE order_id IN (" + placeholders + ")");
+            for (int i = 0; i < orderIds.size(); i++) {
+                ps.setString(i + 1, orderIds.get(i));
+            }
+            rs = ps.executeQuery();
+            while (rs.next()) {
+                itemsByOrder.computeIfAbsent(rs.getString("order_id"), k -> new ArrayList<>())
+                        .add(new Order.Item(rs.getString("product_id"), rs.getString("product_name"),
+                                rs.getBigDecimal("unit_price"), rs.getInt("quantity")));
+            }
+
+            List<Order> orders = new ArrayList<>();
+            for (String orderId : orderIds) {
+                Object[] header = headers.get(orderId);
+                orders.add(new Order(orderId, userId, (Timestamp) header[0], (String) header[1],
+                        itemsByOrder.getOrDefault(orderId, Collections.emptyList())));
+            }
+            return orders;
+
+        } catch (SQLException e) {
+            System.err.println("Error loading order history for user " + userId + ": " + e.getMessage());
+            e.printStackTrace();
+            return Collections.emptyList();
+        } finally {
+            DatabaseUtils.close(conn, ps, rs);
+        }
+    }
+
+    /**
+     * @return the number of orders the user has placed
+     */
+    public int getOrderCount(String userId) {
+        if (userId == null) {
+            return 0;
+        }
+
+        Connection conn = null;
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+
+        try {
+            conn = DatabaseUtils.getConnection();
+            ps = conn.prepareStatement("SELECT COUNT(*) FROM orders WHERE user_id = ?");
+            ps.setString(1, userId);
+            rs = ps.executeQuery();
+            return rs.next() ? rs.getInt(1) : 0;
+        } catch (SQLException e) {
+            System.err.println("Error counting orders for user " + userId + ": " + e.getMessage());
+            return 0;
+        } finally {
+            DatabaseUtils.close(conn, ps, rs);
+        }
+    }
+
+    /**
+     * Returns revenue per month for the most recent months, read from the
+     * aggregate that {@link #placeOrder(String, String)} maintains.
+     *
+     * @param months how many months back to include, counting the current one
+     * @return revenue keyed by month, oldest first; months without sales are 0
+     */
+    public Map<YearMonth, BigDecimal> getMonthlyRevenue(int months) {
+        Map<YearMonth, BigDecimal> revenue = new LinkedHashMap<>();
+        if (months <= 0) {
+            return revenue;
+        }
+
+        YearMonth first = YearMonth.now().minusMonths(months - 1);
+        for (int i = 0; i < months; i++) {
+            revenue.put(first.plusMonths(i), BigDecimal.ZERO);
+        }
+
+        Connection conn = null;
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+
+        try {
+            conn = DatabaseUtils.getConnection();
+            ps = conn.prepareStatement("SELECT sales_month, revenue FROM sales_monthly WHERE sales_month >= ?");
+            ps.setString(1, first.toString());
+            rs = ps.executeQuery();
+            while (rs.next()) {
+                YearMonth month = YearMonth.parse(rs.getString("sales_month"));
+                if (revenue.containsKey(month)) {
+                    revenue.put(month, rs.getBigDecimal("revenue"));
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error loading monthly revenue: " + e.getMessage());
+        } finally {
+            DatabaseUtils.close(conn, ps, rs);
+        }
+        return revenue;
+    }
+
+    /**
+     * Mirrors a committed order in the caches. The database already has these
+     * changes, so entities that had nothing else pending stay clean.
+     */
+    private void applyPlacedOrder(User user, ShoppingCart cart, List<Order.Item> items,
+            Map<String, StockLevel> stockAfter) {
+        syncStock(stockAfter);
+
+        boolean userWasClean = !user.hasPendingChanges();
+        for (Order.Item item : items) {
+            user.addToWardrobe(item.getProductId());
+        }
+        if (userWasClean) {
+            user.markClean();
+        }
+        changeLog.record(EntityType.USER, user.getUserId(), false);
+
+        if (cart == null) {
+            return;
+        }
+        boolean cartWasClean = !cart.isDirty();
+        cart.clear();
+        if (cartWasClean) {
+            cart.markClean();
+        }
+        changeLog.record(EntityType.CART, cart.getUserId(), false);
+    }
+
+    // Sample data initialization
+    public void initializeSampleData() {
+        // Create admin user if it doesn't exist
+        if (getUserByUsername("admin") == null) {
+            User adminUser = new User("admin", "admin@example.com", "admin");
+            cacheUser(adminUser);
+        }
+
+        // Check if we already have sample products
+        if (!products.isEmpty()) {
+            return;
+        }
+
+        // Sample products
+        Product tshirt = createSampleProduct("Basic T-Shirt", "Tops", "19.99", "black", "M");
+        Product jeans = createSampleProduct("Slim Jeans", "Bottoms", "49.99", "blue", "32");
+        Product shoes = createSampleProduct("Running Shoes", "Shoes", "79.99", "white", "10");
+        Product jacket = createSampleProduct("Denim Jacket", "Outerwear", "89.99", "blue", "L");
+
+        // Sample user (only create if no users exist)
+        if (users.isEmpty()) {
+            User sampleUser = new User("sampleuser", "user@example.com", "password123");
+            cacheUser(sampleUser);
+
+            // Sample outfits
+            Outfit casualOutfit = new Outfit(sampleUser.getUserId(), "Casual Look");
+            casualOutfit.addProduct(tshirt.getProductId());
+            casualOutfit.addProduct(jeans.getProductId());
+            cacheOutfit(casualOutfit);
+            sampleUser.addOutfit(casualOutfit.getOutfitId());
+
+            Outfit sportyOutfit = new Outfit(sampleUser.getUserId(), "Sporty Look");
+            sportyOutfit.addProduct(tshirt.getProductId());
+            sportyOutfit.addProduct(shoes.getProductId());
+            cacheOutfit(sportyOutfit);
+            sampleUser.addOutfit(sportyOutfit.getOutfitId());
+        }
+
+        System.out.println("Sample data initialized");
+    }
+
+    private Product createSampleProduct(String name, String category, String price, String color, String size) {
+        Product product = new Product(name, category, new BigDecimal(price));
+        product.setColor(color);
+        product.setSize(size);
+        product.setDescription("Sample " + name + " in " + color);
+        product.setStockQuantity(10); // Set some initial stock
+        cacheProduct(product);
         return product;
     }
 
@@ -1784,7 +3096,7 @@ public class DataManager {
      * @return true if the account was deactivated, false otherwise
      */
     public boolean deactivateUser(String userId) {
-        User user = users.get(userId);
+        User user = lookup(users, userId);
         if (user == null) {
             return false;
         }
@@ -1795,7 +3107,7 @@ public class DataManager {
         }
 
         user.deactivateAccount();
-        saveUsers(); // Save changes immediately
+        persist(EntityType.USER, userId); // Persisted by the background writer
         return true;
     }
 
@@ -1807,7 +3119,7 @@ public class DataManager {
      *         deactivated
      */
     public boolean reactivateUser(String userId) {
-        User user = users.get(userId);
+        User user = lookup(users, userId);
         if (user == null) {
             return false;
         }
@@ -1821,7 +3133,7 @@ public class DataManager {
         }
 
         user.reactivateAccount();
-        saveUsers(); // Save changes immediately
+        persist(EntityType.USER, userId); // Persisted by the background writer
         return true;
     }
 
@@ -1833,7 +3145,7 @@ public class DataManager {
      * @return true if the user was banned, false otherwise
      */
     public boolean banUser(String userId, String reason) {
-        User user = users.get(userId);
+        User user = lookup(users, userId);
         if (user == null) {
             return false;
         }
@@ -1844,7 +3156,7 @@ public class DataManager {
         }
 
         user.banUser(reason);
-        saveAllData(); // Save changes immediately
+        persist(EntityType.USER, userId); // Persisted by the background writer
         return true;
     }
 
@@ -1857,7 +3169,7 @@ public class DataManager {
      * @return true if the user was banned, false otherwise
      */
     public boolean banUserTemporarily(String userId, String reason, int days) {
-        User user = users.get(userId);
+        User user = lookup(users, userId);
         if (user == null) {
             return false;
         }
@@ -1868,7 +3180,7 @@ public class DataManager {
         }
 
         user.banUserTemporarily(reason, days);
-        saveAllData(); // Save changes immediately
+        persist(EntityType.USER, userId); // Persisted by the background writer
         return true;
     }
 
@@ -1879,7 +3191,7 @@ public class DataManager {
      * @return true if the user was unbanned, false otherwise
      */
     public boolean unbanUser(String userId) {
-        User user = users.get(userId);
+        User user = lookup(users, userId);
         if (user == null) {
             return false;
         }
@@ -1889,7 +3201,7 @@ public class DataManager {
         }
 
         user.unbanUser();
-        saveAllData(); // Save changes immediately
+        persist(EntityType.USER, userId); // Persisted by the background writer
         return true;
     }
 
@@ -1926,13 +3238,13 @@ public class DataManager {
      * @return true if the preference was saved, false otherwise
      */
     public boolean saveUserDarkModePreference(String userId, boolean darkModeEnabled) {
-        User user = users.get(userId);
+        User user = lookup(users, userId);
         if (user == null) {
             return false;
         }
 
         user.setDarkModeEnabled(darkModeEnabled);
-        saveUsers(); // Save changes immediately
+        persist(EntityType.USER, userId); // Persisted by the background writer
         return true;
     }
 
@@ -1943,7 +3255,7 @@ public class DataManager {
      * @return true if dark mode is enabled, false otherwise
      */
     public boolean isUserDarkModeEnabled(String userId) {
-        User user = users.get(userId);
+        User user = lookup(users, userId);
         if (user == null) {
             return false; // Default to light mode
         }
@@ -0,0 +1,71 @@
+package com.fashionstore.storage;
+
+import com.fashionstore.models.Order;
+import com.fashionstore.models.Product;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of {@link DataManager#placeOrder(String, String)} and
+ * {@link DataManager#placeOrder(String, String, int, String)}.
+ */
+public class OrderResult {
+
+    public enum Status {
+        PLACED,
+        EMPTY_CART,
+        INSUFFICIENT_STOCK,
+        FAILED
+    }
+
+    private final Status status;
+    private final Order order;
+    private final List<Product> unavailableProducts;
+    private final String message;
+
+    OrderResult(Status status, Order order, List<Product> unavailableProducts, String message) {
+        this.status = status;
+        this.order = order;
+        this.unavailableProducts = Collections.unmodifiableList(new ArrayList<>(unavailableProducts));
+        this.message = message;
+    }
+
+    static OrderResult placed(Order order) {
+        return new OrderResult(Status.PLACED, order, Collections.emptyList(), null);
+    }
+
+    static OrderResult failed(Status status, String message) {
+        return new OrderResult(status, null, Collections.emptyList(), message);
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public boolean isPlaced() {
+        return status == Status.PLACED;
+    }
+
+    /**
+     * @return the recorded order, or null if it was not placed
+     */
+    public Order getOrder() {
+        return order;
+    }
+
+    /**
+     * @return products that did not have enough stock left to fill the order
+     */
+    public List<Product> getUnavailableProducts() {
+        return unavailableProducts;
+    }
+
+    /**
+     * @return a description of why the order was not placed, or null if it was
+     */
+    public String getMessage() {
+        return message;
+    }
+}
@@ -0,0 +1,60 @@
+package com.fashionstore.storage;
+
+import java.math.BigDecimal;
+
+/**
+ * Price filters offered in the store, used as a search facet. The ranges do
+ * not overlap, so every price falls in exactly one of them.
+ */
+public enum PriceRange {
+    UNDER_50("Under $50"),
+    FROM_50_TO_100("$50 - $100"),
+    FROM_100_TO_200("$100 - $200"),
+    OVER_200("Over $200");
+
+    private static final BigDecimal FIFTY = new BigDecimal("50.00");
+    private static final BigDecimal HUNDRED = new BigDecimal("100.00");
+    private static final BigDecimal TWO_HUNDRED = new BigDecimal("200.00");
+
+    private final String label;
+
+    PriceRange(String label) {
+        this.label = label;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    /**
+     * @return the range a price falls in; $50 and $100 belong to "$50 - $100"
+     */
+    public static PriceRange of(BigDecimal price) {
+        if (price.compareTo(FIFTY) < 0) {
+            return UNDER_50;
+        } else if (price.compareTo(HUNDRED) <= 0) {
+            return FROM_50_TO_100;
+        } else if (price.compareTo(TWO_HUNDRED) <= 0) {
+            return FROM_100_TO_200;
+        }
+        return OVER_200;
+    }
+
+    /**
+     * @return the range with the given filter label, or null for any other
+     *         label such as "All Prices"
+     */
+    public static PriceRange fromLabel(String label) {
+        for (PriceRange range : values()) {
+            if (range.label.equals(label)) {
+                return range;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        return label;
+    }
+}
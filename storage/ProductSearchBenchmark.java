@@ -0,0 +1,135 @@
+package com.fashionstore.storage;
+
+import com.fashionstore.models.Product;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Measures per-keystroke latency of the product search index on a generated
+ * catalogue and checks it against a latency budget. Every query is replayed
+ * one keystroke at a time, the way search-as-you-type issues it.
+ *
+ * Usage: java com.fashionstore.storage.ProductSearchBenchmark [products] [budgetMs]
+ * Defaults to 100000 products and a 16 ms budget (one frame at 60 Hz) for
+ * the 99th percentile. Exits with status 1 if the budget is exceeded.
+ */
+class ProductSearchBenchmark {
+
+    private static final String[] WORDS = { "cotton", "shirt", "denim", "jacket", "slim", "fit", "blue",
+            "red", "summer", "wool", "leather", "boots", "dress", "floral", "casual", "classic", "vintage",
+            "linen", "silk", "sport", "sweater", "cardigan", "hoodie", "trousers", "chino", "sneakers",
+            "scarf", "striped", "oversized", "cropped" };
+    private static final String[] BRANDS = { "Acme", "Nordic", "Urban", "Basics", "Luxe", "Atelier",
+            "Heritage", "Coastal" };
+    private static final String[] CATEGORIES = { "Tops", "Bottoms", "Shoes", "Outerwear", "Accessories" };
+
+    // Mix of exact, prefix and misspelt queries
+    private static final String[] QUERIES = { "denim jacket", "slim fit chino", "lether boots",
+            "sweatr", "cardigna", "hoodei nordic", "vintage floral dress", "sneekers", "oversized sweater",
+            "linnen shirt" };
+
+    // As many ranked results as the store page asks for
+    private static final int RESULT_LIMIT = 500;
+    private static final int WARMUP_ROUNDS = 10;
+    private static final int MEASURED_ROUNDS = 20;
+
+    public static void main(String[] args) {
+        int productCount = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        double budgetMs = args.length > 1 ? Double.parseDouble(args[1]) : 16.0;
+
+        ProductSearchIndex index = buildIndex(productCount);
+        System.out.println("Indexed " + index.size() + " products");
+
+        List<String> keystrokes = new ArrayList<>();
+        for (String query : QUERIES) {
+            for (int length = 1; length <= query.length(); length++) {
+                keystrokes.add(query.substring(0, length));
+            }
+        }
+
+        double exactP99 = measure("exact", keystrokes, text -> index.search(text, null, null));
+        double fuzzyP99 = measure("fuzzy", keystrokes, text -> index.fuzzySearch(text, null, null, RESULT_LIMIT));
+        measure("fuzzy, filtered", keystrokes, text -> index.fuzzySearch(text, "Tops", PriceRange.UNDER_50, RESULT_LIMIT));
+
+        double worst = Math.max(exactP99, fuzzyP99);
+        System.out.printf("Budget %.1f ms, worst p99 %.3f ms: %s%n", budgetMs, worst,
+                worst <= budgetMs ? "PASS" : "FAIL");
+        if (worst > budgetMs) {
+            System.exit(1);
+        }
+    }
+
+    private interface Query {
+        List<Product> run(String text);
+    }
+
+    /**
+     * @return the 99th percentile latency in milliseconds
+     */
+    private static double measure(String name, List<String> keystrokes, Query query) {
+        for (int round = 0; round < WARMUP_ROUNDS; round++) {
+            for (String text : keystrokes) {
+                query.run(text);
+            }
+        }
+
+        long[] nanos = new long[keystrokes.size() * MEASURED_ROUNDS];
+        int sample = 0;
+        long results = 0;
+        for (int round = 0; round < MEASURED_ROUNDS; round++) {
+            for (String text : keystrokes) {
+                long start = System.nanoTime();
+                results += query.run(text).size();
+                nanos[sample++] = System.nanoTime() - start;
+            }
+        }
+        Arrays.sort(nanos);
+
+        double p50 = nanos[nanos.length / 2] / 1e6;
+        double p99 = nanos[(int) (nanos.length * 0.99)] / 1e6;
+        double max = nanos[nanos.length - 1] / 1e6;
+        System.out.printf("%-16s p50 %.3f ms  p99 %.3f ms  max %.3f ms  (avg %d results)%n",
+                name, p50, p99, max, results / nanos.length);
+        return p99;
+    }
+
+    private static ProductSearchIndex buildIndex(int productCount) {
+        Random random = new Random(42);
+        ProductSearchIndex index = new ProductSearchIndex();
+
+        // Product setters log; keep the output to the measurements
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        try {
+            for (int i = 0; i < productCount; i++) {
+                String name = pick(random, WORDS) + " " + pick(random, WORDS) + " " + pick(random, WORDS);
+                Product product = new Product(name, pick(random, CATEGORIES),
+                        BigDecimal.valueOf(5 + random.nextInt(30000) / 100.0));
+                product.setBrand(pick(random, BRANDS));
+
+                StringBuilder description = new StringBuilder();
+                for (int w = 0; w < 12; w++) {
+                    description.append(pick(random, WORDS)).append(' ');
+                }
+                product.setDescription(description.toString());
+                product.setStockQuantity(random.nextInt(40));
+                product.setFeatured(random.nextInt(20) == 0);
+                product.addAttribute("season", random.nextBoolean() ? "summer" : "winter");
+                index.put(product);
+            }
+        } finally {
+            System.setOut(out);
+        }
+        return index;
+    }
+
+    private static String pick(Random random, String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+}
@@ -0,0 +1,650 @@
+package com.fashionstore.storage;
+
+import com.fashionstore.models.Product;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory search index over the product cache, kept in step by
+ * DataManager's cache helpers.
+ *
+ * Every product gets a small integer document ID. Words from the name,
+ * brand, description and attribute values go into a sorted inverted index,
+ * so a query word matches every indexed word it is a prefix of. Category,
+ * price range and visibility are bitsets over the document IDs and are
+ * intersected with the text matches.
+ *
+ * A query resolves its most selective word through the inverted index and
+ * checks the remaining words against each candidate's own sorted word list,
+ * so common short prefixes never have to be expanded in full.
+ *
+ * For typo-tolerant search the words of names and brands also form a
+ * vocabulary indexed by trigram. A misspelt query word only has to be
+ * compared with the vocabulary words that share enough trigrams with it,
+ * which keeps fuzzy lookups cheap enough to run on every keystroke.
+ */
+class ProductSearchIndex {
+
+    /**
+     * Sorted document IDs containing one word.
+     */
+    private static final class Postings {
+        private int[] ids = new int[2];
+        private int size = 0;
+
+        void add(int id) {
+            int at = Arrays.binarySearch(ids, 0, size, id);
+            if (at >= 0) {
+                return;
+            }
+            at = -at - 1;
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            System.arraycopy(ids, at, ids, at + 1, size - at);
+            ids[at] = id;
+            size++;
+        }
+
+        void remove(int id) {
+            int at = Arrays.binarySearch(ids, 0, size, id);
+            if (at >= 0) {
+                System.arraycopy(ids, at + 1, ids, at, size - at - 1);
+                size--;
+            }
+        }
+
+        void addTo(BitSet bits) {
+            for (int i = 0; i < size; i++) {
+                bits.set(ids[i]);
+            }
+        }
+    }
+
+    // Weights of the ranking score; match quality dominates
+    private static final double MATCH_WEIGHT = 0.70;
+    private static final double FEATURED_WEIGHT = 0.10;
+    private static final double RATING_WEIGHT = 0.10;
+    private static final double STOCK_WEIGHT = 0.10;
+    // Stock at which a product counts as fully in stock for ranking
+    private static final int RANKING_FULL_STOCK = 10;
+    // Match quality of a word prefix and of a match outside the name or brand
+    private static final double PREFIX_MATCH = 0.9;
+    private static final double TEXT_MATCH = 0.6;
+    // Shorter query words are only matched as prefixes
+    private static final int MIN_FUZZY_LENGTH = 3;
+    // Prefixes up to this length expand to so many words that their matches
+    // are cached until the index next changes
+    private static final int MAX_CACHED_PREFIX = 2;
+    // Rough cost of checking one candidate's word list, in postings entries
+    private static final int CHECK_COST = 8;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<String, Integer> docIds = new HashMap<>();
+    private final List<Product> docs = new ArrayList<>();
+    // Sorted, de-duplicated words of each document, for removal and for
+    // checking further query words
+    private final List<String[]> docWords = new ArrayList<>();
+    private final Deque<Integer> freeIds = new ArrayDeque<>();
+
+    private final NavigableMap<String, Postings> postings = new TreeMap<>();
+    // Words of names and brands only, and the trigrams of those words
+    private final List<String[]> docNameWords = new ArrayList<>();
+    private final NavigableMap<String, Postings> namePostings = new TreeMap<>();
+    private final Map<String, Set<String>> vocabularyByTrigram = new HashMap<>();
+    private final Map<String, BitSet> byCategory = new HashMap<>();
+    private final Map<PriceRange, BitSet> byPriceRange = new EnumMap<>(PriceRange.class);
+    private final BitSet visible = new BitSet();
+    // Filled by concurrent readers, cleared by writers
+    private final Map<String, BitSet> shortPrefixMatches = new ConcurrentHashMap<>();
+
+    ProductSearchIndex() {
+        for (PriceRange range : PriceRange.values()) {
+            byPriceRange.put(range, new BitSet());
+        }
+    }
+
+    /**
+     * Adds a product, or re-indexes it if it is already indexed.
+     */
+    void put(Product product) {
+        String[] words = wordsOf(product);
+        String[] nameWords = nameWordsOf(product);
+        lock.writeLock().lock();
+        try {
+            Integer existing = docIds.get(product.getProductId());
+            int id;
+            if (existing != null) {
+                id = existing;
+                unindex(id);
+            } else {
+                id = freeIds.isEmpty() ? docs.size() : freeIds.pop();
+                docIds.put(product.getProductId(), id);
+            }
+
+            if (id == docs.size()) {
+                docs.add(product);
+                docWords.add(words);
+                docNameWords.add(nameWords);
+            } else {
+                docs.set(id, product);
+                docWords.set(id, words);
+                docNameWords.set(id, nameWords);
+            }
+
+            for (String word : words) {
+                postings.computeIfAbsent(word, k -> new Postings()).add(id);
+            }
+            for (String word : nameWords) {
+                Postings list = namePostings.get(word);
+                if (list == null) {
+                    list = new Postings();
+                    namePostings.put(word, list);
+                    for (String trigram : trigramsOf(word)) {
+                        vocabularyByTrigram.computeIfAbsent(trigram, k -> new HashSet<>()).add(word);
+                    }
+                }
+                list.add(id);
+            }
+            if (product.getCategory() != null) {
+                byCategory.computeIfAbsent(product.getCategory(), k -> new BitSet()).set(id);
+            }
+            if (product.getPrice() != null) {
+                byPriceRange.get(PriceRange.of(product.getPrice())).set(id);
+            }
+            visible.set(id, product.isVisible());
+            shortPrefixMatches.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void remove(String productId) {
+        lock.writeLock().lock();
+        try {
+            Integer id = docIds.remove(productId);
+            if (id != null) {
+                unindex(id);
+                docs.set(id, null);
+                docWords.set(id, null);
+                docNameWords.set(id, null);
+                freeIds.push(id);
+                shortPrefixMatches.clear();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Finds visible products matching every word of the query as a word
+     * prefix, within the category and price range if given.
+     *
+     * @param text     the words to look for; null or blank matches everything
+     * @param category the exact category, or null for all
+     * @param range    the price range, or null for all
+     */
+    List<Product> search(String text, String category, PriceRange range) {
+        String[] queryWords = tokenize(text).toArray(new String[0]);
+        lock.readLock().lock();
+        try {
+            BitSet matches = filter(category, range);
+            matchAllWords(matches, queryWords);
+
+            List<Product> results = new ArrayList<>(matches.cardinality());
+            for (int id = matches.nextSetBit(0); id >= 0; id = matches.nextSetBit(id + 1)) {
+                results.add(docs.get(id));
+            }
+            return results;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Typo-tolerant search, best matches first. A product matches if every
+     * query word is close to a word of its name or brand, or if it matches
+     * {@link #search} exactly. Results are ranked by how well they match,
+     * then by being featured, their rating and their stock.
+     *
+     * @param text     the words to look for; null or blank matches everything
+     * @param category the exact category, or null for all
+     * @param range    the price range, or null for all
+     * @param limit    the maximum number of results
+     */
+    List<Product> fuzzySearch(String text, String category, PriceRange range, int limit) {
+        String[] queryWords = tokenize(text).toArray(new String[0]);
+        lock.readLock().lock();
+        try {
+            BitSet allowed = filter(category, range);
+            BitSet exact = (BitSet) allowed.clone();
+            matchAllWords(exact, queryWords);
+
+            // Sum of the best match quality per query word, and the number of
+            // query words matched, per document
+            double[] quality = new double[docs.size()];
+            int[] matchedWords = new int[docs.size()];
+            double[] best = new double[docs.size()];
+            BitSet touched = new BitSet();
+            BitSet candidates = (BitSet) exact.clone();
+            for (String queryWord : queryWords) {
+                for (Map.Entry<String, Double> match : similarWords(queryWord).entrySet()) {
+                    Postings list = namePostings.get(match.getKey());
+                    double similarity = match.getValue();
+                    for (int i = 0; i < list.size; i++) {
+                        int id = list.ids[i];
+                        if (similarity > best[id] && allowed.get(id)) {
+                            best[id] = similarity;
+                            touched.set(id);
+                        }
+                    }
+                }
+                for (int id = touched.nextSetBit(0); id >= 0; id = touched.nextSetBit(id + 1)) {
+                    quality[id] += best[id];
+                    matchedWords[id]++;
+                    best[id] = 0;
+                }
+                candidates.or(touched);
+                touched.clear();
+            }
+
+            // Keep the best results in a min-heap of score and document ID
+            // packed into longs; non-negative float bits sort like the floats
+            long[] heap = new long[Math.max(0, Math.min(limit, candidates.cardinality()))];
+            int size = 0;
+            for (int id = candidates.nextSetBit(0); id >= 0 && heap.length > 0; id = candidates.nextSetBit(id + 1)) {
+                double match = 0;
+                if (queryWords.length > 0 && matchedWords[id] == queryWords.length) {
+                    match = quality[id] / queryWords.length;
+                }
+                if (exact.get(id)) {
+                    match = Math.max(match, queryWords.length > 0 ? TEXT_MATCH : 1.0);
+                }
+                if (match <= 0) {
+                    continue;
+                }
+
+                long entry = ((long) Float.floatToIntBits((float) rank(docs.get(id), match)) << 32)
+                        | (Integer.MAX_VALUE - id);
+                if (size < heap.length) {
+                    heap[size] = entry;
+                    siftUp(heap, size++);
+                } else if (entry > heap[0]) {
+                    heap[0] = entry;
+                    siftDown(heap, size);
+                }
+            }
+
+            Arrays.sort(heap, 0, size);
+            List<Product> results = new ArrayList<>(size);
+            for (int i = size - 1; i >= 0; i--) {
+                results.add(docs.get(Integer.MAX_VALUE - (int) heap[i]));
+            }
+            return results;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return docIds.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Splits text into lower-case words of letters and digits.
+     */
+    static TreeSet<String> tokenize(String text) {
+        TreeSet<String> words = new TreeSet<>();
+        if (text == null) {
+            return words;
+        }
+        for (String word : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (!word.isEmpty()) {
+                words.add(word);
+            }
+        }
+        return words;
+    }
+
+    private static String[] wordsOf(Product product) {
+        StringBuilder text = new StringBuilder();
+        append(text, product.getName());
+        append(text, product.getBrand());
+        append(text, product.getDescription());
+        for (String value : product.getAllAttributes().values()) {
+            append(text, value);
+        }
+        return tokenize(text.toString()).toArray(new String[0]);
+    }
+
+    private static String[] nameWordsOf(Product product) {
+        StringBuilder text = new StringBuilder();
+        append(text, product.getName());
+        append(text, product.getBrand());
+        return tokenize(text.toString()).toArray(new String[0]);
+    }
+
+    private static void append(StringBuilder text, String value) {
+        if (value != null) {
+            text.append(value).append(' ');
+        }
+    }
+
+    private void unindex(int id) {
+        for (String word : docWords.get(id)) {
+            Postings list = postings.get(word);
+            if (list != null) {
+                list.remove(id);
+                if (list.size == 0) {
+                    postings.remove(word);
+                }
+            }
+        }
+        for (String word : docNameWords.get(id)) {
+            Postings list = namePostings.get(word);
+            if (list != null) {
+                list.remove(id);
+                if (list.size == 0) {
+                    namePostings.remove(word);
+                    for (String trigram : trigramsOf(word)) {
+                        Set<String> vocabulary = vocabularyByTrigram.get(trigram);
+                        if (vocabulary != null) {
+                            vocabulary.remove(word);
+                            if (vocabulary.isEmpty()) {
+                                vocabularyByTrigram.remove(trigram);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        for (BitSet bits : byCategory.values()) {
+            bits.clear(id);
+        }
+        for (BitSet bits : byPriceRange.values()) {
+            bits.clear(id);
+        }
+        visible.clear(id);
+    }
+
+    private static void siftUp(long[] heap, int at) {
+        while (at > 0) {
+            int parent = (at - 1) / 2;
+            if (heap[parent] <= heap[at]) {
+                return;
+            }
+            long swap = heap[parent];
+            heap[parent] = heap[at];
+            heap[at] = swap;
+            at = parent;
+        }
+    }
+
+    private static void siftDown(long[] heap, int size) {
+        int at = 0;
+        while (true) {
+            int smallest = at;
+            int left = 2 * at + 1;
+            int right = left + 1;
+            if (left < size && heap[left] < heap[smallest]) {
+                smallest = left;
+            }
+            if (right < size && heap[right] < heap[smallest]) {
+                smallest = right;
+            }
+            if (smallest == at) {
+                return;
+            }
+            long swap = heap[smallest];
+            heap[smallest] = heap[at];
+            heap[at] = swap;
+            at = smallest;
+        }
+    }
+
+    /**
+     * @return the visible documents in the category and price range
+     */
+    private BitSet filter(String category, PriceRange range) {
+        BitSet allowed = (BitSet) visible.clone();
+        if (category != null) {
+            BitSet inCategory = byCategory.get(category);
+            if (inCategory == null) {
+                return new BitSet();
+            }
+            allowed.and(inCategory);
+        }
+        if (range != null) {
+            allowed.and(byPriceRange.get(range));
+        }
+        return allowed;
+    }
+
+    /**
+     * Keeps only the documents that have a word starting with every query word.
+     */
+    private void matchAllWords(BitSet matches, String[] queryWords) {
+        if (queryWords.length == 0) {
+            return;
+        }
+
+        String first = mostSelective(queryWords);
+        matches.and(withPrefix(first));
+
+        for (String word : queryWords) {
+            if (word.equals(first)) {
+                continue;
+            }
+            // Intersecting with the word's matches is cheaper than checking
+            // each candidate once they are cached, or unless the postings are
+            // much longer than the candidates
+            long checkCost = (long) matches.cardinality() * CHECK_COST;
+            if (word.length() <= MAX_CACHED_PREFIX || countWithPrefix(word, checkCost) < checkCost) {
+                matches.and(withPrefix(word));
+                continue;
+            }
+            for (int id = matches.nextSetBit(0); id >= 0; id = matches.nextSetBit(id + 1)) {
+                if (!hasWordWithPrefix(docWords.get(id), word)) {
+                    matches.clear(id);
+                }
+            }
+        }
+    }
+
+    /**
+     * Finds the name and brand words close to a query word.
+     *
+     * @return each similar word with its match quality, 1.0 for the word itself
+     */
+    private Map<String, Double> similarWords(String queryWord) {
+        Map<String, Double> similar = new HashMap<>();
+        for (String word : withPrefix(namePostings, queryWord).keySet()) {
+            similar.put(word, word.length() == queryWord.length() ? 1.0 : PREFIX_MATCH);
+        }
+        if (queryWord.length() < MIN_FUZZY_LENGTH) {
+            return similar;
+        }
+
+        // An edit changes at most three trigrams, so a word within maxEdits
+        // shares at least this many trigrams with the query word
+        int maxEdits = queryWord.length() <= 5 ? 1 : 2;
+        List<String> queryTrigrams = trigramsOf(queryWord);
+        int minShared = Math.max(1, queryTrigrams.size() - 3 * maxEdits);
+
+        Map<String, Integer> shared = new HashMap<>();
+        for (String trigram : queryTrigrams) {
+            Set<String> vocabulary = vocabularyByTrigram.get(trigram);
+            if (vocabulary != null) {
+                for (String word : vocabulary) {
+                    shared.merge(word, 1, Integer::sum);
+                }
+            }
+        }
+
+        for (Map.Entry<String, Integer> candidate : shared.entrySet()) {
+            String word = candidate.getKey();
+            if (candidate.getValue() < minShared || similar.containsKey(word)
+                    || Math.abs(word.length() - queryWord.length()) > maxEdits) {
+                continue;
+            }
+            int edits = editDistance(queryWord, word, maxEdits);
+            if (edits <= maxEdits) {
+                similar.put(word, 1.0 - (double) edits / Math.max(word.length(), queryWord.length()));
+            }
+        }
+        return similar;
+    }
+
+    /**
+     * Blends match quality with how featured, well rated and available a
+     * product is.
+     */
+    static double rank(Product product, double match) {
+        double rating = Math.max(0, Math.min(5, product.getAverageRating())) / 5.0;
+        double stock = Math.max(0, Math.min(RANKING_FULL_STOCK, product.getStockQuantity()))
+                / (double) RANKING_FULL_STOCK;
+        return MATCH_WEIGHT * match
+                + (product.isFeatured() ? FEATURED_WEIGHT : 0)
+                + RATING_WEIGHT * rating
+                + STOCK_WEIGHT * stock;
+    }
+
+    /**
+     * Optimal string alignment distance (Levenshtein plus adjacent
+     * transpositions), giving up once it must exceed the limit.
+     *
+     * @return the distance, or limit + 1 if it is larger than the limit
+     */
+    static int editDistance(String a, String b, int limit) {
+        int[] twoBack = new int[b.length() + 1];
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                int value = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    value = Math.min(value, twoBack[j - 2] + 1);
+                }
+                current[j] = value;
+                rowMin = Math.min(rowMin, value);
+            }
+            if (rowMin > limit) {
+                return limit + 1;
+            }
+            int[] recycled = twoBack;
+            twoBack = previous;
+            previous = current;
+            current = recycled;
+        }
+        return Math.min(previous[b.length()], limit + 1);
+    }
+
+    /**
+     * @return the trigrams of a word padded with boundary markers, so word
+     *         starts and ends count as well
+     */
+    static List<String> trigramsOf(String word) {
+        String padded = "$$" + word + "$";
+        List<String> trigrams = new ArrayList<>(padded.length() - 2);
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            trigrams.add(padded.substring(i, i + 3));
+        }
+        return trigrams;
+    }
+
+    /**
+     * @return the documents with a word starting with the prefix; must not be
+     *         modified, as it may be shared
+     */
+    private BitSet withPrefix(String prefix) {
+        if (prefix.length() > MAX_CACHED_PREFIX) {
+            return expand(prefix);
+        }
+        return shortPrefixMatches.computeIfAbsent(prefix, this::expand);
+    }
+
+    private BitSet expand(String prefix) {
+        BitSet matches = new BitSet();
+        for (Postings list : withPrefix(postings, prefix).values()) {
+            list.addTo(matches);
+        }
+        return matches;
+    }
+
+    private static NavigableMap<String, Postings> withPrefix(NavigableMap<String, Postings> index, String prefix) {
+        return index.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+    }
+
+    /**
+     * Picks the query word whose prefix matches the fewest documents. Longer
+     * words are tried first since they usually expand to fewer index words.
+     */
+    private String mostSelective(String[] queryWords) {
+        String best = null;
+        long bestCount = Long.MAX_VALUE;
+        String[] byLength = queryWords.clone();
+        Arrays.sort(byLength, (a, b) -> b.length() - a.length());
+        for (String word : byLength) {
+            long count = countWithPrefix(word, bestCount);
+            if (count < bestCount) {
+                best = word;
+                bestCount = count;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @return the number of postings of words starting with the prefix,
+     *         counting no further than the bound
+     */
+    private long countWithPrefix(String prefix, long bound) {
+        long count = 0;
+        for (Postings list : withPrefix(postings, prefix).values()) {
+            count += list.size;
+            if (count >= bound) {
+                break;
+            }
+        }
+        return count;
+    }
+
+    private static boolean hasWordWithPrefix(String[] sortedWords, String prefix) {
+        int at = Arrays.binarySearch(sortedWords, prefix);
+        if (at >= 0) {
+            return true;
+        }
+        at = -at - 1;
+        return at < sortedWords.length && sortedWords[at].startsWith(prefix);
+    }
+}
@@ -0,0 +1,187 @@
+package com.fashionstore.storage;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * In-memory view of the stock held for shopping carts, mirroring the
+ * stock_reservations table. DataManager writes the table and keeps this in
+ * step with it.
+ *
+ * Reservations wait in a delay queue ordered by expiry, and a single sweeper
+ * thread hands each one to the expiry handler when its time is up, so expiry
+ * costs nothing until a reservation actually lapses. Reserved counts per
+ * product are kept as running totals and read without locking.
+ */
+class StockReservations {
+
+    /**
+     * Stock held for one product in one cart until the expiry time.
+     */
+    static final class Reservation implements Delayed {
+        final String productId;
+        final String cartId;
+        final int quantity;
+        final long expiresAt;
+
+        Reservation(String productId, String cartId, int quantity, long expiresAt) {
+            this.productId = productId;
+            this.cartId = cartId;
+            this.quantity = quantity;
+            this.expiresAt = expiresAt;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(expiresAt - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(expiresAt, ((Reservation) other).expiresAt);
+        }
+
+        @Override
+        public String toString() {
+            return "Reservation{" + productId + " x" + quantity + " for cart " + cartId + '}';
+        }
+    }
+
+    // cart ID -> product ID -> current reservation
+    private final Map<String, Map<String, Reservation>> byCart = new ConcurrentHashMap<>();
+    private final Map<String, Integer> reservedByProduct = new ConcurrentHashMap<>();
+    private final DelayQueue<Reservation> expiryQueue = new DelayQueue<>();
+    private final Consumer<Reservation> onExpired;
+    private final Thread sweeper;
+
+    StockReservations(Consumer<Reservation> onExpired) {
+        this.onExpired = onExpired;
+        this.sweeper = new Thread(this::sweep, "fashionstore-reservation-sweeper");
+        this.sweeper.setDaemon(true);
+        this.sweeper.start();
+    }
+
+    /**
+     * Records a reservation, replacing any earlier one for the same product
+     * and cart.
+     */
+    synchronized void put(Reservation reservation) {
+        Reservation previous = byCart
+                .computeIfAbsent(reservation.cartId, k -> new ConcurrentHashMap<>())
+                .put(reservation.productId, reservation);
+        adjust(reservation.productId, reservation.quantity - (previous != null ? previous.quantity : 0));
+        // A replaced reservation stays queued and is skipped when it comes due
+        expiryQueue.add(reservation);
+    }
+
+    synchronized void remove(String productId, String cartId) {
+        Map<String, Reservation> held = byCart.get(cartId);
+        if (held == null) {
+            return;
+        }
+        Reservation removed = held.remove(productId);
+        if (removed != null) {
+            adjust(productId, -removed.quantity);
+        }
+        if (held.isEmpty()) {
+            byCart.remove(cartId);
+        }
+    }
+
+    /**
+     * Settles a reservation that came due: drops it, or swaps in the renewed
+     * one, unless it was replaced in the meantime.
+     */
+    synchronized void replaceIfCurrent(Reservation expired, Reservation renewed) {
+        if (!isCurrent(expired)) {
+            return;
+        }
+        if (renewed != null) {
+            put(renewed);
+        } else {
+            remove(expired.productId, expired.cartId);
+        }
+    }
+
+    /**
+     * Forgets every reservation of a cart, e.g. once its order was placed.
+     */
+    synchronized void removeCart(String cartId) {
+        Map<String, Reservation> held = byCart.remove(cartId);
+        if (held != null) {
+            for (Reservation reservation : held.values()) {
+                adjust(reservation.productId, -reservation.quantity);
+            }
+        }
+    }
+
+    /**
+     * Forgets every reservation of a product, e.g. because it was deleted.
+     */
+    synchronized void removeProduct(String productId) {
+        for (String cartId : new ArrayList<>(byCart.keySet())) {
+            remove(productId, cartId);
+        }
+    }
+
+    synchronized void clear() {
+        byCart.clear();
+        reservedByProduct.clear();
+        expiryQueue.clear();
+    }
+
+    /**
+     * @return true if the reservation is still the one held for its product and cart
+     */
+    boolean isCurrent(Reservation reservation) {
+        Map<String, Reservation> held = byCart.get(reservation.cartId);
+        return held != null && held.get(reservation.productId) == reservation;
+    }
+
+    int getReserved(String productId) {
+        return reservedByProduct.getOrDefault(productId, 0);
+    }
+
+    List<Reservation> getCartReservations(String cartId) {
+        Map<String, Reservation> held = byCart.get(cartId);
+        return held != null ? new ArrayList<>(held.values()) : Collections.emptyList();
+    }
+
+    void shutdown() {
+        sweeper.interrupt();
+    }
+
+    private void adjust(String productId, int delta) {
+        if (delta != 0) {
+            reservedByProduct.merge(productId, delta, (a, b) -> a + b == 0 ? null : a + b);
+        }
+    }
+
+    private void sweep() {
+        while (!Thread.currentThread().isInterrupted()) {
+            Reservation reservation;
+            try {
+                reservation = expiryQueue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+
+            if (!isCurrent(reservation)) {
+                continue;
+            }
+            try {
+                onExpired.accept(reservation);
+            } catch (RuntimeException e) {
+                System.err.println("Error expiring " + reservation + ": " + e.getMessage());
+                e.printStackTrace();
+            }
+        }
+    }
+}
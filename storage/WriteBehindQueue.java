@@ -0,0 +1,314 @@
+package com.fashionstore.storage;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Asynchronous write-behind queue for DataManager mutations.
+ * Mutations are recorded as entity keys, so repeated changes to the same
+ * entity between flushes collapse into a single write. A single background
+ * thread flushes pending keys on a fixed interval, or early once the number
+ * of pending keys reaches the batch size.
+ *
+ * When a batch fails, its keys are written again one at a time, so one bad
+ * row cannot hold back the rest. A key that fails on its own is retried with
+ * exponential backoff, and after MAX_ATTEMPTS failures it is parked in a
+ * dead-letter set until it is queued again, i.e. until its entity changes.
+ */
+class WriteBehindQueue {
+
+    // Failures of a key on its own before it is parked
+    private static final int MAX_ATTEMPTS = 8;
+    // Longest wait before retrying a failing key
+    private static final long MAX_BACKOFF_MILLIS = 5 * 60 * 1000;
+
+    /**
+     * Kinds of entities that can be queued, in the order they must be written
+     * to satisfy foreign keys.
+     */
+    enum EntityType {
+        USER, PRODUCT, OUTFIT, CART
+    }
+
+    /**
+     * Persists one batch of entity keys of a single type inside one transaction.
+     */
+    interface BatchWriter {
+        /**
+         * @return true if the batch was committed, false if it should be retried
+         */
+        boolean write(EntityType type, List<String> keys);
+    }
+
+    /**
+     * How often a key has failed on its own, and when it may be tried again.
+     */
+    private static final class Retry {
+        final int attempts;
+        final long notBefore;
+
+        Retry(int attempts, long notBefore) {
+            this.attempts = attempts;
+            this.notBefore = notBefore;
+        }
+    }
+
+    private final BatchWriter writer;
+    private final int batchSize;
+    private final long flushIntervalMillis;
+    private final ScheduledExecutorService executor;
+    // The maps below are all guarded by pending
+    private final Map<EntityType, Set<String>> pending = new EnumMap<>(EntityType.class);
+    private final Map<EntityType, Map<String, Retry>> retrying = new EnumMap<>(EntityType.class);
+    private final Map<EntityType, Set<String>> deadLetters = new EnumMap<>(EntityType.class);
+    private int pendingCount = 0;
+    private boolean drainScheduled = false;
+
+    WriteBehindQueue(BatchWriter writer, long flushIntervalMillis, int batchSize) {
+        this.writer = writer;
+        this.batchSize = Math.max(1, batchSize);
+        this.flushIntervalMillis = Math.max(1, flushIntervalMillis);
+        for (EntityType type : EntityType.values()) {
+            pending.put(type, new LinkedHashSet<>());
+            retrying.put(type, new HashMap<>());
+            deadLetters.put(type, new LinkedHashSet<>());
+        }
+
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "fashionstore-write-behind");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.executor.scheduleWithFixedDelay(this::drain, flushIntervalMillis, flushIntervalMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Queues an entity for persistence. Keys already pending are coalesced,
+     * and a key waiting out its backoff is written when that runs out. A
+     * parked key gets a fresh set of attempts.
+     */
+    void enqueue(EntityType type, String key) {
+        if (key == null) {
+            return;
+        }
+
+        boolean triggerDrain = false;
+        synchronized (pending) {
+            deadLetters.get(type).remove(key);
+            if (!retrying.get(type).containsKey(key) && pending.get(type).add(key)) {
+                pendingCount++;
+            }
+            if (pendingCount >= batchSize && !drainScheduled) {
+                drainScheduled = true;
+                triggerDrain = true;
+            }
+        }
+
+        if (triggerDrain && !executor.isShutdown()) {
+            executor.execute(this::drain);
+        }
+    }
+
+    /**
+     * Drops a pending key, e.g. because the entity was deleted.
+     */
+    void cancel(EntityType type, String key) {
+        synchronized (pending) {
+            if (pending.get(type).remove(key)) {
+                pendingCount--;
+            }
+            retrying.get(type).remove(key);
+            deadLetters.get(type).remove(key);
+        }
+    }
+
+    /**
+     * Returns the number of entity keys waiting to be written.
+     */
+    int getPendingCount() {
+        synchronized (pending) {
+            return pendingCount;
+        }
+    }
+
+    /**
+     * Returns the number of entity keys that failed to write and are waiting
+     * for a retry or parked.
+     */
+    int getFailedCount() {
+        synchronized (pending) {
+            int failed = 0;
+            for (EntityType type : EntityType.values()) {
+                failed += retrying.get(type).size() + deadLetters.get(type).size();
+            }
+            return failed;
+        }
+    }
+
+    /**
+     * Blocks until everything queued before this call has been attempted.
+     * Keys waiting out a backoff are not retried early.
+     *
+     * @return false if any key is still failing to write
+     */
+    boolean flush() {
+        return flush(false);
+    }
+
+    /**
+     * Gives every outstanding key, failing ones included, a last attempt and
+     * stops the background writer.
+     *
+     * @return false if some changes could not be written; they are logged
+     */
+    boolean shutdown() {
+        boolean written = flush(true);
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                System.err.println("Write-behind writer did not stop in time");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (!written) {
+            synchronized (pending) {
+                for (EntityType type : EntityType.values()) {
+                    Set<String> lost = new LinkedHashSet<>(retrying.get(type).keySet());
+                    lost.addAll(deadLetters.get(type));
+                    if (!lost.isEmpty()) {
+                        System.err.println("Could not save " + lost.size() + " " + type + " changes: " + lost);
+                    }
+                }
+            }
+        }
+        return written;
+    }
+
+    /**
+     * @param retryNow also retry failing keys whose backoff has not run out
+     */
+    private boolean flush(boolean retryNow) {
+        if (executor.isShutdown()) {
+            drain(retryNow);
+            return getFailedCount() == 0;
+        }
+
+        Future<?> done = executor.submit(() -> drain(retryNow));
+        try {
+            done.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.err.println("Interrupted while flushing pending writes");
+            return false;
+        } catch (ExecutionException e) {
+            System.err.println("Error flushing pending writes: " + e.getCause().getMessage());
+            return false;
+        }
+        return getFailedCount() == 0;
+    }
+
+    private void drain() {
+        drain(false);
+    }
+
+    private void drain(boolean retryNow) {
+        long now = System.currentTimeMillis();
+        Map<EntityType, List<String>> batch = new EnumMap<>(EntityType.class);
+        synchronized (pending) {
+            drainScheduled = false;
+            // Failing keys are written again once their backoff runs out
+            for (EntityType type : EntityType.values()) {
+                for (Map.Entry<String, Retry> entry : retrying.get(type).entrySet()) {
+                    if ((retryNow || entry.getValue().notBefore <= now) && pending.get(type).add(entry.getKey())) {
+                        pendingCount++;
+                    }
+                }
+            }
+            if (pendingCount == 0) {
+                return;
+            }
+            for (Map.Entry<EntityType, Set<String>> entry : pending.entrySet()) {
+                batch.put(entry.getKey(), new ArrayList<>(entry.getValue()));
+                entry.getValue().clear();
+            }
+            pendingCount = 0;
+        }
+
+        // Write parents before children so foreign keys are satisfied
+        for (EntityType type : EntityType.values()) {
+            List<String> keys = batch.get(type);
+            for (int from = 0; from < keys.size(); from += batchSize) {
+                List<String> chunk = keys.subList(from, Math.min(keys.size(), from + batchSize));
+                if (write(type, chunk)) {
+                    succeeded(type, chunk);
+                } else if (chunk.size() == 1) {
+                    failed(type, chunk.get(0), now);
+                } else {
+                    // Write the keys one at a time to find the ones that fail
+                    for (String key : chunk) {
+                        List<String> single = Collections.singletonList(key);
+                        if (write(type, single)) {
+                            succeeded(type, single);
+                        } else {
+                            failed(type, key, now);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private boolean write(EntityType type, List<String> keys) {
+        try {
+            return writer.write(type, keys);
+        } catch (RuntimeException e) {
+            System.err.println("Error writing " + type + " batch: " + e);
+            return false;
+        }
+    }
+
+    private void succeeded(EntityType type, List<String> keys) {
+        synchronized (pending) {
+            Map<String, Retry> failing = retrying.get(type);
+            if (!failing.isEmpty()) {
+                for (String key : keys) {
+                    failing.remove(key);
+                }
+            }
+        }
+    }
+
+    /**
+     * Schedules a retry of a key that failed on its own, or parks it once it
+     * has failed MAX_ATTEMPTS times.
+     */
+    private void failed(EntityType type, String key, long now) {
+        synchronized (pending) {
+            Retry previous = retrying.get(type).get(key);
+            int attempts = previous != null ? previous.attempts + 1 : 1;
+            if (attempts >= MAX_ATTEMPTS) {
+                retrying.get(type).remove(key);
+                deadLetters.get(type).add(key);
+                System.err.println("Giving up on saving " + type + " " + key + " after " + attempts
+                        + " attempts; it is saved again once it changes");
+            } else {
+                long backoff = Math.min(MAX_BACKOFF_MILLIS, flushIntervalMillis << Math.min(attempts, 20));
+                retrying.get(type).put(key, new Retry(attempts, now + backoff));
+            }
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.fashionstore.ui.components;
 
 import com.fashionstore.models.Product;
+import com.fashionstore.utils.ImageLoader;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.control.Label;
@@ -19,6 +20,10 @@ import java.util.Map;
  * Users can drag and drop clothing items onto the body parts to create outfits.
  */
 public class BodyCanvas extends VBox {
+    private static final String SILHOUETTE_PATH = "/images/silhouette.png";
+    private static final int SILHOUETTE_WIDTH = 200;
+    private static final int SILHOUETTE_HEIGHT = 400;
+
     // Body zones for different clothing types
     private final StackPane headZone;
     private final StackPane topZone;
@@ -44,28 +49,20 @@ public class BodyCanvas extends VBox {
         setMaxWidth(400);
         getStyleClass().add("body-canvas");
 
-        // Create the silhouette image
+        // Show the silhouette image; the generated fallback comes from the
+        // silhouette cache, pre-warmed at startup, so nothing is drawn here
         silhouetteView = new ImageView();
-        try {
-            // Try to load image from resources
-            Image silhouette = new Image(getClass().getResourceAsStream("/images/silhouette.png"));
-            if (silhouette == null || silhouette.isError()) {
-                // If file not found or empty, generate a silhouette programmatically
-                silhouette = SilhouetteGenerator.generateSilhouette(200, 400);
-                System.out.println("Using generated silhouette image");
-            }
-            silhouetteView.setImage(silhouette);
-            silhouetteView.setFitHeight(400);
-            silhouetteView.setPreserveRatio(true);
-            silhouetteView.setOpacity(0.15); // Very light silhouette
-        } catch (Exception e) {
-            System.err.println("Could not load silhouette image: " + e.getMessage());
-            // Generate a silhouette programmatically as fallback
-            Image silhouette = SilhouetteGenerator.generateSilhouette(200, 400);
+        silhouetteView.setFitHeight(SILHOUETTE_HEIGHT);
+        silhouetteView.setPreserveRatio(true);
+        silhouetteView.setOpacity(0.15); // Very light silhouette
+        double scale = SilhouetteGenerator.primaryOutputScale();
+        Image silhouette = ImageLoader.load(SILHOUETTE_PATH, decodeSize(scale));
+        if (silhouette == null) {
+            silhouetteView.setImage(generatedSilhouette(scale));
+        } else {
             silhouetteView.setImage(silhouette);
-            silhouetteView.setFitHeight(400);
-            silhouetteView.setPreserveRatio(true);
-            silhouetteView.setOpacity(0.15);
+            // If the file turns out to be unreadable, switch to the generated one
+            ImageLoader.whenFailed(silhouette, () -> silhouetteView.setImage(generatedSilhouette(scale)));
         }
 
         // Create the zones with initial labels
@@ -92,6 +89,26 @@ public class BodyCanvas extends VBox {
         setupDropHandlers();
     }
 
+    /**
+     * Gets the silhouette ready in the background, so the first outfit creator
+     * opens without decoding or drawing it. Call on the FX application thread.
+     */
+    public static void prewarmSilhouette() {
+        double scale = SilhouetteGenerator.primaryOutputScale();
+        if (ImageLoader.load(SILHOUETTE_PATH, decodeSize(scale)) == null) {
+            SilhouetteGenerator.prewarm(SILHOUETTE_WIDTH, SILHOUETTE_HEIGHT, SilhouetteGenerator.Style.STANDARD);
+        }
+    }
+
+    private static int decodeSize(double scale) {
+        return (int) Math.ceil(SILHOUETTE_HEIGHT * scale);
+    }
+
+    private static Image generatedSilhouette(double scale) {
+        return SilhouetteGenerator.getSilhouette(SILHOUETTE_WIDTH, SILHOUETTE_HEIGHT,
+                SilhouetteGenerator.Style.STANDARD, scale);
+    }
+
     /**
      * Creates a drop zone for a specific body part
      */
@@ -5,6 +5,7 @@ import com.fashionstore.controllers.OutfitDetailController;
 import com.fashionstore.models.Outfit;
 import com.fashionstore.models.Product;
 import com.fashionstore.storage.DataManager;
+import com.fashionstore.utils.ImageLoader;
 import com.fashionstore.utils.SceneManager;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
@@ -15,17 +16,13 @@ import javafx.scene.image.ImageView;
 import javafx.scene.input.MouseEvent;
 import javafx.scene.layout.FlowPane;
 import javafx.scene.layout.VBox;
-import javafx.scene.paint.Color;
-import javafx.scene.shape.Rectangle;
 import javafx.stage.Modality;
 import javafx.stage.Stage;
 import javafx.stage.Window;
 
-import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Objects;
 
 public class OutfitPreview extends VBox {
     private static final int IMAGE_SIZE = 80;
@@ -98,30 +95,13 @@ public class OutfitPreview extends VBox {
         ImageView imageView = new ImageView();
         configureImageView(imageView);
 
-        try {
-            String imagePath = product.getImagePath();
-            if (imagePath != null && !imagePath.isEmpty()) {
-                // Try to load from file system first
-                File imageFile = new File(imagePath);
-                if (imageFile.exists()) {
-                    imageView.setImage(new Image(imageFile.toURI().toString()));
-                    return imageView;
-                }
-
-                // Try to load from classpath resources
-                try {
-                    imageView.setImage(new Image(getClass().getResourceAsStream(imagePath)));
-                    return imageView;
-                } catch (Exception ignored) {
-                }
-            }
-
-            // Fallback to placeholder
+        Image image = ImageLoader.load(product.getPreviewImagePath(), IMAGE_SIZE);
+        if (image == null) {
             imageView.setImage(loadResourceImage("/images/product-placeholder.png"));
-        } catch (Exception e) {
-            imageView.setImage(loadResourceImage("/images/broken-image.png"));
+            return imageView;
         }
-
+        imageView.setImage(image);
+        ImageLoader.whenFailed(image, () -> imageView.setImage(loadResourceImage("/images/broken-image.png")));
         return imageView;
     }
 
@@ -138,19 +118,8 @@ public class OutfitPreview extends VBox {
     }
 
     private Image loadResourceImage(String path) {
-        try {
-            return new Image(Objects.requireNonNull(
-                    getClass().getResourceAsStream(path),
-                    "Failed to load image: " + path));
-        } catch (Exception e) {
-            return createColorPlaceholder(Color.LIGHTGRAY);
-        }
-    }
-
-    private Image createColorPlaceholder(Color color) {
-        Rectangle placeholder = new Rectangle(IMAGE_SIZE, IMAGE_SIZE);
-        placeholder.setFill(color);
-        return placeholder.snapshot(null, null);
+        Image image = ImageLoader.load(path, IMAGE_SIZE);
+        return image != null ? image : PlaceholderImages.get(null, null, IMAGE_SIZE);
     }
 
     private void setupEventHandlers() {
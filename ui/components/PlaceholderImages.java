@@ -0,0 +1,133 @@
+package com.fashionstore.ui.components;
+
+import javafx.scene.SnapshotParameters;
+import javafx.scene.control.Label;
+import javafx.scene.image.Image;
+import javafx.scene.layout.StackPane;
+import javafx.scene.paint.Color;
+import javafx.scene.shape.Rectangle;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Shared placeholder images for products without a usable image: a rounded
+ * square in the product's colour with the initial of its category.
+ *
+ * Each variant is snapshotted once, the first time it is asked for, and the
+ * same Image is handed to every view after that. Only a few variants exist
+ * (categories x colours x sizes), so they are kept for the rest of the run.
+ * Snapshots need the FX application thread, so this must only be used there.
+ */
+public final class PlaceholderImages {
+
+    private static final double CORNER_RADIUS = 10;
+    private static final Color DEFAULT_FILL = Color.LIGHTGRAY;
+
+    /**
+     * Cache key: category, colour name and size, normalized so that e.g.
+     * "Tops"/"Black" and "tops"/"black" share an image.
+     */
+    private static final class Key {
+        final String category;
+        final String color;
+        final int size;
+
+        Key(String category, String color, int size) {
+            this.category = normalize(category);
+            this.color = normalize(color);
+            this.size = size;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return size == other.size && category.equals(other.category) && color.equals(other.color);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(category, color, size);
+        }
+    }
+
+    private static final Map<Key, Image> images = new HashMap<>();
+
+    private PlaceholderImages() {
+    }
+
+    /**
+     * Returns the placeholder for a category and colour.
+     *
+     * @param category the product category, or null for no initial
+     * @param colorName the product colour name, e.g. "navy", or null for grey
+     * @param size the width and height of the image
+     */
+    public static Image get(String category, String colorName, int size) {
+        return images.computeIfAbsent(new Key(category, colorName, size), PlaceholderImages::render);
+    }
+
+    private static Image render(Key key) {
+        Rectangle placeholder = new Rectangle(key.size, key.size);
+        placeholder.setArcWidth(CORNER_RADIUS);
+        placeholder.setArcHeight(CORNER_RADIUS);
+        placeholder.setFill(key.color.isEmpty() ? DEFAULT_FILL : Color.web(mapColorNameToHex(key.color)));
+
+        SnapshotParameters params = new SnapshotParameters();
+        params.setFill(Color.TRANSPARENT);
+        if (key.category.isEmpty()) {
+            return placeholder.snapshot(params, null);
+        }
+
+        // Add the category's initial letter in the center
+        Label initialLabel = new Label(key.category.substring(0, 1).toUpperCase(Locale.ROOT));
+        initialLabel.setStyle("-fx-font-size: " + Math.round(key.size * 0.32)
+                + "px; -fx-text-fill: white; -fx-font-weight: bold;");
+        // The snapshot lays the pane out, which centres the letter
+        StackPane pane = new StackPane(placeholder, initialLabel);
+        pane.setBackground(null);
+        return pane.snapshot(params, null);
+    }
+
+    private static String normalize(String value) {
+        return value == null ? "" : value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static String mapColorNameToHex(String colorName) {
+        // Basic color mapping
+        switch (colorName) {
+            case "black":
+                return "#000000";
+            case "white":
+                return "#FFFFFF";
+            case "red":
+                return "#FF0000";
+            case "green":
+                return "#00FF00";
+            case "blue":
+                return "#0000FF";
+            case "yellow":
+                return "#FFFF00";
+            case "purple":
+                return "#800080";
+            case "orange":
+                return "#FFA500";
+            case "pink":
+                return "#FFC0CB";
+            case "gray":
+            case "grey":
+                return "#808080";
+            case "brown":
+                return "#A52A2A";
+            case "navy":
+                return "#000080";
+            default:
+                return "#DDDDDD";
+        }
+    }
+}
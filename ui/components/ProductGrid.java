@@ -0,0 +1,242 @@
+package com.fashionstore.ui.components;
+
+import com.fashionstore.models.Product;
+import javafx.animation.FadeTransition;
+import javafx.geometry.Orientation;
+import javafx.scene.control.ScrollBar;
+import javafx.scene.layout.Pane;
+import javafx.scene.layout.Region;
+import javafx.scene.shape.Rectangle;
+import javafx.util.Duration;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Scrolling grid of product cards that only creates cards for the rows in
+ * view. Cards scrolled out of view go back to a pool and are rebound to the
+ * products scrolling in, so the number of cards, images and layout passes
+ * depends on the window size rather than on the number of products.
+ *
+ * Cards have a fixed size, which lets the grid work out the visible rows
+ * from the scroll position alone. Only cards that newly come into view fade
+ * in; cards that stay in view are just moved.
+ */
+public class ProductGrid extends Region {
+
+    private static final double CELL_WIDTH = 280;
+    private static final double CELL_HEIGHT = 440;
+    private static final double PADDING = 20;
+    private static final Duration FADE_DURATION = Duration.millis(300);
+
+    private final ScrollBar scrollBar = new ScrollBar();
+    private final Pane viewport = new Pane();
+    private final Rectangle viewportClip = new Rectangle();
+
+    private List<Product> items = Collections.emptyList();
+    // Item index -> card showing it
+    private final Map<Integer, StoreItemView> visibleCells = new HashMap<>();
+    private final Deque<StoreItemView> freeCells = new ArrayDeque<>();
+    private final Map<StoreItemView, FadeTransition> fades = new HashMap<>();
+
+    private double hgap = 20;
+    private double vgap = 20;
+    private boolean markOutOfStock = false;
+    private Consumer<Product> onPurchase;
+
+    public ProductGrid() {
+        getStyleClass().add("product-grid");
+
+        scrollBar.setOrientation(Orientation.VERTICAL);
+        scrollBar.valueProperty().addListener((obs, oldValue, newValue) -> requestLayout());
+
+        viewport.setClip(viewportClip);
+        viewport.setManaged(false);
+        scrollBar.setManaged(false);
+        getChildren().addAll(viewport, scrollBar);
+
+        setOnScroll(e -> scrollBar.setValue(
+                Math.max(0, Math.min(scrollBar.getMax(), scrollBar.getValue() - e.getDeltaY()))));
+    }
+
+    /**
+     * Shows another list of products, scrolled back to the top.
+     */
+    public void setItems(List<Product> items) {
+        this.items = items != null ? new ArrayList<>(items) : Collections.emptyList();
+        releaseAll();
+        scrollBar.setValue(0);
+        requestLayout();
+    }
+
+    public List<Product> getItems() {
+        return Collections.unmodifiableList(items);
+    }
+
+    /**
+     * Rebinds the cards in view to their products, e.g. after stock changed.
+     */
+    public void refresh() {
+        for (Map.Entry<Integer, StoreItemView> entry : visibleCells.entrySet()) {
+            bind(entry.getValue(), items.get(entry.getKey()));
+        }
+    }
+
+    public void setOnPurchase(Consumer<Product> onPurchase) {
+        this.onPurchase = onPurchase;
+    }
+
+    /**
+     * Whether out-of-stock products get an overlay on their image, as well as
+     * a disabled purchase button.
+     */
+    public void setMarkOutOfStock(boolean markOutOfStock) {
+        this.markOutOfStock = markOutOfStock;
+    }
+
+    public void setHgap(double hgap) {
+        this.hgap = hgap;
+        requestLayout();
+    }
+
+    public void setVgap(double vgap) {
+        this.vgap = vgap;
+        requestLayout();
+    }
+
+    @Override
+    protected double computePrefWidth(double height) {
+        return CELL_WIDTH + 2 * PADDING + scrollBar.prefWidth(-1);
+    }
+
+    @Override
+    protected double computePrefHeight(double width) {
+        return CELL_HEIGHT + 2 * PADDING;
+    }
+
+    @Override
+    protected void layoutChildren() {
+        double width = getWidth();
+        double height = getHeight();
+        double barWidth = scrollBar.prefWidth(-1);
+        double contentWidth = Math.max(0, width - barWidth);
+
+        viewport.resizeRelocate(0, 0, contentWidth, height);
+        viewportClip.setWidth(contentWidth);
+        viewportClip.setHeight(height);
+
+        int columns = Math.max(1, (int) ((contentWidth - 2 * PADDING + hgap) / (CELL_WIDTH + hgap)));
+        int rows = (items.size() + columns - 1) / columns;
+        double rowHeight = CELL_HEIGHT + vgap;
+        double contentHeight = rows > 0 ? 2 * PADDING + rows * rowHeight - vgap : 0;
+
+        double maxScroll = Math.max(0, contentHeight - height);
+        scrollBar.setMax(maxScroll);
+        scrollBar.setVisibleAmount(contentHeight > 0 ? height * maxScroll / contentHeight : 0);
+        scrollBar.setUnitIncrement(rowHeight / 4);
+        scrollBar.setBlockIncrement(height);
+        scrollBar.setVisible(maxScroll > 0);
+        scrollBar.resizeRelocate(contentWidth, 0, barWidth, height);
+        if (scrollBar.getValue() > maxScroll) {
+            // Re-laid out by the value listener
+            scrollBar.setValue(maxScroll);
+            return;
+        }
+
+        double offset = scrollBar.getValue();
+        int firstRow = (int) Math.max(0, (offset - PADDING) / rowHeight);
+        int lastRow = (int) Math.max(0, (offset + height - PADDING) / rowHeight);
+        int first = Math.min(items.size(), firstRow * columns);
+        int end = Math.min(items.size(), (lastRow + 1) * columns);
+
+        // Release the cards that scrolled out before binding new ones, so
+        // they can be reused straight away
+        Iterator<Map.Entry<Integer, StoreItemView>> it = visibleCells.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Integer, StoreItemView> entry = it.next();
+            if (entry.getKey() < first || entry.getKey() >= end) {
+                release(entry.getValue());
+                it.remove();
+            }
+        }
+
+        // Centre the columns in the available width
+        double gridWidth = columns * CELL_WIDTH + (columns - 1) * hgap;
+        double left = Math.max(PADDING, (contentWidth - gridWidth) / 2);
+        for (int index = first; index < end; index++) {
+            StoreItemView cell = visibleCells.get(index);
+            if (cell == null) {
+                cell = acquire(items.get(index));
+                visibleCells.put(index, cell);
+                fades.get(cell).playFromStart();
+            }
+            int row = index / columns;
+            int column = index % columns;
+            cell.resizeRelocate(left + column * (CELL_WIDTH + hgap),
+                    PADDING + row * rowHeight - offset, CELL_WIDTH, CELL_HEIGHT);
+        }
+    }
+
+    /**
+     * @return a pooled card rebound to the product, or a new card if none is free
+     */
+    private StoreItemView acquire(Product product) {
+        StoreItemView cell = freeCells.poll();
+        if (cell != null) {
+            bind(cell, product);
+            cell.setVisible(true);
+            return cell;
+        }
+
+        StoreItemView created = new StoreItemView(product);
+        created.setOnPurchase(e -> {
+            if (onPurchase != null) {
+                onPurchase.accept(created.getProduct());
+            }
+        });
+        created.getStyleClass().add("item-fade-in");
+        created.setManaged(false);
+        if (markOutOfStock && product.getStockQuantity() <= 0) {
+            created.markAsOutOfStock();
+        }
+
+        FadeTransition fade = new FadeTransition(FADE_DURATION, created);
+        fade.setFromValue(0);
+        fade.setToValue(1);
+        fades.put(created, fade);
+        viewport.getChildren().add(created);
+        return created;
+    }
+
+    private void release(StoreItemView cell) {
+        // Pooled cards stay in the scene graph, hidden, to avoid re-adding
+        // them; undo any hover effect left over from their last product
+        fades.get(cell).stop();
+        cell.setVisible(false);
+        cell.setOpacity(1);
+        cell.setScaleX(1);
+        cell.setScaleY(1);
+        freeCells.push(cell);
+    }
+
+    private void releaseAll() {
+        for (StoreItemView cell : visibleCells.values()) {
+            release(cell);
+        }
+        visibleCells.clear();
+    }
+
+    private void bind(StoreItemView cell, Product product) {
+        cell.setProduct(product);
+        if (markOutOfStock && product.getStockQuantity() <= 0) {
+            cell.markAsOutOfStock();
+        }
+    }
+}
@@ -1,125 +1,259 @@
 package com.fashionstore.ui.components;
 
-import javafx.scene.canvas.Canvas;
-import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.image.Image;
+import javafx.scene.image.PixelFormat;
 import javafx.scene.image.WritableImage;
-import javafx.scene.paint.Color;
+import javafx.stage.Screen;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Polygon;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * Generates a human silhouette image programmatically.
  * This is used as a fallback if we don't have an actual silhouette image file.
+ *
+ * Rendered silhouettes are cached by size, style and screen scale, so each is
+ * rasterized once per run. Rendering draws into an off-screen buffer rather
+ * than a Canvas, so it can run on a background thread; call
+ * {@link #prewarm(int, int, Style)} at startup to have the silhouettes ready
+ * before the first view asks for them.
  */
 public class SilhouetteGenerator {
 
+    /**
+     * How the silhouette is painted.
+     */
+    public enum Style {
+        // Translucent grey body with a slightly darker outline
+        STANDARD(new Color(100, 100, 100, 77), new Color(80, 80, 80, 102), 1.5f);
+
+        private final Color fill;
+        private final Color stroke;
+        private final float lineWidth;
+
+        Style(Color fill, Color stroke, float lineWidth) {
+            this.fill = fill;
+            this.stroke = stroke;
+            this.lineWidth = lineWidth;
+        }
+    }
+
+    /**
+     * Cache key: logical size, style and the screen's output scale.
+     */
+    private static final class Key {
+        final int width;
+        final int height;
+        final Style style;
+        final double scale;
+
+        Key(int width, int height, Style style, double scale) {
+            this.width = width;
+            this.height = height;
+            this.style = style;
+            this.scale = scale;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return width == other.width && height == other.height && style == other.style
+                    && Double.compare(scale, other.scale) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(width, height, style, scale);
+        }
+    }
+
+    // Only a handful of sizes and scales are ever used, so the cache is unbounded
+    private static final Map<Key, CompletableFuture<Image>> cache = new ConcurrentHashMap<>();
+
+    private static final ExecutorService renderExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "fashionstore-silhouettes");
+        thread.setDaemon(true);
+        return thread;
+    });
+
     /**
      * Generates a simple human silhouette image
-     * 
+     *
      * @param width  Width of the image
      * @param height Height of the image
      * @return Image containing a human silhouette
      */
     public static Image generateSilhouette(int width, int height) {
-        // Create a canvas to draw on
-        Canvas canvas = new Canvas(width, height);
-        GraphicsContext gc = canvas.getGraphicsContext2D();
-
-        // Fill with transparent background
-        gc.setFill(Color.TRANSPARENT);
-        gc.fillRect(0, 0, width, height);
-
-        // Set color for silhouette
-        gc.setFill(Color.rgb(100, 100, 100, 0.3));
-        gc.setStroke(Color.rgb(80, 80, 80, 0.4));
-        gc.setLineWidth(1.5);
-
-        // Calculate proportions
-        int centerX = width / 2;
-        int headRadius = width / 8;
-        int neckWidth = width / 12;
-        int shoulderWidth = width / 3;
-        int hipWidth = width / 4;
-        int legWidth = width / 12;
-
-        // Head position
-        int headY = height / 8 + headRadius;
-
-        // Draw head
-        gc.fillOval(centerX - headRadius, headY - headRadius, headRadius * 2, headRadius * 2);
-        gc.strokeOval(centerX - headRadius, headY - headRadius, headRadius * 2, headRadius * 2);
-
-        // Draw neck
-        int neckTop = headY + headRadius - 5;
-        int neckHeight = height / 12;
-        gc.fillRect(centerX - neckWidth / 2, neckTop, neckWidth, neckHeight);
-        gc.strokeRect(centerX - neckWidth / 2, neckTop, neckWidth, neckHeight);
-
-        // Draw shoulders and torso
-        int shoulderY = neckTop + neckHeight;
-        int torsoHeight = height / 3;
-
-        // Shoulders
-        gc.beginPath();
-        gc.moveTo(centerX - shoulderWidth / 2, shoulderY);
-        gc.lineTo(centerX + shoulderWidth / 2, shoulderY);
-        gc.lineTo(centerX + hipWidth / 2, shoulderY + torsoHeight);
-        gc.lineTo(centerX - hipWidth / 2, shoulderY + torsoHeight);
-        gc.closePath();
-        gc.fill();
-        gc.stroke();
-
-        // Draw arms
-        int armLength = height / 3;
-        int handY = shoulderY + armLength;
-
-        // Left arm
-        gc.beginPath();
-        gc.moveTo(centerX - shoulderWidth / 2, shoulderY);
-        gc.lineTo(centerX - shoulderWidth / 2 - width / 15, handY);
-        gc.lineTo(centerX - shoulderWidth / 2 + width / 30, handY);
-        gc.lineTo(centerX - shoulderWidth / 3, shoulderY + width / 30);
-        gc.closePath();
-        gc.fill();
-        gc.stroke();
-
-        // Right arm
-        gc.beginPath();
-        gc.moveTo(centerX + shoulderWidth / 2, shoulderY);
-        gc.lineTo(centerX + shoulderWidth / 2 + width / 15, handY);
-        gc.lineTo(centerX + shoulderWidth / 2 - width / 30, handY);
-        gc.lineTo(centerX + shoulderWidth / 3, shoulderY + width / 30);
-        gc.closePath();
-        gc.fill();
-        gc.stroke();
-
-        // Draw legs
-        int legTop = shoulderY + torsoHeight;
-        int legHeight = height - legTop - height / 20;
-
-        // Left leg
-        gc.beginPath();
-        gc.moveTo(centerX - hipWidth / 3, legTop);
-        gc.lineTo(centerX - hipWidth / 3 - legWidth, legTop + legHeight);
-        gc.lineTo(centerX - hipWidth / 3 + legWidth, legTop + legHeight);
-        gc.lineTo(centerX - hipWidth / 6, legTop);
-        gc.closePath();
-        gc.fill();
-        gc.stroke();
-
-        // Right leg
-        gc.beginPath();
-        gc.moveTo(centerX + hipWidth / 3, legTop);
-        gc.lineTo(centerX + hipWidth / 3 + legWidth, legTop + legHeight);
-        gc.lineTo(centerX + hipWidth / 3 - legWidth, legTop + legHeight);
-        gc.lineTo(centerX + hipWidth / 6, legTop);
-        gc.closePath();
-        gc.fill();
-        gc.stroke();
-
-        // Create image from canvas
-        WritableImage image = new WritableImage(width, height);
-        canvas.snapshot(null, image);
+        return getSilhouette(width, height, Style.STANDARD, 1.0);
+    }
+
+    /**
+     * Returns the silhouette for a size, style and screen scale, rendering it
+     * only if it is not cached yet. If a background render of it is under way,
+     * this waits for that render rather than starting another.
+     *
+     * @param width  logical width of the image
+     * @param height logical height of the image
+     * @param scale  output scale of the screen, e.g. 2.0 on a HiDPI display;
+     *               the image has width * scale x height * scale pixels
+     */
+    public static Image getSilhouette(int width, int height, Style style, double scale) {
+        Key key = new Key(width, height, style, scale);
+        try {
+            return cache.computeIfAbsent(key, k -> CompletableFuture.completedFuture(render(k))).join();
+        } catch (CompletionException e) {
+            // A failed background render is retried here rather than cached
+            System.err.println("Error rendering silhouette in the background: " + e.getCause());
+            Image image = render(key);
+            cache.put(key, CompletableFuture.completedFuture(image));
+            return image;
+        }
+    }
 
+    /**
+     * Renders the silhouettes for a size and style in the background, at the
+     * output scale of every screen.
+     */
+    public static void prewarm(int width, int height, Style style) {
+        for (double scale : outputScales()) {
+            cache.computeIfAbsent(new Key(width, height, style, scale),
+                    key -> CompletableFuture.supplyAsync(() -> render(key), renderExecutor));
+        }
+    }
+
+    /**
+     * @return the output scale of the primary screen, which views that are
+     *         not shown yet are most likely to end up on
+     */
+    public static double primaryOutputScale() {
+        return Screen.getPrimary().getOutputScaleX();
+    }
+
+    private static Set<Double> outputScales() {
+        Set<Double> scales = new TreeSet<>();
+        for (Screen screen : Screen.getScreens()) {
+            scales.add(screen.getOutputScaleX());
+        }
+        scales.add(primaryOutputScale());
+        return scales;
+    }
+
+    private static Image render(Key key) {
+        int width = key.width;
+        int height = key.height;
+        int pixelWidth = (int) Math.ceil(width * key.scale);
+        int pixelHeight = (int) Math.ceil(height * key.scale);
+
+        // Transparent background
+        BufferedImage buffer = new BufferedImage(pixelWidth, pixelHeight, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D gc = buffer.createGraphics();
+        try {
+            gc.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            gc.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL, RenderingHints.VALUE_STROKE_PURE);
+            // Draw in logical coordinates; the scale gives HiDPI variants their detail
+            gc.scale(key.scale, key.scale);
+            gc.setStroke(new BasicStroke(key.style.lineWidth));
+
+            // Calculate proportions
+            int centerX = width / 2;
+            int headRadius = width / 8;
+            int neckWidth = width / 12;
+            int shoulderWidth = width / 3;
+            int hipWidth = width / 4;
+            int legWidth = width / 12;
+
+            // Head position
+            int headY = height / 8 + headRadius;
+
+            // Draw head
+            gc.setColor(key.style.fill);
+            gc.fillOval(centerX - headRadius, headY - headRadius, headRadius * 2, headRadius * 2);
+            gc.setColor(key.style.stroke);
+            gc.drawOval(centerX - headRadius, headY - headRadius, headRadius * 2, headRadius * 2);
+
+            // Draw neck
+            int neckTop = headY + headRadius - 5;
+            int neckHeight = height / 12;
+            gc.setColor(key.style.fill);
+            gc.fillRect(centerX - neckWidth / 2, neckTop, neckWidth, neckHeight);
+            gc.setColor(key.style.stroke);
+            gc.drawRect(centerX - neckWidth / 2, neckTop, neckWidth, neckHeight);
+
+            // Draw shoulders and torso
+            int shoulderY = neckTop + neckHeight;
+            int torsoHeight = height / 3;
+
+            // Shoulders
+            drawShape(gc, key.style,
+                    new int[] { centerX - shoulderWidth / 2, centerX + shoulderWidth / 2,
+                            centerX + hipWidth / 2, centerX - hipWidth / 2 },
+                    new int[] { shoulderY, shoulderY, shoulderY + torsoHeight, shoulderY + torsoHeight });
+
+            // Draw arms
+            int armLength = height / 3;
+            int handY = shoulderY + armLength;
+
+            // Left arm
+            drawShape(gc, key.style,
+                    new int[] { centerX - shoulderWidth / 2, centerX - shoulderWidth / 2 - width / 15,
+                            centerX - shoulderWidth / 2 + width / 30, centerX - shoulderWidth / 3 },
+                    new int[] { shoulderY, handY, handY, shoulderY + width / 30 });
+
+            // Right arm
+            drawShape(gc, key.style,
+                    new int[] { centerX + shoulderWidth / 2, centerX + shoulderWidth / 2 + width / 15,
+                            centerX + shoulderWidth / 2 - width / 30, centerX + shoulderWidth / 3 },
+                    new int[] { shoulderY, handY, handY, shoulderY + width / 30 });
+
+            // Draw legs
+            int legTop = shoulderY + torsoHeight;
+            int legHeight = height - legTop - height / 20;
+
+            // Left leg
+            drawShape(gc, key.style,
+                    new int[] { centerX - hipWidth / 3, centerX - hipWidth / 3 - legWidth,
+                            centerX - hipWidth / 3 + legWidth, centerX - hipWidth / 6 },
+                    new int[] { legTop, legTop + legHeight, legTop + legHeight, legTop });
+
+            // Right leg
+            drawShape(gc, key.style,
+                    new int[] { centerX + hipWidth / 3, centerX + hipWidth / 3 + legWidth,
+                            centerX + hipWidth / 3 - legWidth, centerX + hipWidth / 6 },
+                    new int[] { legTop, legTop + legHeight, legTop + legHeight, legTop });
+        } finally {
+            gc.dispose();
+        }
+
+        // Copy into an image JavaFX can show; neither step needs the FX thread
+        int[] pixels = buffer.getRGB(0, 0, pixelWidth, pixelHeight, null, 0, pixelWidth);
+        WritableImage image = new WritableImage(pixelWidth, pixelHeight);
+        image.getPixelWriter().setPixels(0, 0, pixelWidth, pixelHeight, PixelFormat.getIntArgbInstance(),
+                pixels, 0, pixelWidth);
+        System.out.println("Rendered " + width + "x" + height + " silhouette at scale " + key.scale);
         return image;
     }
+
+    private static void drawShape(Graphics2D gc, Style style, int[] xs, int[] ys) {
+        Polygon shape = new Polygon(xs, ys, xs.length);
+        gc.setColor(style.fill);
+        gc.fillPolygon(shape);
+        gc.setColor(style.stroke);
+        gc.drawPolygon(shape);
+    }
 }
\ No newline at end of file
@@ -1,6 +1,7 @@
 package com.fashionstore.ui.components;
 
 import com.fashionstore.models.Product;
+import com.fashionstore.utils.ImageLoader;
 import javafx.animation.FadeTransition;
 import javafx.animation.ScaleTransition;
 import javafx.event.ActionEvent;
@@ -20,23 +21,37 @@ import javafx.scene.paint.Color;
 import javafx.scene.shape.Rectangle;
 import javafx.util.Duration;
 
-import java.io.File;
-import java.io.InputStream;
 import java.math.BigDecimal;
+import java.util.Arrays;
 
+/**
+ * Product card of the store. A card can be rebound to another product with
+ * {@link #setProduct}, so grids can recycle cards instead of creating one per
+ * product.
+ */
 public class StoreItemView extends VBox {
 
     private static final double IMAGE_WIDTH = 260;
     private static final double IMAGE_HEIGHT = 260;
     private static final double CORNER_RADIUS = 12;
-
-    private final Product product;
+    // Card thumbnails are already square. Originals are cropped to fill the
+    // square, so decode them larger than it to keep full resolution for
+    // aspect ratios up to 2:1
+    private static final int THUMBNAIL_SIZE = (int) IMAGE_WIDTH;
+    private static final int DECODE_SIZE = (int) (2 * IMAGE_WIDTH);
+    // Marks the nodes of the placeholder shown instead of a missing image
+    private static final String PLACEHOLDER_CLASS = "image-placeholder";
+
+    private Product product;
     private final Button purchaseButton;
     private final ImageView imageView;
     private final StackPane imageContainer;
+    private final Label nameLabel = new Label();
+    private final Label priceLabel = new Label();
+    private final Label stockLabel = new Label();
+    private final Label infoLabel = new Label();
 
     public StoreItemView(Product product) {
-        this.product = product;
         this.imageView = new ImageView();
         this.imageContainer = new StackPane();
         this.purchaseButton = createPurchaseButton();
@@ -48,13 +63,34 @@ public class StoreItemView extends VBox {
 
         detailsBox.getChildren().add(purchaseButton);
 
-        // Set out-of-stock status after everything is initialized
-        if (product.getStockQuantity() <= 0) {
-            purchaseButton.setDisable(true);
-            purchaseButton.setText("Out of Stock");
-        }
-
         setupInteractiveEffects();
+        setProduct(product);
+    }
+
+    /**
+     * Shows another product in this card, resetting its image, details,
+     * stock status and out-of-stock overlay.
+     */
+    public void setProduct(Product product) {
+        this.product = product;
+
+        nameLabel.setText(product.getName());
+        priceLabel.setText(formatPrice(product.getPrice()));
+        updateStockLabel();
+        infoLabel.setText(buildInfoText());
+
+        // Set out-of-stock status after the details are filled in
+        boolean outOfStock = product.getStockQuantity() <= 0;
+        purchaseButton.setDisable(outOfStock);
+        purchaseButton.setText(outOfStock ? "Out of Stock" : "Add to Cart");
+
+        imageContainer.getChildren().removeIf(node -> node != imageView);
+        if (!imageContainer.getChildren().contains(imageView)) {
+            imageContainer.getChildren().add(imageView);
+        }
+        imageView.setImage(null);
+        imageView.setViewport(null);
+        loadProductImage();
     }
 
     private void setupContainer() {
@@ -89,7 +125,6 @@ public class StoreItemView extends VBox {
         imageContainer.getStyleClass().add("image-container");
 
         applyClippingMask();
-        loadProductImage();
     }
 
     private void applyClippingMask() {
@@ -108,24 +143,27 @@ public class StoreItemView extends VBox {
                 imagePath = "/images/default-product.png";
             }
 
-            // Try loading from resources (works in JAR)
-            InputStream resourceStream = getClass().getResourceAsStream(imagePath);
-            if (resourceStream != null) {
-                Image image = new Image(resourceStream);
-                processAndDisplayImage(image);
-                return;
-            }
-
-            // Fallback to file system (works in development)
-            File imageFile = new File("src/main/resources" + imagePath);
-            if (imageFile.exists()) {
-                Image image = new Image(imageFile.toURI().toString());
-                processAndDisplayImage(image);
+            Image image = product.getCardThumbnailPath() != null
+                    ? ImageLoader.load(product.getCardThumbnailPath(), THUMBNAIL_SIZE)
+                    : ImageLoader.load(imagePath, DECODE_SIZE);
+            if (image == null) {
+                System.err.println("Image not found at: " + imagePath);
+                createPlaceholder();
                 return;
             }
 
-            System.err.println("Image not found at: " + imagePath);
-            createPlaceholder();
+            // The card may have been rebound to another product by the time
+            // the image has loaded
+            Product requested = product;
+            ImageLoader.whenLoaded(image, loaded -> {
+                if (product == requested) {
+                    processAndDisplayImage(loaded);
+                }
+            }, () -> {
+                if (product == requested) {
+                    createPlaceholder();
+                }
+            });
         } catch (Exception e) {
             System.err.println("Error loading image: " + e.getMessage());
             createPlaceholder();
@@ -152,8 +190,8 @@ public class StoreItemView extends VBox {
     }
 
     private void setImageWithAnimation(Image image) {
-        // Clear any existing placeholder
-        imageContainer.getChildren().removeIf(node -> node instanceof Rectangle || node instanceof Label);
+        // Clear any existing placeholder, keeping the out-of-stock overlay
+        removePlaceholder();
 
         // Configure animations
         FadeTransition fadeIn = new FadeTransition(Duration.millis(300), imageView);
@@ -192,8 +230,19 @@ public class StoreItemView extends VBox {
         Label initialLabel = new Label(product.getName().substring(0, 1).toUpperCase());
         initialLabel.getStyleClass().add("placeholder-initial");
 
-        imageContainer.getChildren().clear();
-        imageContainer.getChildren().addAll(placeholder, initialLabel);
+        placeholder.getStyleClass().add(PLACEHOLDER_CLASS);
+        initialLabel.getStyleClass().add(PLACEHOLDER_CLASS);
+
+        // Stack the placeholder just above the empty image, so an
+        // out-of-stock overlay stays on top of it
+        removePlaceholder();
+        imageView.setImage(null);
+        int index = imageContainer.getChildren().indexOf(imageView) + 1;
+        imageContainer.getChildren().addAll(index, Arrays.asList(placeholder, initialLabel));
+    }
+
+    private void removePlaceholder() {
+        imageContainer.getChildren().removeIf(node -> node.getStyleClass().contains(PLACEHOLDER_CLASS));
     }
 
     private VBox createDetailsBox() {
@@ -202,18 +251,12 @@ public class StoreItemView extends VBox {
         detailsBox.setAlignment(Pos.TOP_LEFT);
         detailsBox.getStyleClass().add("product-details");
 
-        Label nameLabel = new Label(product.getName());
         nameLabel.setWrapText(true);
         nameLabel.maxWidthProperty().bind(widthProperty().subtract(20));
         nameLabel.getStyleClass().add("item-name");
 
-        Label priceLabel = new Label(formatPrice(product.getPrice()));
         priceLabel.getStyleClass().add("item-price");
 
-        // Add stock information
-        Label stockLabel = createStockLabel();
-
-        Label infoLabel = new Label(buildInfoText());
         infoLabel.setWrapText(true);
         infoLabel.maxWidthProperty().bind(widthProperty().subtract(20));
         infoLabel.getStyleClass().add("item-info");
@@ -226,8 +269,8 @@ public class StoreItemView extends VBox {
         return detailsBox;
     }
 
-    private Label createStockLabel() {
-        Label stockLabel = new Label();
+    private void updateStockLabel() {
+        stockLabel.getStyleClass().removeAll("stock-out", "stock-low", "stock-available");
         int stockQty = product.getStockQuantity();
 
         if (stockQty <= 0) {
@@ -242,8 +285,6 @@ public class StoreItemView extends VBox {
             stockLabel.setText("In Stock: " + stockQty);
             stockLabel.getStyleClass().add("stock-available");
         }
-
-        return stockLabel;
     }
 
     private Button createPurchaseButton() {
@@ -5,9 +5,12 @@ import com.fashionstore.models.User;
 import com.fashionstore.models.ShoppingCart;
 import com.fashionstore.models.Outfit;
 
+import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.YearMonth;
 import java.time.ZoneId;
+import java.time.format.TextStyle;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
 import java.util.stream.Collectors;
@@ -188,27 +191,53 @@ public class AnalyticsService {
 
     /**
      * Generate a monthly revenue forecast based on historical data.
+     * Fits a least-squares trend line through the monthly revenue since the
+     * first month with recorded sales and extends it over the next 6 months,
+     * starting with the current one. Months before the first sale are left
+     * out, so a young store is not projected from empty months.
      * 
-     * @return Map of months to projected revenue
+     * @param monthlyRevenue Revenue per month, oldest first, e.g. from
+     *                       DataManager.getMonthlyRevenue
+     * @return Map of months to projected revenue, or an empty map if fewer
+     *         than two complete months have passed since the first sale
      */
-    public static Map<String, Double> getRevenueProjection() {
-        // In a real application, this would use actual historical sales data
-        // Here we'll just generate some sample data
+    public static Map<String, Double> getRevenueProjection(Map<YearMonth, BigDecimal> monthlyRevenue) {
         Map<String, Double> projection = new LinkedHashMap<>();
 
-        // Get current month as starting point
-        String[] months = { "Jan", "Feb", "Mar", "Apr", "May", "Jun",
-                "Jul", "Aug", "Sep", "Oct", "Nov", "Dec" };
-        int currentMonthIndex = LocalDate.now().getMonthValue() - 1;
+        // Only months before the current one are complete
+        YearMonth currentMonth = YearMonth.now();
+        List<Double> history = monthlyRevenue.entrySet().stream()
+                .filter(e -> e.getKey().isBefore(currentMonth))
+                .map(e -> e.getValue().doubleValue())
+                .collect(Collectors.toList());
+
+        // Start from the first month with sales
+        int firstSale = 0;
+        while (firstSale < history.size() && history.get(firstSale) <= 0) {
+            firstSale++;
+        }
+        history = history.subList(firstSale, history.size());
 
-        // Generate projections for next 6 months
-        double baseRevenue = 5000 + new Random().nextDouble() * 5000;
-        double growth = 1.05; // 5% monthly growth
+        int n = history.size();
+        if (n < 2) {
+            return projection;
+        }
+
+        double meanX = (n - 1) / 2.0;
+        double meanY = history.stream().mapToDouble(Double::doubleValue).average().orElse(0);
+        double covariance = 0;
+        double variance = 0;
+        for (int x = 0; x < n; x++) {
+            covariance += (x - meanX) * (history.get(x) - meanY);
+            variance += (x - meanX) * (x - meanX);
+        }
+        double slope = covariance / variance;
+        double intercept = meanY - slope * meanX;
 
         for (int i = 0; i < 6; i++) {
-            int monthIndex = (currentMonthIndex + i) % 12;
-            double projectedRevenue = baseRevenue * Math.pow(growth, i);
-            projection.put(months[monthIndex], projectedRevenue);
+            YearMonth month = currentMonth.plusMonths(i);
+            double projectedRevenue = Math.max(0, intercept + slope * (n + i));
+            projection.put(month.getMonth().getDisplayName(TextStyle.SHORT, Locale.ENGLISH), projectedRevenue);
         }
 
         return projection;
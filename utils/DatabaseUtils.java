@@ -18,6 +18,26 @@ public class DatabaseUtils {
         return SimpleConnectionPool.getInstance().getConnection();
     }
     
+    /**
+     * Prepares a forward-only, read-only statement for streaming a large result
+     * set, using the fetch size configured in database.properties.
+     * Pooled connections are opened with useCursorFetch=true, so the driver
+     * reads the rows through a server-side cursor, db.fetchSize rows at a
+     * time, and other statements can still run on the connection meanwhile.
+     */
+    public static PreparedStatement prepareStreaming(Connection conn, String sql) throws SQLException {
+        PreparedStatement ps = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        ps.setFetchSize(SimpleConnectionPool.getFetchSize());
+        return ps;
+    }
+    
+    /**
+     * Reads an integer setting from database.properties
+     */
+    public static int getIntProperty(String key, int defaultValue) {
+        return SimpleConnectionPool.getIntProperty(key, defaultValue);
+    }
+    
     /**
      * Closes database resources
      */
@@ -39,6 +59,20 @@ public class DatabaseUtils {
         }
     }
     
+    /**
+     * Gets a snapshot of connection pool metrics
+     */
+    public static PoolMetrics getPoolMetrics() throws SQLException {
+        return SimpleConnectionPool.getInstance().getMetrics();
+    }
+    
+    /**
+     * Closes idle pooled connections and stops pool maintenance
+     */
+    public static void shutdown() {
+        SimpleConnectionPool.shutdown();
+    }
+    
     /**
      * Creates database and tables if they don't exist
      */
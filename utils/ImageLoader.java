@@ -0,0 +1,200 @@
+package com.fashionstore.utils;
+
+import javafx.scene.image.Image;
+
+import java.io.File;
+import java.lang.ref.SoftReference;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Shared loader for product and placeholder images. Images are decoded in
+ * the background by JavaFX, at the size they are shown at rather than at
+ * full resolution, and cached so every view showing the same image shares
+ * one decoded copy.
+ *
+ * The cache keeps recently used images up to a memory budget
+ * (images.cacheMegabytes, 64 MB by default). Images pushed out of it are
+ * only softly referenced, so they can still be reused until the garbage
+ * collector needs the memory.
+ */
+public final class ImageLoader {
+
+    private static final long BYTES_PER_PIXEL = 4;
+
+    /**
+     * A decoded image and the box it was decoded to fit.
+     */
+    private static final class Entry {
+        final Image image;
+        final int size;
+
+        Entry(Image image, int size) {
+            this.image = image;
+            this.size = size;
+        }
+
+        long weight() {
+            return size * (long) size * BYTES_PER_PIXEL;
+        }
+    }
+
+    private static final long maxBytes =
+            Math.max(1, DatabaseUtils.getIntProperty("images.cacheMegabytes", 64)) * 1024L * 1024L;
+
+    // Image path -> entry, least recently used first
+    private static final LinkedHashMap<String, Entry> recent = new LinkedHashMap<>(64, 0.75f, true);
+    private static final Map<String, SoftReference<Entry>> evicted = new HashMap<>();
+    private static long recentBytes = 0;
+
+    private ImageLoader() {
+    }
+
+    /**
+     * Returns the image at a path, decoded to fit a size x size box. A cached
+     * copy decoded at least as large is reused; otherwise the image is
+     * decoded in the background and the returned image fills in once loaded.
+     *
+     * @param imagePath a classpath resource such as "/images/x.png", or a file path
+     * @param size      the width and height of the box to decode into
+     * @return the image, possibly still loading, or null if no such image exists
+     */
+    public static synchronized Image load(String imagePath, int size) {
+        if (imagePath == null || imagePath.isEmpty()) {
+            return null;
+        }
+
+        Entry entry = lookup(imagePath);
+        if (entry != null && entry.size >= size) {
+            return entry.image;
+        }
+
+        String url = resolve(imagePath);
+        if (url == null) {
+            return null;
+        }
+        Image image = new Image(url, size, size, true, true, true);
+        store(imagePath, new Entry(image, size));
+        // A failed load must not be served from the cache
+        image.errorProperty().addListener((obs, wasError, isError) -> {
+            if (isError) {
+                System.err.println("Error loading image " + imagePath + ": " + image.getException());
+                discard(imagePath, image);
+            }
+        });
+        return image;
+    }
+
+    /**
+     * Runs one of the callbacks once the image has finished loading, straight
+     * away if it already has. Callbacks run on the FX application thread.
+     */
+    public static void whenLoaded(Image image, Consumer<Image> onLoaded, Runnable onFailed) {
+        if (image.isError()) {
+            onFailed.run();
+            return;
+        }
+        if (image.getProgress() >= 1) {
+            onLoaded.accept(image);
+            return;
+        }
+        image.progressProperty().addListener((obs, oldProgress, newProgress) -> {
+            if (newProgress.doubleValue() >= 1 && !image.isError()) {
+                onLoaded.accept(image);
+            }
+        });
+        image.errorProperty().addListener((obs, wasError, isError) -> {
+            if (isError) {
+                onFailed.run();
+            }
+        });
+    }
+
+    /**
+     * Runs the callback if the image fails to load, straight away if it
+     * already has.
+     */
+    public static void whenFailed(Image image, Runnable onFailed) {
+        whenLoaded(image, loaded -> {
+        }, onFailed);
+    }
+
+    /**
+     * Drops the cached copies of an image, e.g. after its file was replaced.
+     */
+    public static synchronized void invalidate(String imagePath) {
+        Entry entry = recent.remove(imagePath);
+        if (entry != null) {
+            recentBytes -= entry.weight();
+        }
+        evicted.remove(imagePath);
+    }
+
+    private static Entry lookup(String imagePath) {
+        Entry entry = recent.get(imagePath);
+        if (entry != null) {
+            return entry;
+        }
+
+        SoftReference<Entry> ref = evicted.remove(imagePath);
+        entry = ref != null ? ref.get() : null;
+        if (entry != null) {
+            // Used again, so back into the recent images
+            store(imagePath, entry);
+        }
+        return entry;
+    }
+
+    private static void store(String imagePath, Entry entry) {
+        Entry replaced = recent.put(imagePath, entry);
+        if (replaced != null) {
+            recentBytes -= replaced.weight();
+        }
+        recentBytes += entry.weight();
+
+        // Keep at least the newest image, however large
+        Iterator<Map.Entry<String, Entry>> it = recent.entrySet().iterator();
+        while (recentBytes > maxBytes && recent.size() > 1) {
+            Map.Entry<String, Entry> eldest = it.next();
+            recentBytes -= eldest.getValue().weight();
+            evicted.put(eldest.getKey(), new SoftReference<>(eldest.getValue()));
+            it.remove();
+        }
+
+        // Forget soft references the garbage collector has cleared
+        if (evicted.size() > recent.size() * 4 + 64) {
+            evicted.values().removeIf(ref -> ref.get() == null);
+        }
+    }
+
+    private static synchronized void discard(String imagePath, Image image) {
+        Entry entry = recent.get(imagePath);
+        if (entry != null && entry.image == image) {
+            invalidate(imagePath);
+        }
+    }
+
+    /**
+     * @return a URL for the image: a classpath resource, a file under the
+     *         development resources folder, or a plain file; null if none exists
+     */
+    private static String resolve(String imagePath) {
+        URL resource = ImageLoader.class.getResource(imagePath);
+        if (resource != null) {
+            return resource.toExternalForm();
+        }
+        File devFile = new File("src/main/resources" + imagePath);
+        if (devFile.exists()) {
+            return devFile.toURI().toString();
+        }
+        File file = new File(imagePath);
+        if (file.exists()) {
+            return file.toURI().toString();
+        }
+        return null;
+    }
+}
@@ -1,17 +1,105 @@
 package com.fashionstore.utils;
 
+import com.fashionstore.models.Product;
 import javafx.stage.FileChooser;
 
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
 
 public class ImageManager {
-    // Fixed ImageManager implementation
-    public static String saveProductImageToCustomDir(String productId, String directory) {
+
+    /**
+     * Fixed-size copies of a product image, one for each place products are
+     * shown, so views never decode the uploaded original.
+     */
+    public enum Thumbnail {
+        // Store grid card; cropped to fill the square like the card does
+        CARD("card", 260, true),
+        // Chip in the wardrobe and outfit creator
+        CHIP("chip", 130, false),
+        // Outfit preview
+        PREVIEW("preview", 80, false);
+
+        private final String suffix;
+        private final int size;
+        private final boolean cropToSquare;
+
+        Thumbnail(String suffix, int size, boolean cropToSquare) {
+            this.suffix = suffix;
+            this.size = size;
+            this.cropToSquare = cropToSquare;
+        }
+
+        public int getSize() {
+            return size;
+        }
+    }
+
+    /**
+     * Paths of the thumbnails made from one image.
+     */
+    public static final class Thumbnails {
+        private final String sourcePath;
+        private final String cardPath;
+        private final String chipPath;
+        private final String previewPath;
+
+        Thumbnails(String sourcePath, String cardPath, String chipPath, String previewPath) {
+            this.sourcePath = sourcePath;
+            this.cardPath = cardPath;
+            this.chipPath = chipPath;
+            this.previewPath = previewPath;
+        }
+
+        /**
+         * @return the image the thumbnails were made from
+         */
+        public String getSourcePath() {
+            return sourcePath;
+        }
+
+        public String getCardPath() {
+            return cardPath;
+        }
+
+        public String getChipPath() {
+            return chipPath;
+        }
+
+        public String getPreviewPath() {
+            return previewPath;
+        }
+    }
+
+    private static final String RESOURCES_DIR = "src/main/resources";
+
+    private static final ExecutorService thumbnailExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "fashionstore-thumbnails");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Lets the user pick an image and adds it to the image store.
+     *
+     * @return the stored image's path, or null if nothing was picked or it
+     *         could not be stored
+     */
+    public static String saveProductImage() {
         FileChooser fileChooser = new FileChooser();
         fileChooser.setTitle("Select Product Image");
         fileChooser.getExtensionFilters().addAll(
@@ -20,39 +108,163 @@ public class ImageManager {
         File selectedFile = fileChooser.showOpenDialog(null);
         if (selectedFile != null) {
             try {
-                // Ensure target directory exists
-                File dir = new File(directory);
-                if (!dir.exists()) {
-                    dir.mkdirs();
-                }
+                String imagePath = ImageStore.put(selectedFile);
+                System.out.println("Image saved successfully as: " + imagePath);
+                return imagePath;
+            } catch (IOException e) {
+                System.err.println("Failed to save image: " + e.getMessage());
+                e.printStackTrace();
+                SceneManager.showErrorAlert("Image Error", "Failed to save image: " + e.getMessage());
+                return null;
+            }
+        }
+        return null;
+    }
 
-                // Create unique filename with original extension
-                String extension = selectedFile.getName().substring(selectedFile.getName().lastIndexOf('.'));
-                String fileName = "product_" + productId + extension;
+    /**
+     * Makes the thumbnails of an image on a background thread.
+     *
+     * @param imagePath the image, as stored on a product
+     * @return the thumbnails; completes exceptionally if they could not be made
+     */
+    public static CompletableFuture<Thumbnails> createThumbnailsAsync(String imagePath) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return createThumbnails(imagePath);
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        }, thumbnailExecutor);
+    }
 
-                // Get absolute path for the destination file
-                File destFile = new File(dir, fileName);
+    /**
+     * Makes the thumbnails of an image and adds them to the image store.
+     * Thumbnails of the same image come out identical, so making them again
+     * stores nothing new.
+     *
+     * @param imagePath the image, as stored on a product
+     * @return the paths of the stored thumbnails
+     */
+    public static Thumbnails createThumbnails(String imagePath) throws IOException {
+        File source = resolveFile(imagePath);
+        BufferedImage original;
+        try (InputStream in = ImageStore.openMapped(source)) {
+            original = ImageIO.read(in);
+        }
+        if (original == null) {
+            throw new IOException("Not a readable image: " + source);
+        }
 
-                // Create parent directories if needed
-                if (!destFile.getParentFile().exists()) {
-                    destFile.getParentFile().mkdirs();
+        // Photos without transparency compress far better as JPEG
+        boolean hasAlpha = original.getColorModel().hasAlpha();
+        String extension = hasAlpha ? "png" : "jpg";
+
+        String[] paths = new String[Thumbnail.values().length];
+        for (Thumbnail thumbnail : Thumbnail.values()) {
+            BufferedImage scaled = scale(original, thumbnail.size, thumbnail.cropToSquare, hasAlpha);
+            File temp = File.createTempFile("thumbnail_" + thumbnail.suffix + "_", "." + extension);
+            try {
+                if (!ImageIO.write(scaled, extension, temp)) {
+                    throw new IOException("No image writer for " + extension);
                 }
+                paths[thumbnail.ordinal()] = ImageStore.put(temp);
+            } finally {
+                temp.delete();
+            }
+        }
 
-                // Copy file
-                Files.copy(selectedFile.toPath(), destFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        System.out.println("Created thumbnails for " + imagePath);
+        return new Thumbnails(imagePath, paths[Thumbnail.CARD.ordinal()], paths[Thumbnail.CHIP.ordinal()],
+                paths[Thumbnail.PREVIEW.ordinal()]);
+    }
 
-                // Log success
-                System.out.println("Image saved successfully to: " + destFile.getAbsolutePath());
+    /**
+     * Tells the image store which stored images a product uses, so they are
+     * kept while it uses them. Call it for every product after loading the
+     * catalogue, and again whenever a product is saved with other images.
+     */
+    public static void trackReferences(Product product) {
+        ImageStore.setReferences(product.getProductId(), Arrays.asList(product.getImagePath(),
+                product.getCardThumbnailPath(), product.getChipThumbnailPath(), product.getPreviewThumbnailPath()));
+    }
 
-                // Return path relative to resources folder for JavaFX
-                return "/images/" + fileName;
-            } catch (IOException e) {
-                System.err.println("Failed to save image: " + e.getMessage());
-                e.printStackTrace();
-                SceneManager.showErrorAlert("Image Error", "Failed to save image: " + e.getMessage());
-                return null;
+    public static void trackReferences(Collection<Product> products) {
+        for (Product product : products) {
+            trackReferences(product);
+        }
+    }
+
+    /**
+     * Forgets a deleted product's images and, in the background, deletes
+     * those no other product uses.
+     *
+     * @param storedReferences reads the image paths that products in the
+     *                         database reference, so images of products this
+     *                         process never loaded are kept; null skips cleanup
+     */
+    public static void releaseReferences(String productId, Supplier<Set<String>> storedReferences) {
+        ImageStore.removeReferences(productId, storedReferences);
+    }
+
+    /**
+     * @return the file of an image path: a file under the development
+     *         resources folder, or a plain file
+     */
+    private static File resolveFile(String imagePath) throws IOException {
+        File devFile = new File(RESOURCES_DIR + imagePath);
+        if (devFile.isFile()) {
+            return devFile;
+        }
+        File file = new File(imagePath);
+        if (file.isFile()) {
+            return file;
+        }
+        throw new IOException("Image file not found: " + imagePath);
+    }
+
+    /**
+     * Scales an image to fit a size x size box, or to fill it and crop the
+     * overflow evenly. Large reductions are done in halving steps, which
+     * looks much better than one bilinear step.
+     */
+    private static BufferedImage scale(BufferedImage image, int size, boolean cropToSquare, boolean hasAlpha) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        double scale = cropToSquare
+                ? Math.max((double) size / width, (double) size / height)
+                : Math.min((double) size / width, (double) size / height);
+        scale = Math.min(1.0, scale);
+        int targetWidth = Math.max(1, (int) Math.round(width * scale));
+        int targetHeight = Math.max(1, (int) Math.round(height * scale));
+
+        BufferedImage current = image;
+        while (current.getWidth() / 2 >= targetWidth && current.getHeight() / 2 >= targetHeight) {
+            current = draw(current, current.getWidth() / 2, current.getHeight() / 2, 0, 0,
+                    current.getWidth() / 2, current.getHeight() / 2, hasAlpha);
+        }
+
+        int outWidth = cropToSquare ? Math.min(size, targetWidth) : targetWidth;
+        int outHeight = cropToSquare ? Math.min(size, targetHeight) : targetHeight;
+        return draw(current, outWidth, outHeight, (outWidth - targetWidth) / 2, (outHeight - targetHeight) / 2,
+                targetWidth, targetHeight, hasAlpha);
+    }
+
+    private static BufferedImage draw(BufferedImage image, int canvasWidth, int canvasHeight, int x, int y,
+            int width, int height, boolean hasAlpha) {
+        BufferedImage canvas = new BufferedImage(canvasWidth, canvasHeight,
+                hasAlpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = canvas.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            if (!hasAlpha) {
+                g.setColor(Color.WHITE);
+                g.fillRect(0, 0, canvasWidth, canvasHeight);
             }
+            g.drawImage(image, x, y, width, height, null);
+        } finally {
+            g.dispose();
         }
-        return null;
+        return canvas;
     }
 }
\ No newline at end of file
@@ -0,0 +1,340 @@
+package com.fashionstore.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Content-addressed store for product images. Every file is named after the
+ * SHA-256 hash of its contents and sharded into two levels of directories by
+ * the first bytes of the hash, e.g. /images/store/3f/a2/3fa2....jpg. The same
+ * photo uploaded for several products is therefore stored, cached and
+ * decoded once, and a file can be checked against its name at any time.
+ *
+ * Products reference stored images through their image and thumbnail paths.
+ * ImageManager reports each product's paths when the catalogue is loaded and
+ * when a product is saved, and the store counts the references per file.
+ * Those counts only cover this process, so after each product deletion a
+ * background sweep also reads the paths every product in the database
+ * references, and deletes only files referenced by neither, such as the
+ * deleted product's images or uploads that were never saved. Files stored or
+ * uploaded again within the last hour are kept, since an upload in progress
+ * may be about to reference them.
+ *
+ * Files are read through memory mappings rather than copied into heap
+ * buffers.
+ */
+public final class ImageStore {
+
+    public static final String STORE_PREFIX = "/images/store/";
+
+    private static final String RESOURCES_DIR = "src/main/resources";
+    private static final String HASH_ALGORITHM = "SHA-256";
+    // Larger files are hashed one mapped window at a time
+    private static final long MAP_CHUNK = 64L * 1024 * 1024;
+    // Unreferenced files younger than this may belong to an upload in progress
+    private static final long GC_GRACE_MILLIS = 60L * 60 * 1000;
+
+    // Stored image path -> number of product references
+    private static final Map<String, Integer> refCounts = new HashMap<>();
+    // Product ID -> stored image paths it references
+    private static final Map<String, Set<String>> productRefs = new HashMap<>();
+
+    private static final ExecutorService gcExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "fashionstore-image-gc");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private ImageStore() {
+    }
+
+    /**
+     * Adds a file to the store. If the same content is already stored, the
+     * existing file is kept, unless it fails its integrity check.
+     *
+     * @param source the file to add; it is copied, not moved
+     * @return the image path of the stored file, for use on a product
+     */
+    public static String put(File source) throws IOException {
+        String hash = hash(source);
+        String imagePath = pathFor(hash, extensionOf(source.getName()));
+        File target = fileOf(imagePath);
+
+        if (target.isFile()) {
+            if (verify(imagePath)) {
+                // Fresh again, so garbage collection leaves it to the upload
+                target.setLastModified(System.currentTimeMillis());
+                System.out.println("Image already stored as " + imagePath);
+                return imagePath;
+            }
+            System.err.println("Replacing corrupt stored image " + imagePath);
+        }
+
+        // Copy under a temporary name and rename, so a file with a hash name
+        // is always complete
+        Path dir = target.getParentFile().toPath();
+        Files.createDirectories(dir);
+        Path temp = Files.createTempFile(dir, hash, ".tmp");
+        try {
+            Files.copy(source.toPath(), temp, StandardCopyOption.REPLACE_EXISTING);
+            try {
+                Files.move(temp, target.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        return imagePath;
+    }
+
+    /**
+     * @return true if the stored file's contents still match its hash name
+     */
+    public static boolean verify(String imagePath) {
+        try {
+            File file = fileOf(imagePath);
+            String name = file.getName();
+            int dot = name.indexOf('.');
+            return file.isFile() && hash(file).equals(dot >= 0 ? name.substring(0, dot) : name);
+        } catch (IOException e) {
+            System.err.println("Error verifying image " + imagePath + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    public static boolean isStored(String imagePath) {
+        return imagePath != null && imagePath.startsWith(STORE_PREFIX);
+    }
+
+    /**
+     * Opens a file through a read-only memory mapping. Mapped pages are read
+     * straight from the page cache, so decoding does not copy the file
+     * through a heap buffer first.
+     */
+    public static InputStream openMapped(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Image too large to map: " + file);
+            }
+            // The mapping stays valid after the channel is closed
+            return new MappedInputStream(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Sets the stored images a product references, replacing the ones it
+     * referenced before. Paths outside the store are ignored.
+     */
+    public static synchronized void setReferences(String productId, Collection<String> imagePaths) {
+        Set<String> stored = new HashSet<>();
+        for (String imagePath : imagePaths) {
+            if (isStored(imagePath)) {
+                stored.add(imagePath);
+            }
+        }
+
+        Set<String> previous = productRefs.getOrDefault(productId, Collections.emptySet());
+        for (String imagePath : stored) {
+            if (!previous.contains(imagePath)) {
+                refCounts.merge(imagePath, 1, Integer::sum);
+            }
+        }
+        for (String imagePath : previous) {
+            if (!stored.contains(imagePath)) {
+                release(imagePath);
+            }
+        }
+
+        if (stored.isEmpty()) {
+            productRefs.remove(productId);
+        } else {
+            productRefs.put(productId, stored);
+        }
+    }
+
+    /**
+     * Drops a deleted product's references, then sweeps the store for
+     * unreferenced files in the background.
+     *
+     * @param storedReferences reads the image paths that products in the
+     *                         database reference, or returns null if it
+     *                         cannot, in which case nothing is deleted
+     */
+    public static void removeReferences(String productId, Supplier<Set<String>> storedReferences) {
+        synchronized (ImageStore.class) {
+            Set<String> previous = productRefs.remove(productId);
+            if (previous != null) {
+                for (String imagePath : previous) {
+                    release(imagePath);
+                }
+            }
+        }
+
+        gcExecutor.execute(() -> {
+            Set<String> referenced = storedReferences.get();
+            if (referenced == null) {
+                System.err.println("Skipping image cleanup: could not read the images products reference");
+                return;
+            }
+            collectGarbage(GC_GRACE_MILLIS, referenced);
+        });
+    }
+
+    /**
+     * Deletes every stored file that is older than the given age and that no
+     * product references, neither in this process nor in the given set.
+     *
+     * @param storedReferences image paths referenced by products in the database
+     * @return the number of files deleted
+     */
+    public static int collectGarbage(long minAgeMillis, Set<String> storedReferences) {
+        File root = new File(RESOURCES_DIR + STORE_PREFIX);
+        if (!root.isDirectory()) {
+            return 0;
+        }
+
+        Path resources = new File(RESOURCES_DIR).toPath();
+        long cutoff = System.currentTimeMillis() - minAgeMillis;
+        int deleted = 0;
+        try (Stream<Path> files = Files.walk(root.toPath())) {
+            for (Path file : (Iterable<Path>) files.filter(Files::isRegularFile)::iterator) {
+                String imagePath = "/" + resources.relativize(file).toString().replace(File.separatorChar, '/');
+                if (!storedReferences.contains(imagePath) && delete(imagePath, cutoff)) {
+                    deleted++;
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Error collecting unreferenced images: " + e.getMessage());
+        }
+        if (deleted > 0) {
+            System.out.println("Deleted " + deleted + " unreferenced images");
+        }
+        return deleted;
+    }
+
+    /**
+     * @return the references left
+     */
+    private static int release(String imagePath) {
+        Integer left = refCounts.computeIfPresent(imagePath, (k, count) -> count > 1 ? count - 1 : null);
+        return left != null ? left : 0;
+    }
+
+    /**
+     * Deletes a stored file unless it is referenced or was stored or uploaded
+     * again after the cutoff time.
+     */
+    private static boolean delete(String imagePath, long cutoff) {
+        synchronized (ImageStore.class) {
+            File file = fileOf(imagePath);
+            if (refCounts.containsKey(imagePath) || file.lastModified() >= cutoff || !file.delete()) {
+                return false;
+            }
+        }
+        ImageLoader.invalidate(imagePath);
+        System.out.println("Deleted unreferenced image " + imagePath);
+        return true;
+    }
+
+    private static String hash(File file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance(HASH_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(HASH_ALGORITHM + " is not available", e);
+        }
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            for (long position = 0; position < size; position += MAP_CHUNK) {
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                        Math.min(MAP_CHUNK, size - position));
+                digest.update(window);
+            }
+        }
+
+        StringBuilder hex = new StringBuilder();
+        for (byte b : digest.digest()) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+
+    private static String pathFor(String hash, String extension) {
+        return STORE_PREFIX + hash.substring(0, 2) + "/" + hash.substring(2, 4) + "/" + hash
+                + (extension.isEmpty() ? "" : "." + extension);
+    }
+
+    private static String extensionOf(String fileName) {
+        int dot = fileName.lastIndexOf('.');
+        return dot >= 0 ? fileName.substring(dot + 1).toLowerCase(Locale.ROOT) : "";
+    }
+
+    private static File fileOf(String imagePath) {
+        return new File(RESOURCES_DIR + imagePath);
+    }
+
+    /**
+     * Input stream over a mapped file.
+     */
+    private static final class MappedInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        MappedInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (length == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, count);
+            return count;
+        }
+
+        @Override
+        public long skip(long n) {
+            int count = (int) Math.max(0, Math.min(n, buffer.remaining()));
+            buffer.position(buffer.position() + count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
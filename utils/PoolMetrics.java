@@ -0,0 +1,208 @@
+package com.fashionstore.utils;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Point-in-time snapshot of connection pool statistics, returned by
+ * {@link SimpleConnectionPool#getMetrics()}.
+ */
+public class PoolMetrics {
+
+    /**
+     * Hold-time statistics for connections borrowed from one call site.
+     */
+    public static class CallSiteStats {
+        private final String callSite;
+        private final long borrowCount;
+        private final long totalHoldMillis;
+        private final long maxHoldMillis;
+        private final int currentlyHeld;
+
+        public CallSiteStats(String callSite, long borrowCount, long totalHoldMillis, long maxHoldMillis,
+                int currentlyHeld) {
+            this.callSite = callSite;
+            this.borrowCount = borrowCount;
+            this.totalHoldMillis = totalHoldMillis;
+            this.maxHoldMillis = maxHoldMillis;
+            this.currentlyHeld = currentlyHeld;
+        }
+
+        public String getCallSite() {
+            return callSite;
+        }
+
+        public long getBorrowCount() {
+            return borrowCount;
+        }
+
+        public long getTotalHoldMillis() {
+            return totalHoldMillis;
+        }
+
+        public long getMaxHoldMillis() {
+            return maxHoldMillis;
+        }
+
+        public double getAverageHoldMillis() {
+            return borrowCount == 0 ? 0 : (double) totalHoldMillis / borrowCount;
+        }
+
+        public int getCurrentlyHeld() {
+            return currentlyHeld;
+        }
+
+        @Override
+        public String toString() {
+            return callSite + ": borrows=" + borrowCount +
+                    ", avgHold=" + String.format("%.1f", getAverageHoldMillis()) + "ms" +
+                    ", maxHold=" + maxHoldMillis + "ms" +
+                    ", held=" + currentlyHeld;
+        }
+    }
+
+    private final int activeConnections;
+    private final int idleConnections;
+    private final int pendingBorrowers;
+    private final int totalConnections;
+    private final int maxConnections;
+    private final long connectionsCreated;
+    private final double connectionsCreatedPerMinute;
+    private final long validationFailures;
+    private final long borrowTimeouts;
+    private final long leakWarnings;
+    private final long[] waitBucketBoundsMillis;
+    private final long[] waitBucketCounts;
+    private final List<CallSiteStats> callSites;
+    private final long statementCacheHits;
+    private final long statementCacheMisses;
+
+    public PoolMetrics(int activeConnections, int idleConnections, int pendingBorrowers, int totalConnections,
+            int maxConnections, long connectionsCreated, double connectionsCreatedPerMinute,
+            long validationFailures, long borrowTimeouts, long leakWarnings, long[] waitBucketBoundsMillis,
+            long[] waitBucketCounts, List<CallSiteStats> callSites, long statementCacheHits,
+            long statementCacheMisses) {
+        this.activeConnections = activeConnections;
+        this.idleConnections = idleConnections;
+        this.pendingBorrowers = pendingBorrowers;
+        this.totalConnections = totalConnections;
+        this.maxConnections = maxConnections;
+        this.connectionsCreated = connectionsCreated;
+        this.connectionsCreatedPerMinute = connectionsCreatedPerMinute;
+        this.validationFailures = validationFailures;
+        this.borrowTimeouts = borrowTimeouts;
+        this.leakWarnings = leakWarnings;
+        this.waitBucketBoundsMillis = waitBucketBoundsMillis.clone();
+        this.waitBucketCounts = waitBucketCounts.clone();
+        this.callSites = Collections.unmodifiableList(callSites);
+        this.statementCacheHits = statementCacheHits;
+        this.statementCacheMisses = statementCacheMisses;
+    }
+
+    public int getActiveConnections() {
+        return activeConnections;
+    }
+
+    public int getIdleConnections() {
+        return idleConnections;
+    }
+
+    /**
+     * @return number of threads currently waiting to borrow a connection
+     */
+    public int getPendingBorrowers() {
+        return pendingBorrowers;
+    }
+
+    public int getTotalConnections() {
+        return totalConnections;
+    }
+
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    public long getConnectionsCreated() {
+        return connectionsCreated;
+    }
+
+    /**
+     * @return average number of physical connections opened per minute since the pool started
+     */
+    public double getConnectionsCreatedPerMinute() {
+        return connectionsCreatedPerMinute;
+    }
+
+    public long getValidationFailures() {
+        return validationFailures;
+    }
+
+    public long getBorrowTimeouts() {
+        return borrowTimeouts;
+    }
+
+    public long getLeakWarnings() {
+        return leakWarnings;
+    }
+
+    /**
+     * Upper bounds (exclusive) of the borrow wait-time histogram buckets. The
+     * histogram has one more bucket than there are bounds, for waits at or
+     * above the last bound.
+     */
+    public long[] getWaitBucketBoundsMillis() {
+        return waitBucketBoundsMillis.clone();
+    }
+
+    public long[] getWaitBucketCounts() {
+        return waitBucketCounts.clone();
+    }
+
+    /**
+     * @return hold-time statistics per call site, longest maximum hold first
+     */
+    public List<CallSiteStats> getCallSites() {
+        return callSites;
+    }
+
+    public long getStatementCacheHits() {
+        return statementCacheHits;
+    }
+
+    public long getStatementCacheMisses() {
+        return statementCacheMisses;
+    }
+
+    public double getStatementCacheHitRatio() {
+        long lookups = statementCacheHits + statementCacheMisses;
+        return lookups == 0 ? 0 : (double) statementCacheHits / lookups;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder histogram = new StringBuilder();
+        for (int i = 0; i < waitBucketCounts.length; i++) {
+            if (i > 0) {
+                histogram.append(", ");
+            }
+            histogram.append(i < waitBucketBoundsMillis.length
+                    ? "<" + waitBucketBoundsMillis[i] + "ms"
+                    : ">=" + waitBucketBoundsMillis[waitBucketBoundsMillis.length - 1] + "ms");
+            histogram.append('=').append(waitBucketCounts[i]);
+        }
+
+        return "PoolMetrics{" +
+                "active=" + activeConnections +
+                ", idle=" + idleConnections +
+                ", pending=" + pendingBorrowers +
+                ", total=" + totalConnections + "/" + maxConnections +
+                ", created=" + connectionsCreated +
+                " (" + String.format("%.2f", connectionsCreatedPerMinute) + "/min)" +
+                ", validationFailures=" + validationFailures +
+                ", borrowTimeouts=" + borrowTimeouts +
+                ", leakWarnings=" + leakWarnings +
+                ", borrowWait=[" + histogram + "]" +
+                ", statementCache=" + statementCacheHits + " hits/" + statementCacheMisses + " misses" +
+                '}';
+    }
+}
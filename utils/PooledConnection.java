@@ -0,0 +1,300 @@
+package com.fashionstore.utils;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A physical connection owned by SimpleConnectionPool together with an LRU
+ * cache of its prepared statements, keyed by SQL text.
+ *
+ * Each borrow gets a fresh logical handle wrapping the physical connection.
+ * Preparing a statement through the handle reuses a cached one when
+ * available, and closing the statement returns it to the cache instead of
+ * closing it. Closing the handle returns the connection to the pool.
+ */
+class PooledConnection {
+    // Statement settings a borrower may change. Those reset on check-in keep
+    // the statement cacheable; changing any of the others closes it instead.
+    private static final Set<String> RESET_SETTINGS = Set.of("setFetchSize", "setMaxRows", "setLargeMaxRows",
+            "setQueryTimeout");
+    private static final Set<String> UNCACHEABLE_SETTINGS = Set.of("setFetchDirection", "setMaxFieldSize",
+            "setEscapeProcessing", "setCursorName", "setPoolable", "closeOnCompletion");
+
+    private final Connection physical;
+    private final int statementCacheSize;
+    private final LongAdder cacheHits;
+    private final LongAdder cacheMisses;
+    // Idle statements only; a statement is removed while it is checked out
+    private final LinkedHashMap<String, PreparedStatement> statementCache;
+
+    PooledConnection(Connection physical, int statementCacheSize, LongAdder cacheHits, LongAdder cacheMisses) {
+        this.physical = physical;
+        this.statementCacheSize = Math.max(0, statementCacheSize);
+        this.cacheHits = cacheHits;
+        this.cacheMisses = cacheMisses;
+        this.statementCache = new LinkedHashMap<String, PreparedStatement>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                if (size() > PooledConnection.this.statementCacheSize) {
+                    closeQuietly(eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    Connection getPhysical() {
+        return physical;
+    }
+
+    /**
+     * Creates a new logical handle for one borrow of this connection.
+     */
+    Handle newHandle(SimpleConnectionPool pool) {
+        return new Handle(pool);
+    }
+
+    /**
+     * Closes all cached statements and the physical connection.
+     */
+    synchronized void close() throws SQLException {
+        for (PreparedStatement statement : statementCache.values()) {
+            closeQuietly(statement);
+        }
+        statementCache.clear();
+        physical.close();
+    }
+
+    private synchronized PreparedStatement checkOut(String key) {
+        PreparedStatement cached = statementCache.remove(key);
+        if (cached != null) {
+            cacheHits.increment();
+        } else {
+            cacheMisses.increment();
+        }
+        return cached;
+    }
+
+    private synchronized void checkIn(String key, PreparedStatement statement) {
+        if (statementCacheSize == 0 || statementCache.containsKey(key)) {
+            // Another statement for the same SQL is already cached
+            closeQuietly(statement);
+        } else {
+            statementCache.put(key, statement);
+        }
+    }
+
+    private static void closeQuietly(PreparedStatement statement) {
+        try {
+            statement.close();
+        } catch (SQLException e) {
+            System.err.println("Error closing cached statement: " + e.getMessage());
+        }
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * The logical connection handed to one borrower.
+     */
+    class Handle implements InvocationHandler {
+        private final SimpleConnectionPool pool;
+        private final Connection proxy;
+        private final List<StatementHandle> openStatements = new ArrayList<>();
+        private volatile boolean closed = false;
+
+        private Handle(SimpleConnectionPool pool) {
+            this.pool = pool;
+            this.proxy = (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[] { Connection.class }, this);
+        }
+
+        Connection getProxy() {
+            return proxy;
+        }
+
+        PooledConnection getPooledConnection() {
+            return PooledConnection.this;
+        }
+
+        /**
+         * Detaches the handle from the physical connection and returns any
+         * statements the borrower left open to the cache.
+         */
+        void invalidate() {
+            closed = true;
+            List<StatementHandle> leftOpen = new ArrayList<>(openStatements);
+            openStatements.clear();
+            for (StatementHandle statement : leftOpen) {
+                statement.release();
+            }
+        }
+
+        @Override
+        public Object invoke(Object self, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            switch (name) {
+                case "equals":
+                    return self == args[0];
+                case "hashCode":
+                    return System.identityHashCode(self);
+                case "toString":
+                    return "PooledConnection.Handle[" + physical + (closed ? ", returned" : "") + "]";
+                case "isClosed":
+                    return closed || physical.isClosed();
+                case "close":
+                    if (!closed) {
+                        pool.releaseConnection(proxy);
+                    }
+                    return null;
+                default:
+                    break;
+            }
+
+            if (closed) {
+                throw new SQLException("Connection has already been returned to the pool");
+            }
+
+            if (name.equals("prepareStatement") && isCacheable(method)) {
+                String sql = (String) args[0];
+                int type = args.length > 1 ? (Integer) args[1] : ResultSet.TYPE_FORWARD_ONLY;
+                int concurrency = args.length > 2 ? (Integer) args[2] : ResultSet.CONCUR_READ_ONLY;
+                return prepare(sql, type, concurrency);
+            }
+
+            return PooledConnection.invoke(physical, method, args);
+        }
+
+        private boolean isCacheable(Method method) {
+            Class<?>[] types = method.getParameterTypes();
+            return statementCacheSize > 0 && (types.length == 1
+                    || (types.length == 3 && types[1] == int.class && types[2] == int.class));
+        }
+
+        private PreparedStatement prepare(String sql, int type, int concurrency) throws SQLException {
+            String key = type + ":" + concurrency + ":" + sql;
+            PreparedStatement statement = checkOut(key);
+            if (statement == null) {
+                statement = physical.prepareStatement(sql, type, concurrency);
+            }
+
+            StatementHandle handle = new StatementHandle(this, key, statement);
+            openStatements.add(handle);
+            return handle.proxy;
+        }
+    }
+
+    /**
+     * The logical statement handed to a borrower. Closing it returns the
+     * physical statement to the cache.
+     */
+    private class StatementHandle implements InvocationHandler {
+        private final Handle connection;
+        private final String key;
+        private final PreparedStatement statement;
+        private final PreparedStatement proxy;
+        private ResultSet lastResultSet;
+        private boolean closed = false;
+        private boolean settingsReset = false; // a setting in RESET_SETTINGS was changed
+        private boolean uncacheable = false; // a setting in UNCACHEABLE_SETTINGS was changed
+
+        StatementHandle(Handle connection, String key, PreparedStatement statement) {
+            this.connection = connection;
+            this.key = key;
+            this.statement = statement;
+            this.proxy = (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                    new Class<?>[] { PreparedStatement.class }, this);
+        }
+
+        @Override
+        public Object invoke(Object self, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            switch (name) {
+                case "equals":
+                    return self == args[0];
+                case "hashCode":
+                    return System.identityHashCode(self);
+                case "toString":
+                    return "CachedStatement[" + statement + "]";
+                case "isClosed":
+                    return closed;
+                case "getConnection":
+                    return connection.proxy;
+                case "close":
+                    connection.openStatements.remove(this);
+                    release();
+                    return null;
+                default:
+                    break;
+            }
+
+            if (closed) {
+                throw new SQLException("Statement is closed");
+            }
+
+            if (RESET_SETTINGS.contains(name)) {
+                settingsReset = true;
+            } else if (UNCACHEABLE_SETTINGS.contains(name)) {
+                uncacheable = true;
+            }
+
+            Object result = PooledConnection.invoke(statement, method, args);
+            if (result instanceof ResultSet && name.equals("executeQuery")) {
+                lastResultSet = (ResultSet) result;
+            }
+            return result;
+        }
+
+        /**
+         * Resets the physical statement and puts it back in the cache, so the
+         * next borrower gets it with the driver's default settings.
+         */
+        void release() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+
+            try {
+                if (lastResultSet != null) {
+                    lastResultSet.close();
+                    lastResultSet = null;
+                }
+                if (uncacheable) {
+                    closeQuietly(statement);
+                    return;
+                }
+                statement.clearParameters();
+                statement.clearBatch();
+                if (settingsReset) {
+                    statement.setFetchSize(0);
+                    statement.setMaxRows(0);
+                    statement.setQueryTimeout(0);
+                }
+                checkIn(key, statement);
+            } catch (SQLException e) {
+                System.err.println("Discarding statement that failed to reset: " + e.getMessage());
+                closeQuietly(statement);
+            }
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.fashionstore.utils;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Versioned schema migrations, run once at startup after the base tables are
+ * created. Every applied migration is recorded in the schema_version table,
+ * so each one runs exactly once per database.
+ *
+ * To change the schema, append a migration with the next version number;
+ * never edit or reorder a migration that has already shipped.
+ */
+class SchemaMigrator {
+
+    // MySQL error raised when adding a column that already exists
+    private static final int ER_DUP_FIELDNAME = 1060;
+
+    private static final List<Migration> MIGRATIONS = new ArrayList<>();
+
+    static {
+        register(1, "Add product visibility",
+                "ALTER TABLE products ADD COLUMN is_visible BOOLEAN DEFAULT TRUE");
+
+        register(2, "Add user account status columns",
+                "ALTER TABLE users ADD COLUMN is_deactivated BOOLEAN DEFAULT FALSE",
+                "ALTER TABLE users ADD COLUMN deactivation_date TIMESTAMP NULL",
+                "ALTER TABLE users ADD COLUMN is_dark_mode BOOLEAN DEFAULT FALSE",
+                "ALTER TABLE users ADD COLUMN is_banned BOOLEAN DEFAULT FALSE",
+                "ALTER TABLE users ADD COLUMN ban_reason VARCHAR(255) NULL",
+                "ALTER TABLE users ADD COLUMN ban_expiration TIMESTAMP NULL");
+
+        // Order lines copy the product name and price and deliberately have no
+        // foreign key to products, so history survives product deletion
+        register(3, "Add orders, order items and monthly sales",
+                "CREATE TABLE IF NOT EXISTS orders (" +
+                        "order_id VARCHAR(50) PRIMARY KEY, " +
+                        "user_id VARCHAR(50) NOT NULL, " +
+                        "order_date TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP, " +
+                        "payment_method VARCHAR(50), " +
+                        "total_amount DECIMAL(12,2) NOT NULL, " +
+                        "INDEX idx_orders_user_date (user_id, order_date, order_id), " +
+                        "INDEX idx_orders_date (order_date), " +
+                        "FOREIGN KEY (user_id) REFERENCES users(user_id) ON DELETE CASCADE" +
+                        ")",
+                "CREATE TABLE IF NOT EXISTS order_items (" +
+                        "order_id VARCHAR(50), " +
+                        "product_id VARCHAR(50), " +
+                        "product_name VARCHAR(100), " +
+                        "unit_price DECIMAL(10,2) NOT NULL, " +
+                        "quantity INT NOT NULL, " +
+                        "PRIMARY KEY (order_id, product_id), " +
+                        "INDEX idx_order_items_product (product_id), " +
+                        "FOREIGN KEY (order_id) REFERENCES orders(order_id) ON DELETE CASCADE" +
+                        ")",
+                "CREATE TABLE IF NOT EXISTS sales_monthly (" +
+                        "sales_month CHAR(7) PRIMARY KEY, " +
+                        "order_count INT NOT NULL DEFAULT 0, " +
+                        "units_sold INT NOT NULL DEFAULT 0, " +
+                        "revenue DECIMAL(14,2) NOT NULL DEFAULT 0" +
+                        ")");
+
+        register(4, "Add product stock version",
+                "ALTER TABLE products ADD COLUMN version INT NOT NULL DEFAULT 0");
+
+        // No foreign key to the cart: carts are written behind, so a hold can
+        // be taken before its cart row exists
+        register(5, "Add stock reservations for carts",
+                "CREATE TABLE IF NOT EXISTS stock_reservations (" +
+                        "product_id VARCHAR(50), " +
+                        "cart_id VARCHAR(50), " +
+                        "quantity INT NOT NULL, " +
+                        "expires_at TIMESTAMP NOT NULL, " +
+                        "PRIMARY KEY (product_id, cart_id), " +
+                        "INDEX idx_stock_reservations_cart (cart_id), " +
+                        "INDEX idx_stock_reservations_expiry (expires_at), " +
+                        "FOREIGN KEY (product_id) REFERENCES products(product_id) ON DELETE CASCADE" +
+                        ")");
+
+        register(6, "Add product image thumbnails",
+                "ALTER TABLE products ADD COLUMN thumbnail_card VARCHAR(255) NULL",
+                "ALTER TABLE products ADD COLUMN thumbnail_chip VARCHAR(255) NULL",
+                "ALTER TABLE products ADD COLUMN thumbnail_preview VARCHAR(255) NULL");
+    }
+
+    private static final class Migration {
+        final int version;
+        final String description;
+        final List<String> statements;
+
+        Migration(int version, String description, List<String> statements) {
+            this.version = version;
+            this.description = description;
+            this.statements = statements;
+        }
+    }
+
+    private SchemaMigrator() {
+    }
+
+    private static void register(int version, String description, String... statements) {
+        if (!MIGRATIONS.isEmpty() && MIGRATIONS.get(MIGRATIONS.size() - 1).version >= version) {
+            throw new IllegalStateException("Schema migrations must be registered in version order: " + version);
+        }
+        List<String> list = new ArrayList<>();
+        Collections.addAll(list, statements);
+        MIGRATIONS.add(new Migration(version, description, list));
+    }
+
+    /**
+     * Applies every migration newer than the recorded schema version.
+     */
+    static void migrate(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate(
+                    "CREATE TABLE IF NOT EXISTS schema_version (" +
+                            "version INT PRIMARY KEY, " +
+                            "description VARCHAR(255) NOT NULL, " +
+                            "applied_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP" +
+                            ")");
+        }
+
+        int currentVersion = getCurrentVersion(conn);
+        for (Migration migration : MIGRATIONS) {
+            if (migration.version > currentVersion) {
+                apply(conn, migration);
+                currentVersion = migration.version;
+            }
+        }
+        System.out.println("Database schema is at version " + currentVersion);
+    }
+
+    /**
+     * @return the highest version applied to the connected database, 0 if none
+     */
+    static int getCurrentVersion(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+                ResultSet rs = stmt.executeQuery("SELECT MAX(version) FROM schema_version")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    private static void apply(Connection conn, Migration migration) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            for (String sql : migration.statements) {
+                try {
+                    stmt.executeUpdate(sql);
+                } catch (SQLException e) {
+                    // Databases created from the current base tables already
+                    // have the columns older migrations add
+                    if (e.getErrorCode() != ER_DUP_FIELDNAME) {
+                        throw e;
+                    }
+                }
+            }
+        }
+
+        try (PreparedStatement ps = conn.prepareStatement(
+                "INSERT INTO schema_version (version, description) VALUES (?, ?)")) {
+            ps.setInt(1, migration.version);
+            ps.setString(2, migration.description);
+            ps.executeUpdate();
+        }
+        System.out.println("Applied schema migration " + migration.version + ": " + migration.description);
+    }
+}
@@ -4,45 +4,182 @@ import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
 import java.io.IOException;
 import java.io.InputStream;
 
 /**
  * A simple database connection pool implementation
  * that doesn't rely on external libraries.
+ *
+ * Idle connections are kept in a lock-free deque and the number of
+ * connections in use is bounded by a fair semaphore, so borrowers wait in
+ * arrival order for up to db.pool.borrowTimeoutMs instead of failing when the
+ * pool is busy. Validation and idle eviction happen on a background thread
+ * rather than on every borrow.
+ *
+ * Borrowers receive a logical handle over the physical connection. Each
+ * physical connection keeps an LRU cache of prepared statements keyed by SQL
+ * text (db.pool.statementCacheSize per connection, 0 disables), so the same
+ * statement is reused across borrows without any change to calling code.
+ *
+ * The pool also records metrics (see {@link #getMetrics()}) and, when
+ * db.pool.leakThresholdMs is set, logs the borrowing stack trace of any
+ * connection held longer than that threshold.
  */
 public class SimpleConnectionPool {
-    private static final int DEFAULT_POOL_SIZE = 10;
     private static String DB_URL = "jdbc:mysql://localhost:3306/fashionstore";
     private static String DB_USER = "Asser";
     private static String DB_PASSWORD = "00990099";
     private static String DB_DRIVER = "com.mysql.cj.jdbc.Driver";
+    private static int DB_FETCH_SIZE = 1000;
+    private static final Properties CONFIG = new Properties();
+
+    // Pool sizing and maintenance defaults, overridable in database.properties
+    private static final int DEFAULT_MIN_SIZE = 2;
+    private static final int DEFAULT_MAX_SIZE = 10;
+    private static final int DEFAULT_BORROW_TIMEOUT_MS = 30000;
+    private static final int DEFAULT_IDLE_TIMEOUT_MS = 10 * 60 * 1000;
+    private static final int DEFAULT_VALIDATION_INTERVAL_MS = 30000;
+    private static final int DEFAULT_LEAK_THRESHOLD_MS = 0; // disabled
+    private static final int DEFAULT_STATEMENT_CACHE_SIZE = 64;
+
+    // Upper bounds of the borrow wait-time histogram buckets
+    private static final long[] WAIT_BUCKET_BOUNDS_MS = { 1, 5, 10, 50, 100, 500, 1000, 5000 };
+
+    private static volatile SimpleConnectionPool instance;
+
+    private final int minSize;
+    private final int maxSize;
+    private final long borrowTimeoutMillis;
+    private final long idleTimeoutMillis;
+    private final long leakThresholdMillis;
+    private final int statementCacheSize;
+
+    // Most recently returned connections sit at the head so they are reused first
+    private final ConcurrentLinkedDeque<IdleConnection> idleConnections = new ConcurrentLinkedDeque<>();
+    // Checked-out connections mapped to who borrowed them and when
+    private final Map<Connection, BorrowRecord> borrowedConnections = new ConcurrentHashMap<>();
+    private final Semaphore permits;
+    private final AtomicInteger totalConnections = new AtomicInteger();
+    private final ScheduledExecutorService maintenance;
+    // Set by shutdown(); connections released after that are closed, not pooled
+    private volatile boolean closed;
+
+    // Metrics
+    private final long startedAt = System.currentTimeMillis();
+    private final AtomicLongArray waitBuckets = new AtomicLongArray(WAIT_BUCKET_BOUNDS_MS.length + 1);
+    private final LongAdder connectionsCreated = new LongAdder();
+    private final LongAdder validationFailures = new LongAdder();
+    private final LongAdder borrowTimeouts = new LongAdder();
+    private final LongAdder leakWarnings = new LongAdder();
+    private final Map<String, CallSiteCounter> callSiteCounters = new ConcurrentHashMap<>();
+    private final LongAdder statementCacheHits = new LongAdder();
+    private final LongAdder statementCacheMisses = new LongAdder();
 
-    private final List<Connection> connectionPool;
-    private final List<Connection> usedConnections = new ArrayList<>();
-    private static SimpleConnectionPool instance;
+    /**
+     * An idle connection together with the time it was returned to the pool.
+     */
+    private static final class IdleConnection {
+        final PooledConnection connection;
+        final long idleSince;
 
-    private SimpleConnectionPool(int poolSize) throws SQLException {
-        connectionPool = new ArrayList<>(poolSize);
-        for (int i = 0; i < poolSize; i++) {
-            connectionPool.add(createConnection());
+        IdleConnection(PooledConnection connection) {
+            this.connection = connection;
+            this.idleSince = System.currentTimeMillis();
         }
     }
 
-    public static synchronized SimpleConnectionPool getInstance() throws SQLException {
-        if (instance == null) {
-            loadProperties();
-            try {
-                Class.forName(DB_DRIVER);
-            } catch (ClassNotFoundException e) {
-                throw new SQLException("Database driver not found: " + e.getMessage());
-            }
+    /**
+     * Who borrowed a connection and when, plus the borrowing stack trace when
+     * leak detection is enabled.
+     */
+    private static final class BorrowRecord {
+        final PooledConnection.Handle handle;
+        final long borrowedAt;
+        final String callSite;
+        final Throwable borrowTrace;
+        volatile boolean leakReported;
+
+        BorrowRecord(PooledConnection.Handle handle, String callSite, Throwable borrowTrace) {
+            this.handle = handle;
+            this.borrowedAt = System.currentTimeMillis();
+            this.callSite = callSite;
+            this.borrowTrace = borrowTrace;
+        }
+    }
 
-            instance = new SimpleConnectionPool(DEFAULT_POOL_SIZE);
+    /**
+     * Running hold-time totals for one call site.
+     */
+    private static final class CallSiteCounter {
+        final LongAdder borrows = new LongAdder();
+        final LongAdder totalHoldMillis = new LongAdder();
+        final AtomicLong maxHoldMillis = new AtomicLong();
+
+        void record(long holdMillis) {
+            borrows.increment();
+            totalHoldMillis.add(holdMillis);
+            maxHoldMillis.accumulateAndGet(holdMillis, Math::max);
+        }
+    }
+
+    private SimpleConnectionPool() throws SQLException {
+        this.maxSize = Math.max(1, getIntProperty("db.pool.maxSize", DEFAULT_MAX_SIZE));
+        this.minSize = Math.max(0, Math.min(maxSize, getIntProperty("db.pool.minSize", DEFAULT_MIN_SIZE)));
+        this.borrowTimeoutMillis = getIntProperty("db.pool.borrowTimeoutMs", DEFAULT_BORROW_TIMEOUT_MS);
+        this.idleTimeoutMillis = getIntProperty("db.pool.idleTimeoutMs", DEFAULT_IDLE_TIMEOUT_MS);
+        this.leakThresholdMillis = getIntProperty("db.pool.leakThresholdMs", DEFAULT_LEAK_THRESHOLD_MS);
+        this.statementCacheSize = getIntProperty("db.pool.statementCacheSize", DEFAULT_STATEMENT_CACHE_SIZE);
+        this.permits = new Semaphore(maxSize, true);
+
+        for (int i = 0; i < minSize; i++) {
+            idleConnections.offerFirst(new IdleConnection(createPooledConnection()));
+        }
+
+        long validationInterval = getIntProperty("db.pool.validationIntervalMs", DEFAULT_VALIDATION_INTERVAL_MS);
+        this.maintenance = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "fashionstore-pool-maintenance");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.maintenance.scheduleWithFixedDelay(this::maintain, validationInterval, validationInterval,
+                TimeUnit.MILLISECONDS);
+    }
+
+    public static SimpleConnectionPool getInstance() throws SQLException {
+        SimpleConnectionPool pool = instance;
+        if (pool != null) {
+            return pool;
+        }
+
+        synchronized (SimpleConnectionPool.class) {
+            if (instance == null) {
+                loadProperties();
+                try {
+                    Class.forName(DB_DRIVER);
+                } catch (ClassNotFoundException e) {
+                    throw new SQLException("Database driver not found: " + e.getMessage());
+                }
+
+                instance = new SimpleConnectionPool();
+            }
+            return instance;
         }
-        return instance;
     }
 
     private static void loadProperties() {
@@ -50,10 +187,12 @@ public class SimpleConnectionPool {
         try (InputStream is = SimpleConnectionPool.class.getClassLoader().getResourceAsStream("database.properties")) {
             if (is != null) {
                 props.load(is);
+                CONFIG.putAll(props);
                 DB_URL = props.getProperty("db.url", DB_URL);
                 DB_USER = props.getProperty("db.user", DB_USER);
                 DB_PASSWORD = props.getProperty("db.password", DB_PASSWORD);
                 DB_DRIVER = props.getProperty("db.driver", DB_DRIVER);
+                DB_FETCH_SIZE = getIntProperty("db.fetchSize", DB_FETCH_SIZE);
                 System.out.println("Loaded database configuration from properties file");
             } else {
                 System.out.println("Using default database configuration");
@@ -64,53 +203,373 @@ public class SimpleConnectionPool {
         }
     }
 
-    public synchronized Connection getConnection() throws SQLException {
-        if (connectionPool.isEmpty()) {
-            if (usedConnections.size() < DEFAULT_POOL_SIZE) {
-                connectionPool.add(createConnection());
+    /**
+     * Reads an integer setting from database.properties, falling back to the
+     * given default when the key is missing or malformed.
+     */
+    public static int getIntProperty(String key, int defaultValue) {
+        String value = CONFIG.getProperty(key);
+        if (value == null || value.trim().isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid numeric database property '" + value + "', using " + defaultValue);
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Number of rows the driver should fetch per round trip when streaming
+     * large result sets (configured with db.fetchSize).
+     */
+    public static int getFetchSize() {
+        return DB_FETCH_SIZE;
+    }
+
+    /**
+     * Borrows a connection, waiting up to the configured borrow timeout if
+     * every connection is in use.
+     */
+    public Connection getConnection() throws SQLException {
+        long waitStart = System.nanoTime();
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection");
+        }
+        recordWait(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - waitStart));
+        if (!acquired) {
+            borrowTimeouts.increment();
+            throw new SQLException("Timed out after " + borrowTimeoutMillis +
+                    "ms waiting for a database connection (pool size " + maxSize + ", held by " +
+                    describeHolders() + ")");
+        }
+
+        try {
+            PooledConnection connection = null;
+            IdleConnection idle;
+            while (connection == null && (idle = idleConnections.pollFirst()) != null) {
+                if (idle.connection.getPhysical().isClosed()) {
+                    discard(idle.connection);
+                } else {
+                    connection = idle.connection;
+                }
+            }
+
+            if (connection == null) {
+                connection = createPooledConnection();
+            }
+
+            PooledConnection.Handle handle = connection.newHandle(this);
+            Throwable borrowTrace = leakThresholdMillis > 0 ? new Throwable("Connection borrowed here") : null;
+            borrowedConnections.put(handle.getProxy(), new BorrowRecord(handle, findCallSite(), borrowTrace));
+            return handle.getProxy();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns a borrowed connection to the pool.
+     *
+     * @return false if the connection was not checked out from this pool
+     */
+    public boolean releaseConnection(Connection connection) {
+        BorrowRecord record = connection != null ? borrowedConnections.remove(connection) : null;
+        if (record == null) {
+            System.err.println("Ignoring release of a connection that is not checked out from the pool (from "
+                    + findCallSite() + ")");
+            return false;
+        }
+
+        long heldMillis = System.currentTimeMillis() - record.borrowedAt;
+        callSiteCounters.computeIfAbsent(record.callSite, site -> new CallSiteCounter()).record(heldMillis);
+        if (record.leakReported) {
+            System.err.println("Connection previously reported as leaked was returned by " + record.callSite
+                    + " after " + heldMillis + "ms");
+        }
+
+        record.handle.invalidate();
+        PooledConnection pooled = record.handle.getPooledConnection();
+        Connection physical = pooled.getPhysical();
+        try {
+            if (physical.isClosed()) {
+                discard(pooled);
             } else {
-                throw new SQLException("Connection pool exhausted");
+                // Undo any transaction state the borrower left behind
+                if (!physical.getAutoCommit()) {
+                    physical.rollback();
+                    physical.setAutoCommit(true);
+                }
+                offerIdle(new IdleConnection(pooled), true);
             }
+        } catch (SQLException e) {
+            System.err.println("Discarding connection that failed to reset: " + e.getMessage());
+            discard(pooled);
+        } finally {
+            permits.release();
         }
+        return true;
+    }
+
+    private Connection createConnection() throws SQLException {
+        return DriverManager.getConnection(withCursorFetch(DB_URL), DB_USER, DB_PASSWORD);
+    }
+
+    /**
+     * Connector/J ignores setFetchSize and reads the whole result set into
+     * memory unless useCursorFetch is on, so it is added to the pool's URL
+     * unless database.properties already sets it.
+     */
+    private static String withCursorFetch(String url) {
+        if (url.contains("useCursorFetch=")) {
+            return url;
+        }
+        return url + (url.indexOf('?') >= 0 ? "&" : "?") + "useCursorFetch=true";
+    }
 
-        Connection connection = connectionPool.remove(connectionPool.size() - 1);
+    private PooledConnection createPooledConnection() throws SQLException {
+        // Claim a slot first so concurrent callers can never open more than maxSize
+        int total;
+        do {
+            total = totalConnections.get();
+            if (total >= maxSize) {
+                throw new SQLException("Connection pool is full (" + total + " of " + maxSize + " connections open)");
+            }
+        } while (!totalConnections.compareAndSet(total, total + 1));
 
-        // Validate connection
-        if (!connection.isValid(1)) {
-            connection = createConnection();
+        try {
+            PooledConnection connection = new PooledConnection(createConnection(), statementCacheSize,
+                    statementCacheHits, statementCacheMisses);
+            connectionsCreated.increment();
+            return connection;
+        } catch (SQLException | RuntimeException e) {
+            totalConnections.decrementAndGet();
+            throw e;
         }
+    }
 
-        usedConnections.add(connection);
-        return connection;
+    private void recordWait(long waitMillis) {
+        int bucket = 0;
+        while (bucket < WAIT_BUCKET_BOUNDS_MS.length && waitMillis >= WAIT_BUCKET_BOUNDS_MS[bucket]) {
+            bucket++;
+        }
+        waitBuckets.incrementAndGet(bucket);
     }
 
-    public synchronized boolean releaseConnection(Connection connection) {
-        connectionPool.add(connection);
-        return usedConnections.remove(connection);
+    /**
+     * Returns the first caller outside the pool and DatabaseUtils, as
+     * Class.method:line.
+     */
+    private static String findCallSite() {
+        return StackWalker.getInstance().walk(frames -> frames
+                .filter(frame -> !frame.getClassName().equals(SimpleConnectionPool.class.getName())
+                        && !frame.getClassName().equals(DatabaseUtils.class.getName()))
+                .findFirst()
+                .map(frame -> {
+                    String className = frame.getClassName();
+                    return className.substring(className.lastIndexOf('.') + 1) + "." +
+                            frame.getMethodName() + ":" + frame.getLineNumber();
+                })
+                .orElse("unknown"));
     }
 
-    private Connection createConnection() throws SQLException {
-        return DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
+    /**
+     * Summarises which call sites currently hold connections, for error messages.
+     */
+    private String describeHolders() {
+        Map<String, Integer> heldBySite = new HashMap<>();
+        for (BorrowRecord record : borrowedConnections.values()) {
+            heldBySite.merge(record.callSite, 1, Integer::sum);
+        }
+        return heldBySite.isEmpty() ? "none" : heldBySite.toString();
+    }
+
+    /**
+     * Logs connections held longer than the leak threshold, once per borrow.
+     */
+    private void detectLeaks() {
+        if (leakThresholdMillis <= 0) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        for (BorrowRecord record : borrowedConnections.values()) {
+            long heldMillis = now - record.borrowedAt;
+            if (!record.leakReported && heldMillis > leakThresholdMillis) {
+                record.leakReported = true;
+                leakWarnings.increment();
+                System.err.println("Possible connection leak: held for " + heldMillis + "ms by " + record.callSite);
+                if (record.borrowTrace != null) {
+                    record.borrowTrace.printStackTrace();
+                }
+            }
+        }
+    }
+
+    /**
+     * Puts a connection in the idle deque, at the head if it was just returned,
+     * or closes it if the pool has been shut down.
+     */
+    private void offerIdle(IdleConnection idle, boolean mostRecent) {
+        if (mostRecent) {
+            idleConnections.offerFirst(idle);
+        } else {
+            idleConnections.offerLast(idle);
+        }
+        // Checked after adding, so a shutdown draining the deque meanwhile cannot miss it
+        if (closed && idleConnections.remove(idle)) {
+            discard(idle.connection);
+        }
+    }
+
+    private void discard(PooledConnection connection) {
+        totalConnections.decrementAndGet();
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            System.err.println("Error closing discarded connection: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Background validation and idle eviction. Each idle connection is checked
+     * once per run; expired connections above the minimum size are closed, and
+     * the pool is topped back up to its minimum size.
+     *
+     * A connection taken out of the idle deque for checking holds a permit,
+     * just like a borrowed one, so a borrower that finds the deque empty
+     * meanwhile cannot open a connection beyond maxSize. The same goes for
+     * connections opened to top the pool up.
+     */
+    private void maintain() {
+        if (closed) {
+            return;
+        }
+        try {
+            long now = System.currentTimeMillis();
+            int idleCount = idleConnections.size();
+            for (int i = 0; i < idleCount; i++) {
+                if (!permits.tryAcquire()) {
+                    // Every connection is in use, so none is idle to check
+                    break;
+                }
+                try {
+                    IdleConnection idle = idleConnections.pollLast();
+                    if (idle == null) {
+                        break;
+                    }
+
+                    boolean expired = now - idle.idleSince > idleTimeoutMillis && totalConnections.get() > minSize;
+                    if (expired) {
+                        discard(idle.connection);
+                    } else if (!idle.connection.getPhysical().isValid(1)) {
+                        validationFailures.increment();
+                        discard(idle.connection);
+                    } else {
+                        // Keep its original idle timestamp and place it behind fresher connections
+                        offerIdle(idle, false);
+                    }
+                } finally {
+                    permits.release();
+                }
+            }
+
+            while (totalConnections.get() < minSize && permits.tryAcquire()) {
+                try {
+                    if (totalConnections.get() < minSize) {
+                        offerIdle(new IdleConnection(createPooledConnection()), false);
+                    }
+                } finally {
+                    permits.release();
+                }
+            }
+
+            detectLeaks();
+        } catch (SQLException | RuntimeException e) {
+            System.err.println("Error during connection pool maintenance: " + e.getMessage());
+        }
     }
 
     public static void close(Connection conn) {
         if (conn != null) {
             try {
-                if (!conn.isClosed()) {
-                    getInstance().releaseConnection(conn);
-                }
+                getInstance().releaseConnection(conn);
             } catch (SQLException e) {
                 System.err.println("Error releasing connection: " + e.getMessage());
             }
         }
     }
 
+    /**
+     * Stops background maintenance and closes all idle connections.
+     * Connections still borrowed are closed when they are released.
+     */
+    public static void shutdown() {
+        SimpleConnectionPool pool = instance;
+        if (pool == null) {
+            return;
+        }
+
+        pool.closed = true;
+        pool.maintenance.shutdownNow();
+        IdleConnection idle;
+        while ((idle = pool.idleConnections.pollFirst()) != null) {
+            pool.discard(idle.connection);
+        }
+    }
+
     public int getSize() {
-        return connectionPool.size() + usedConnections.size();
+        return totalConnections.get();
     }
 
     public int getAvailable() {
-        return connectionPool.size();
+        return idleConnections.size();
+    }
+
+    /**
+     * Returns a snapshot of pool usage: connection counts, borrow wait-time
+     * histogram, creation rate, validation failures, per-call-site hold
+     * times and prepared statement cache hits and misses.
+     */
+    public PoolMetrics getMetrics() {
+        long[] bucketCounts = new long[waitBuckets.length()];
+        for (int i = 0; i < bucketCounts.length; i++) {
+            bucketCounts[i] = waitBuckets.get(i);
+        }
+
+        Map<String, Integer> heldBySite = new HashMap<>();
+        for (BorrowRecord record : borrowedConnections.values()) {
+            heldBySite.merge(record.callSite, 1, Integer::sum);
+        }
+
+        List<PoolMetrics.CallSiteStats> callSites = new ArrayList<>();
+        for (Map.Entry<String, CallSiteCounter> entry : callSiteCounters.entrySet()) {
+            CallSiteCounter counter = entry.getValue();
+            callSites.add(new PoolMetrics.CallSiteStats(entry.getKey(), counter.borrows.sum(),
+                    counter.totalHoldMillis.sum(), counter.maxHoldMillis.get(),
+                    heldBySite.getOrDefault(entry.getKey(), 0)));
+        }
+        // Call sites holding connections that have never been returned
+        for (Map.Entry<String, Integer> entry : heldBySite.entrySet()) {
+            if (!callSiteCounters.containsKey(entry.getKey())) {
+                callSites.add(new PoolMetrics.CallSiteStats(entry.getKey(), 0, 0, 0, entry.getValue()));
+            }
+        }
+        callSites.sort(Comparator.comparingLong(PoolMetrics.CallSiteStats::getMaxHoldMillis).reversed());
+
+        long created = connectionsCreated.sum();
+        double minutes = Math.max(1, System.currentTimeMillis() - startedAt) / 60000.0;
+
+        return new PoolMetrics(borrowedConnections.size(), idleConnections.size(), permits.getQueueLength(),
+                totalConnections.get(), maxSize, created, created / minutes, validationFailures.sum(),
+                borrowTimeouts.sum(), leakWarnings.sum(), WAIT_BUCKET_BOUNDS_MS, bucketCounts, callSites,
+                statementCacheHits.sum(), statementCacheMisses.sum());
     }
 
     public static void createDatabaseIfNotExists() {
@@ -151,8 +610,8 @@ public class SimpleConnectionPool {
             // Create tables
             createTables(conn);
 
-            // Run migrations for existing databases
-            migrateDatabaseSchema(conn);
+            // Apply any schema migrations this database has not seen yet
+            SchemaMigrator.migrate(conn);
 
             System.out.println("Database schema created successfully");
 
@@ -310,106 +769,4 @@ public class SimpleConnectionPool {
                             ")");
         }
     }
-
-    /**
-     * Run migrations to update existing database schema
-     */
-    private static void migrateDatabaseSchema(Connection conn) {
-        try {
-            // Check for each column we might need to add
-            
-            // Check if is_visible column exists in products table
-            boolean isVisibleExists = false;
-            try (java.sql.ResultSet rs = conn.getMetaData().getColumns(
-                    null, null, "products", "is_visible")) {
-                isVisibleExists = rs.next();
-            }
-
-            // Add is_visible column if it doesn't exist
-            if (!isVisibleExists) {
-                try (java.sql.Statement stmt = conn.createStatement()) {
-                    stmt.executeUpdate(
-                            "ALTER TABLE products " +
-                                    "ADD COLUMN is_visible BOOLEAN DEFAULT TRUE");
-                    System.out.println("Added is_visible column to products table");
-                }
-            }
-            
-            // Check if new user-related columns exist
-            boolean isDeactivatedExists = false;
-            try (java.sql.ResultSet rs = conn.getMetaData().getColumns(
-                    null, null, "users", "is_deactivated")) {
-                isDeactivatedExists = rs.next();
-            }
-            
-            boolean deactivationDateExists = false;
-            try (java.sql.ResultSet rs = conn.getMetaData().getColumns(
-                    null, null, "users", "deactivation_date")) {
-                deactivationDateExists = rs.next();
-            }
-            
-            boolean isDarkModeExists = false;
-            try (java.sql.ResultSet rs = conn.getMetaData().getColumns(
-                    null, null, "users", "is_dark_mode")) {
-                isDarkModeExists = rs.next();
-            }
-            
-            boolean isBannedExists = false;
-            try (java.sql.ResultSet rs = conn.getMetaData().getColumns(
-                    null, null, "users", "is_banned")) {
-                isBannedExists = rs.next();
-            }
-            
-            boolean banReasonExists = false;
-            try (java.sql.ResultSet rs = conn.getMetaData().getColumns(
-                    null, null, "users", "ban_reason")) {
-                banReasonExists = rs.next();
-            }
-            
-            boolean banExpirationExists = false;
-            try (java.sql.ResultSet rs = conn.getMetaData().getColumns(
-                    null, null, "users", "ban_expiration")) {
-                banExpirationExists = rs.next();
-            }
-            
-            // Add user columns if they don't exist
-            try (java.sql.Statement stmt = conn.createStatement()) {
-                if (!isDeactivatedExists) {
-                    stmt.executeUpdate("ALTER TABLE users ADD COLUMN is_deactivated BOOLEAN DEFAULT FALSE");
-                    System.out.println("Added is_deactivated column to users table");
-                }
-                
-                if (!deactivationDateExists) {
-                    stmt.executeUpdate("ALTER TABLE users ADD COLUMN deactivation_date TIMESTAMP NULL");
-                    System.out.println("Added deactivation_date column to users table");
-                }
-                
-                if (!isDarkModeExists) {
-                    stmt.executeUpdate("ALTER TABLE users ADD COLUMN is_dark_mode BOOLEAN DEFAULT FALSE");
-                    System.out.println("Added is_dark_mode column to users table");
-                }
-                
-                if (!isBannedExists) {
-                    stmt.executeUpdate("ALTER TABLE users ADD COLUMN is_banned BOOLEAN DEFAULT FALSE");
-                    System.out.println("Added is_banned column to users table");
-                }
-                
-                if (!banReasonExists) {
-                    stmt.executeUpdate("ALTER TABLE users ADD COLUMN ban_reason VARCHAR(255) NULL");
-                    System.out.println("Added ban_reason column to users table");
-                }
-                
-                if (!banExpirationExists) {
-                    stmt.executeUpdate("ALTER TABLE users ADD COLUMN ban_expiration TIMESTAMP NULL");
-                    System.out.println("Added ban_expiration column to users table");
-                }
-            } catch (SQLException e) {
-                System.err.println("Error adding columns to users table: " + e.getMessage());
-            }
-            
-        } catch (SQLException e) {
-            System.err.println("Error migrating database schema: " + e.getMessage());
-            e.printStackTrace();
-        }
-    }
 }
\ No newline at end of file